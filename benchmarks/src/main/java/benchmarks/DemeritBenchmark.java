@@ -0,0 +1,103 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory demerit work of one person: the two-year window sum, the history line, and the
+ * DemeritLedger against the HashMap&lt;LocalDate, Integer&gt; it replaced. Run with the GC
+ * profiler (the default in RunBenchmarks), gc.alloc.rate.norm of the build benchmarks is the
+ * memory each structure takes per person.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DemeritBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int historyLength;
+
+    private Object person;
+    private Object ledger;
+    private HashMap<LocalDate, Integer> map;
+    private int[] days; //offence days, one every three days back from today
+    private int[] points;
+    private LocalDate twoYearsAgo;
+
+    @Setup
+    public void createHistory() {
+        LocalDate today = LocalDate.now();
+        twoYearsAgo = today.minusYears(2);
+        days = new int[historyLength];
+        points = new int[historyLength];
+        for (int i = 0; i < historyLength; i++) {
+            days[i] = (int) today.minusDays(3L * (historyLength - 1 - i)).toEpochDay();
+            points[i] = 1 + i % 6;
+        }
+
+        ledger = buildLedger();
+        map = buildMap();
+        person = Target.newPerson("56@#0000AB", "Bench", "Person", PersonFiles.address(), "01-01-1990");
+        Target.setDemeritPoints(person, ledger);
+    }
+
+    @Benchmark
+    public int getDemeritPoints() {
+        return Target.getDemeritPoints(person);
+    }
+
+    @Benchmark
+    public String buildDemeritHistory() {
+        return Target.buildDemeritHistory(person);
+    }
+
+    @Benchmark
+    public int ledgerWindowSum() {
+        return Target.ledgerSumSince(ledger, (int) twoYearsAgo.toEpochDay());
+    }
+
+    //the loop getDemeritPoints ran over the HashMap
+    @Benchmark
+    public int hashMapWindowSum() {
+        int totalPoints = 0;
+        for (HashMap.Entry<LocalDate, Integer> entry : map.entrySet()) {
+            if (!entry.getKey().isBefore(twoYearsAgo)) {
+                totalPoints += entry.getValue();
+            }
+        }
+        return totalPoints;
+    }
+
+    @Benchmark
+    public Object buildLedger() {
+        Object built = Target.newLedger();
+        for (int i = 0; i < days.length; i++) {
+            Target.ledgerAdd(built, days[i], points[i]);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public HashMap<LocalDate, Integer> buildMap() {
+        HashMap<LocalDate, Integer> built = new HashMap<>();
+        for (int i = 0; i < days.length; i++) {
+            built.put(LocalDate.ofEpochDay(days[i]), points[i]);
+        }
+        return built;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+/**
+ * The ID, address and date checks as they were written before FieldValidator, kept as the
+ * baseline for ValidatorBenchmark.
+ */
+final class LegacyValidators {
+    private LegacyValidators() {
+    }
+
+    static boolean checkDate(String date) {
+        String[] dateParts = date.split("-");
+        if (dateParts.length != 3) return false; //make sure format is correct
+
+        try {
+            int day = Integer.parseInt(dateParts[0]);
+            int month = Integer.parseInt(dateParts[1]);
+            int year = Integer.parseInt(dateParts[2]);
+
+            if (month < 1 || month > 12) {
+                return false; //make sure it's a valid month
+            }
+
+            if (day < 1 || day > 31) {
+                return false; //make sure it's a valid day
+            }
+
+            if (year < 1 || year > 2025) {
+                return false; //make sure it's a valid year
+            }
+        } catch (NumberFormatException e) {
+            return false; //make sure it's a number
+        }
+
+        return true;
+    }
+
+    static boolean checkID(String id) {
+        int len = id.length();
+        if (len != 10) {
+            return false; //10 chars long
+        }
+
+        //first two char is a number between 2-9
+        char firstChar = id.charAt(0);
+        char secondChar = id.charAt(1);
+
+        if (!Character.isDigit(firstChar) || firstChar < '2' || firstChar > '9') return false;
+        if (!Character.isDigit(secondChar) || secondChar < '2' || secondChar > '9') return false;
+
+        int specialChars = 0;
+        for (int i = 1; i < 9; i++) {
+            if (!Character.isLetterOrDigit(id.charAt(i))) {
+                specialChars++;
+            }
+        }
+
+        if (specialChars < 2) { //at least 2 special chars between 2-9
+            return false;
+        }
+
+        //last two chars are uppercase
+        return Character.isUpperCase(id.charAt(len - 2)) && Character.isUpperCase(id.charAt(len - 1));
+    }
+
+    static boolean checkAddress(String addressToCheck) {
+        String[] parts = addressToCheck.split(" \\| ");
+        if (parts.length != 5) return false; //make sure format is correct
+        if (!parts[3].equals("Victoria")) return false; //make sure state is Victoria
+        try {
+            Integer.parseInt(parts[0]);
+        } catch (NumberFormatException e) {
+            return false;
+        } //make sure street number is a number
+
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * addPerson, updatePersonalDetails and addDemeritPoints against a person.txt that already holds
+ * the given number of records, each with a demerit history of the given length. This is the
+ * scaling curve the store changes are measured on: every call should cost about the same whatever
+ * the file size.
+ *
+ * demerits=line is the Demerit History line rewritten on every offence, demerits=log appends the
+ * offence to a DemeritEventLog instead.
+ *
+ * addDemeritPoints is called on a person added just before each call, with a history of the same
+ * length as the seeded ones, so the offences of earlier calls never pile up on the one measured.
+ *
+ * Each trial writes a fresh file, so the larger sizes take a while (and a few GB of disk) to set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public long records;
+
+    @Param({"0", "10"})
+    public int historyLength;
+
+    @Param({"line", "log"})
+    public String demerits;
+
+    private Path dir;
+    private Object store;
+    private Object demeritLog;
+    private long added; //people added so far, for fresh IDs
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void createStore() throws IOException {
+        dir = Files.createTempDirectory("person-bench");
+        Path file = dir.resolve("person.txt");
+        PersonFiles.write(file, records, historyLength);
+        store = Target.newTextStore(file);
+        Target.useStore(store);
+        if (demerits.equals("log")) {
+            demeritLog = Target.newDemeritLog(dir.resolve("demerits"));
+            Target.useDemeritLog(demeritLog);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() throws IOException {
+        Target.useStore(null);
+        Target.closeStore(store);
+        if (demeritLog != null) {
+            Target.useDemeritLog(null);
+            Target.closeDemeritLog(demeritLog);
+        }
+        PersonFiles.deleteTree(dir);
+    }
+
+    private static Object seededPerson(long n) {
+        return Target.newPerson(PersonFiles.seededID(n), "First" + n, "Last" + n, PersonFiles.address(), PersonFiles.birthDate(n));
+    }
+
+    @Benchmark
+    public boolean addPerson() {
+        long n = added++;
+        Object person = Target.newPerson(PersonFiles.addedID(n), "New" + n, "Person", PersonFiles.address(), PersonFiles.birthDate(n));
+        return Target.addPerson(person);
+    }
+
+    @Benchmark
+    public boolean updatePersonalDetails() {
+        long n = random.nextLong(records);
+        Object person = seededPerson(n);
+        //only the first name changes (null leaves a field alone), so the ID stays findable for later calls
+        return Target.updatePersonalDetails(person, null, "Renamed" + n, null, null, null);
+    }
+
+    /**
+     * The person addDemeritPoints is called on, a new one for every call. Its own state, so the
+     * other benchmarks do not add a person per call as well.
+     */
+    @State(Scope.Thread)
+    public static class Offender {
+        Object person;
+
+        @Setup(Level.Invocation)
+        public void addOffender(PersonBenchmark benchmark) {
+            long n = benchmark.added++;
+            person = Target.newPerson(PersonFiles.addedID(n), "Offender" + n, "Person", PersonFiles.address(), PersonFiles.birthDate(n));
+            Target.setDemeritPoints(person, PersonFiles.ledger(benchmark.historyLength));
+            Target.addPerson(person);
+        }
+    }
+
+    @Benchmark
+    public String addDemeritPoints(Offender offender) {
+        return Target.addDemeritPoints(offender.person, 1, "15-03-2025");
+    }
+}
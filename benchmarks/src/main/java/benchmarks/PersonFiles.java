@@ -0,0 +1,100 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Builds person.txt files of a given size for the benchmarks. Every record is valid and its ID is
+ * derived from its number, so a benchmark can pick existing people without reading the file back.
+ */
+final class PersonFiles {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+    private static final LocalDate LAST_OFFENSE = LocalDate.of(2025, 6, 30);
+
+    private PersonFiles() {
+    }
+
+    /**
+     * ID of the n-th seeded person: 5, a digit 2-9, "@#", four base-36 characters and "AB".
+     * Unique for n below 8 * 36^4 (about 13 million).
+     */
+    static String seededID(long n) {
+        return id(n, "@#");
+    }
+
+    /**
+     * ID of the n-th person added during a benchmark, never equal to a seeded one.
+     */
+    static String addedID(long n) {
+        return id(n, "$%");
+    }
+
+    private static String id(long n, String special) {
+        StringBuilder id = new StringBuilder(10);
+        id.append('5').append((char) ('2' + n % 8)).append(special);
+        String digits = Long.toString(n / 8, 36);
+        for (int i = digits.length(); i < 4; i++) id.append('0');
+        return id.append(digits).append("AB").toString();
+    }
+
+    static String birthDate(long n) {
+        return String.format("%02d-%02d-%d", 1 + n % 28, 1 + n % 12, 1950 + n % 55);
+    }
+
+    static String address() {
+        return ADDRESS;
+    }
+
+    /**
+     * Demerit history in the format addDemeritPoints writes, one offence a week back from mid 2025.
+     */
+    static String history(int length) {
+        StringBuilder history = new StringBuilder();
+        for (int i = length - 1; i >= 0; i--) {
+            if (history.length() > 0) history.append(", ");
+            history.append(1 + i % 3).append(" on ").append(LAST_OFFENSE.minusWeeks(i));
+        }
+        return history.toString();
+    }
+
+    /**
+     * The offences of history(length), as a DemeritLedger.
+     */
+    static Object ledger(int length) {
+        Object ledger = Target.newLedger();
+        for (int i = length - 1; i >= 0; i--) {
+            Target.ledgerAdd(ledger, (int) LAST_OFFENSE.minusWeeks(i).toEpochDay(), 1 + i % 3);
+        }
+        return ledger;
+    }
+
+    static void write(Path file, long records, int historyLength) throws IOException {
+        String history = history(historyLength);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long n = 0; n < records; n++) {
+                writer.write("Name: First" + n + " Last" + n +
+                        "\nID: " + seededID(n) +
+                        "\nAddress: " + ADDRESS +
+                        "\nBirth Date: " + birthDate(n) +
+                        "\nDemerit History: " + history + "\n\n");
+            }
+        }
+    }
+
+    static void deleteTree(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> all = paths.sorted(Comparator.reverseOrder()).toList();
+            for (Path path : all) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
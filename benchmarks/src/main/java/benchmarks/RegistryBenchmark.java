@@ -0,0 +1,120 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PersonRegistry.addDemeritPoints from 1, 2, 4 and 8 threads, each thread on its own block of
+ * seeded people, so the threads never want the same person. Compare the throughput across the
+ * thread counts: the stripes let the threads in together, and the store behind Person decides how
+ * far that goes. demerits=line rewrites the record under the text store's lock, demerits=log lets
+ * offences of several threads share one fsync of the DemeritEventLog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryBenchmark {
+    private static final int MAX_THREADS = 8;
+    private static final long PER_THREAD = 10_000; //people in each thread's block
+
+    @Param({"line", "log"})
+    public String demerits;
+
+    private Path dir;
+    private Object store;
+    private Object demeritLog;
+    private Object registry;
+    private final AtomicInteger blocks = new AtomicInteger(); //blocks handed out to threads
+
+    @Setup(Level.Trial)
+    public void createRegistry() throws IOException {
+        dir = Files.createTempDirectory("registry-bench");
+        Path file = dir.resolve("person.txt");
+        PersonFiles.write(file, MAX_THREADS * PER_THREAD, 0);
+        store = Target.newTextStore(file);
+        Target.useStore(store);
+        if (demerits.equals("log")) {
+            demeritLog = Target.newDemeritLog(dir.resolve("demerits"));
+            Target.useDemeritLog(demeritLog);
+        }
+        registry = Target.newRegistry();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRegistry() throws IOException {
+        Target.useStore(null);
+        Target.closeStore(store);
+        if (demeritLog != null) {
+            Target.useDemeritLog(null);
+            Target.closeDemeritLog(demeritLog);
+        }
+        PersonFiles.deleteTree(dir);
+    }
+
+    /**
+     * The block of seeded people one thread works through, one person after the other.
+     */
+    @State(Scope.Thread)
+    public static class Block {
+        long first;
+        long next;
+
+        @Setup(Level.Trial)
+        public void takeBlock(RegistryBenchmark benchmark) {
+            first = benchmark.blocks.getAndIncrement() * PER_THREAD;
+        }
+
+        String nextID() {
+            return PersonFiles.seededID(first + next++ % PER_THREAD);
+        }
+    }
+
+    private String addDemeritPoints(Block block) {
+        return Target.registryAddDemeritPoints(registry, block.nextID(), 1, "15-03-2025");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String addDemeritPoints_1(Block block) {
+        return addDemeritPoints(block);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public String addDemeritPoints_2(Block block) {
+        return addDemeritPoints(block);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String addDemeritPoints_4(Block block) {
+        return addDemeritPoints(block);
+    }
+
+    @Benchmark
+    @Threads(MAX_THREADS)
+    public String addDemeritPoints_8(Block block) {
+        return addDemeritPoints(block);
+    }
+}
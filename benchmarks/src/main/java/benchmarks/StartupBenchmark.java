@@ -0,0 +1,74 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request: opening a TextPersonStore over a person.txt of the given size and loading
+ * one Person from it. index=scan builds the index by parsing the whole file, index=snapshot maps
+ * the index the previous close() saved. The file is in the page cache either way, so this is the
+ * parsing cost, not the disk.
+ *
+ * The 10M file takes a while and about 1.2 GB of disk to write, and scanning it needs the larger heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StartupBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public long records;
+
+    @Param({"scan", "snapshot"})
+    public String index;
+
+    private Path dir;
+    private Path file;
+    private Object store;
+    private long lookedUp; //a different person for every request, so none of them is cached
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        dir = Files.createTempDirectory("startup-bench");
+        file = dir.resolve("person.txt");
+        PersonFiles.write(file, records, 1);
+        Target.closeStore(Target.newTextStore(file)); //saves the index
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeStore() throws IOException {
+        Target.useStore(null);
+        Target.closeStore(store);
+        if (index.equals("scan")) Files.deleteIfExists(dir.resolve("person.txt.idx")); //close() saved it again
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        PersonFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public Object firstRequest() {
+        store = Target.newTextStore(file);
+        Target.useStore(store);
+        return Target.findById(PersonFiles.seededID(lookedUp++ * 7919 % records));
+    }
+}
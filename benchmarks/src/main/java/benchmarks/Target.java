@@ -0,0 +1,310 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Handles to the classes under test. They live in the unnamed package, which Java code in a
+ * package cannot import (and JMH will not generate benchmarks for the unnamed package), and some
+ * of the measured methods are private. The handles are static finals, so the JIT inlines the calls
+ * just as it would direct ones.
+ */
+final class Target {
+    private static final MethodHandle NEW_PERSON;
+    private static final MethodHandle ADD_PERSON;
+    private static final MethodHandle UPDATE_PERSONAL_DETAILS;
+    private static final MethodHandle ADD_DEMERIT_POINTS;
+    private static final MethodHandle GET_DEMERIT_POINTS;
+    private static final MethodHandle BUILD_DEMERIT_HISTORY;
+    private static final MethodHandle FIND_BY_ID;
+    private static final MethodHandle USE_STORE;
+    private static final MethodHandle USE_DEMERIT_LOG;
+    private static final VarHandle DEMERIT_POINTS;
+
+    private static final MethodHandle NEW_TEXT_STORE;
+    private static final MethodHandle CLOSE_STORE;
+    private static final MethodHandle NEW_DEMERIT_LOG;
+    private static final MethodHandle CLOSE_DEMERIT_LOG;
+
+    private static final MethodHandle NEW_REGISTRY;
+    private static final MethodHandle REGISTRY_ADD_DEMERIT_POINTS;
+
+    private static final MethodHandle NEW_LEDGER;
+    private static final MethodHandle LEDGER_ADD;
+    private static final MethodHandle LEDGER_SUM_SINCE;
+
+    private static final MethodHandle CHECK_ID;
+    private static final MethodHandle CHECK_ADDRESS;
+    private static final MethodHandle CHECK_DATE;
+    private static final MethodHandle NEW_BYTE_SLICE;
+    private static final MethodHandle SET_BYTE_SLICE;
+
+    static {
+        try {
+            Class<?> person = Class.forName("Person");
+            Class<?> store = Class.forName("PersonStore");
+            Class<?> textStore = Class.forName("TextPersonStore");
+            Class<?> ledger = Class.forName("DemeritLedger");
+            Class<?> demeritLog = Class.forName("DemeritEventLog");
+            Class<?> registry = Class.forName("PersonRegistry");
+            Class<?> validator = Class.forName("FieldValidator");
+            Class<?> byteSlice = Class.forName("FieldValidator$ByteSlice");
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(person, MethodHandles.lookup());
+
+            NEW_PERSON = lookup.findConstructor(person, MethodType.methodType(void.class,
+                            String.class, String.class, String.class, String.class, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class, String.class, String.class, String.class, String.class));
+            ADD_PERSON = lookup.findVirtual(person, "addPerson", MethodType.methodType(boolean.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class));
+            UPDATE_PERSONAL_DETAILS = lookup.findVirtual(person, "updatePersonalDetails", MethodType.methodType(boolean.class,
+                            String.class, String.class, String.class, String.class, String.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, String.class, String.class, String.class, String.class, String.class));
+            ADD_DEMERIT_POINTS = lookup.findVirtual(person, "addDemeritPoints", MethodType.methodType(String.class, int.class, String.class))
+                    .asType(MethodType.methodType(String.class, Object.class, int.class, String.class));
+            GET_DEMERIT_POINTS = lookup.findVirtual(person, "getDemeritPoints", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            BUILD_DEMERIT_HISTORY = lookup.findVirtual(person, "buildDemeritHistory", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            FIND_BY_ID = lookup.findStatic(person, "findById", MethodType.methodType(person, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            USE_STORE = lookup.findStatic(person, "useStore", MethodType.methodType(void.class, store))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            USE_DEMERIT_LOG = lookup.findStatic(person, "useDemeritLog", MethodType.methodType(void.class, demeritLog))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            DEMERIT_POINTS = lookup.findVarHandle(person, "demeritPoints", ledger);
+
+            NEW_TEXT_STORE = lookup.findConstructor(textStore, MethodType.methodType(void.class, Path.class))
+                    .asType(MethodType.methodType(Object.class, Path.class));
+            CLOSE_STORE = lookup.findVirtual(store, "close", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            NEW_DEMERIT_LOG = lookup.findConstructor(demeritLog, MethodType.methodType(void.class, Path.class))
+                    .asType(MethodType.methodType(Object.class, Path.class));
+            CLOSE_DEMERIT_LOG = lookup.findVirtual(demeritLog, "close", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+
+            NEW_REGISTRY = lookup.findConstructor(registry, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            REGISTRY_ADD_DEMERIT_POINTS = lookup.findVirtual(registry, "addDemeritPoints", MethodType.methodType(String.class, String.class, int.class, String.class))
+                    .asType(MethodType.methodType(String.class, Object.class, String.class, int.class, String.class));
+
+            NEW_LEDGER = lookup.findConstructor(ledger, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            LEDGER_ADD = lookup.findVirtual(ledger, "add", MethodType.methodType(void.class, int.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, int.class));
+            LEDGER_SUM_SINCE = lookup.findVirtual(ledger, "sumSince", MethodType.methodType(int.class, int.class))
+                    .asType(MethodType.methodType(int.class, Object.class, int.class));
+
+            MethodType check = MethodType.methodType(boolean.class, CharSequence.class);
+            CHECK_ID = lookup.findStatic(validator, "checkID", check);
+            CHECK_ADDRESS = lookup.findStatic(validator, "checkAddress", check);
+            CHECK_DATE = lookup.findStatic(validator, "checkDate", check);
+            NEW_BYTE_SLICE = lookup.findConstructor(byteSlice, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(CharSequence.class));
+            SET_BYTE_SLICE = lookup.findVirtual(byteSlice, "set", MethodType.methodType(byteSlice, ByteBuffer.class, int.class, int.class))
+                    .asType(MethodType.methodType(CharSequence.class, CharSequence.class, ByteBuffer.class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Target() {
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new RuntimeException(t);
+    }
+
+    static Object newPerson(String personID, String firstName, String lastName, String address, String birthDate) {
+        try {
+            return (Object) NEW_PERSON.invokeExact(personID, firstName, lastName, address, birthDate);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean addPerson(Object person) {
+        try {
+            return (boolean) ADD_PERSON.invokeExact(person);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean updatePersonalDetails(Object person, String id, String firstName, String lastName, String address, String birthDate) {
+        try {
+            return (boolean) UPDATE_PERSONAL_DETAILS.invokeExact(person, id, firstName, lastName, address, birthDate);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String addDemeritPoints(Object person, int point, String offenseDate) {
+        try {
+            return (String) ADD_DEMERIT_POINTS.invokeExact(person, point, offenseDate);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getDemeritPoints(Object person) {
+        try {
+            return (int) GET_DEMERIT_POINTS.invokeExact(person);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String buildDemeritHistory(Object person) {
+        try {
+            return (String) BUILD_DEMERIT_HISTORY.invokeExact(person);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object findById(String personID) {
+        try {
+            return (Object) FIND_BY_ID.invokeExact(personID);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void useStore(Object store) {
+        try {
+            USE_STORE.invokeExact(store);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void useDemeritLog(Object log) {
+        try {
+            USE_DEMERIT_LOG.invokeExact(log);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void setDemeritPoints(Object person, Object ledger) {
+        DEMERIT_POINTS.set(person, ledger);
+    }
+
+    static Object newTextStore(Path file) {
+        try {
+            return (Object) NEW_TEXT_STORE.invokeExact(file);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void closeStore(Object store) {
+        try {
+            CLOSE_STORE.invokeExact(store);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newDemeritLog(Path directory) {
+        try {
+            return (Object) NEW_DEMERIT_LOG.invokeExact(directory);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void closeDemeritLog(Object log) {
+        try {
+            CLOSE_DEMERIT_LOG.invokeExact(log);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newRegistry() {
+        try {
+            return (Object) NEW_REGISTRY.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String registryAddDemeritPoints(Object registry, String personID, int point, String offenseDate) {
+        try {
+            return (String) REGISTRY_ADD_DEMERIT_POINTS.invokeExact(registry, personID, point, offenseDate);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newLedger() {
+        try {
+            return (Object) NEW_LEDGER.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void ledgerAdd(Object ledger, int epochDay, int points) {
+        try {
+            LEDGER_ADD.invokeExact(ledger, epochDay, points);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int ledgerSumSince(Object ledger, int fromEpochDay) {
+        try {
+            return (int) LEDGER_SUM_SINCE.invokeExact(ledger, fromEpochDay);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean checkID(CharSequence id) {
+        try {
+            return (boolean) CHECK_ID.invokeExact(id);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean checkAddress(CharSequence address) {
+        try {
+            return (boolean) CHECK_ADDRESS.invokeExact(address);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean checkDate(CharSequence date) {
+        try {
+            return (boolean) CHECK_DATE.invokeExact(date);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static CharSequence newByteSlice() {
+        try {
+            return (CharSequence) NEW_BYTE_SLICE.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static CharSequence setSlice(CharSequence slice, ByteBuffer buffer, int offset, int length) {
+        try {
+            return (CharSequence) SET_BYTE_SLICE.invokeExact(slice, buffer, offset, length);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+}
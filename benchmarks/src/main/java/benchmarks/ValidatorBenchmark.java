@@ -0,0 +1,94 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FieldValidator against the split/regex/parseInt checks it replaced, over a mix of valid and
+ * invalid fields, plus FieldValidator reading the same fields straight from bytes through a
+ * ByteSlice. Each call checks every field once; gc.alloc.rate.norm should be 0 for the
+ * FieldValidator runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+    private static final String[] IDS = {"56@#df&*AB", "56s_d%&fAB", "12badidAB", "56abcdefAB", "99!!zzzzXY", "5x@#dfgh"};
+    private static final String[] ADDRESSES = {
+            "32 | Highland Street | Melbourne | Victoria | Australia",
+            "7 | Swanston Street | Melbourne | Victoria | Australia",
+            "32 | Highland Street | Sydney | New South Wales | Australia",
+            "Highland Street | Melbourne | Victoria | Australia",
+            "x2 | Highland Street | Melbourne | Victoria | Australia"
+    };
+    private static final String[] DATES = {"15-11-1990", "01-01-2000", "31-12-2025", "15/11/1990", "32-01-2000", "15-11-2026"};
+
+    private final CharSequence slice = Target.newByteSlice();
+    private ByteBuffer buffer;
+    private int[] offsets; //start of each field in buffer, IDs then addresses then dates
+    private int[] lengths;
+
+    @Setup
+    public void encodeFields() {
+        String[][] groups = {IDS, ADDRESSES, DATES};
+        int count = IDS.length + ADDRESSES.length + DATES.length;
+        offsets = new int[count];
+        lengths = new int[count];
+
+        StringBuilder all = new StringBuilder();
+        int field = 0;
+        for (String[] group : groups) {
+            for (String value : group) {
+                offsets[field] = all.length();
+                lengths[field] = value.length();
+                all.append(value).append('\n');
+                field++;
+            }
+        }
+        buffer = ByteBuffer.wrap(all.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (String id : IDS) blackhole.consume(LegacyValidators.checkID(id));
+        for (String address : ADDRESSES) blackhole.consume(LegacyValidators.checkAddress(address));
+        for (String date : DATES) blackhole.consume(LegacyValidators.checkDate(date));
+    }
+
+    @Benchmark
+    public void fieldValidator(Blackhole blackhole) {
+        for (String id : IDS) blackhole.consume(Target.checkID(id));
+        for (String address : ADDRESSES) blackhole.consume(Target.checkAddress(address));
+        for (String date : DATES) blackhole.consume(Target.checkDate(date));
+    }
+
+    @Benchmark
+    public void fieldValidatorOverBytes(Blackhole blackhole) {
+        int field = 0;
+        for (int i = 0; i < IDS.length; i++, field++) {
+            blackhole.consume(Target.checkID(Target.setSlice(slice, buffer, offsets[field], lengths[field])));
+        }
+        for (int i = 0; i < ADDRESSES.length; i++, field++) {
+            blackhole.consume(Target.checkAddress(Target.setSlice(slice, buffer, offsets[field], lengths[field])));
+        }
+        for (int i = 0; i < DATES.length; i++, field++) {
+            blackhole.consume(Target.checkDate(Target.setSlice(slice, buffer, offsets[field], lengths[field])));
+        }
+    }
+}
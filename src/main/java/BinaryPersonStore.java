@@ -0,0 +1,491 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Binary store with one fixed-size slot per person in a memory-mapped file. Demerit history does
+ * not fit a fixed layout, so it is appended to a separate overflow file and the slot points at the
+ * latest block. Reads and updates only touch the slot (and, for new demerits, the end of the overflow file).
+ *
+ * Slot file: 16 byte header (magic, version, slot count), then SLOT_SIZE byte slots, mapped in
+ * segments of SLOTS_PER_SEGMENT slots since one mapping cannot pass 2 GB.
+ * Slot: status byte, then length-prefixed UTF-8 fields of fixed width, then the overflow offset.
+ * Overflow block: entry count, chain depth, offset of the previous block (-1 for none), then
+ * (epoch day int, points byte) per entry.
+ *
+ * An update that only adds offences after the existing ones appends just the new entries as a
+ * block chained to the previous one. Every MAX_CHAIN blocks the whole history is written as one
+ * block again, so a read follows at most MAX_CHAIN blocks, and adding n offences one at a time
+ * writes about n^2 / (2 * MAX_CHAIN) entries instead of n^2 / 2. Superseded blocks are never
+ * reclaimed; convertToText and convertFromText give a store without them.
+ *
+ * Every insert, update and delete forces the overflow file and then the slot to disk, unless
+ * setForceOnWrite(false) leaves that to sync().
+ */
+public class BinaryPersonStore implements PersonStore {
+    private static final int MAGIC = 0x50534E31; //"PSN1"
+    private static final int VERSION = 2; //1 had no chained history blocks
+    private static final int HEADER_SIZE = 16;
+
+    private static final int SLOT_SIZE = 288;
+    private static final int SLOTS_PER_SEGMENT = 1 << 20; //288 MB per mapping
+    private static final int INITIAL_SLOTS = 64;
+    private static final byte LIVE = 1;
+
+    //field offsets and widths inside a slot, the width includes the length byte
+    private static final int ID_OFFSET = 1, ID_WIDTH = 32;
+    private static final int FIRST_NAME_OFFSET = 33, FIRST_NAME_WIDTH = 48;
+    private static final int LAST_NAME_OFFSET = 81, LAST_NAME_WIDTH = 48;
+    private static final int ADDRESS_OFFSET = 129, ADDRESS_WIDTH = 128;
+    private static final int BIRTH_DATE_OFFSET = 257, BIRTH_DATE_WIDTH = 16;
+    private static final int HISTORY_OFFSET = 273; //long offset into the overflow file, -1 if no demerits
+
+    private static final int BLOCK_HEADER = 16; //count, depth, previous block
+    private static final int MAX_CHAIN = 16;
+
+    private final FileChannel slotChannel;
+    private final FileChannel overflowChannel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private MappedByteBuffer header;
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+    private int capacity; //slots mapped
+    private int slotCount;
+    private boolean forceOnWrite = true;
+    private final HashMap<String, Integer> index = new HashMap<>(); //personID -> slot number
+
+    private BinaryPersonStore(FileChannel slotChannel, FileChannel overflowChannel) {
+        this.slotChannel = slotChannel;
+        this.overflowChannel = overflowChannel;
+    }
+
+    /**
+     * Opens the store at the given path, creating it if needed. Demerit history goes to path + ".demerits".
+     */
+    public static BinaryPersonStore open(Path path) throws IOException {
+        FileChannel slotChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel overflowChannel = FileChannel.open(Paths.get(path + ".demerits"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        BinaryPersonStore store = new BinaryPersonStore(slotChannel, overflowChannel);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        boolean fresh = slotChannel.size() == 0;
+        map((int) Math.min(Integer.MAX_VALUE, Math.max(INITIAL_SLOTS, (slotChannel.size() - HEADER_SIZE) / SLOT_SIZE)));
+
+        if (fresh) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, 0);
+            return;
+        }
+
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a person store: " + slotChannel);
+        }
+
+        slotCount = header.getInt(8);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (segment(slot).get(at(slot)) == LIVE) {
+                index.put(getField(slot, ID_OFFSET), slot);
+            }
+        }
+    }
+
+    //maps the header and room for capacity slots, the file grows with the mapping
+    private void map(int capacity) throws IOException {
+        header = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        segments.clear();
+        for (int first = 0; first < capacity; first += SLOTS_PER_SEGMENT) {
+            int count = Math.min(SLOTS_PER_SEGMENT, capacity - first);
+            segments.add(slotChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) first * SLOT_SIZE, (long) count * SLOT_SIZE));
+        }
+        this.capacity = capacity;
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments.get(slot / SLOTS_PER_SEGMENT);
+    }
+
+    //position of the slot inside its segment
+    private static int at(int slot) {
+        return (slot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+    }
+
+    private String getField(int slot, int fieldOffset) {
+        ByteBuffer segment = segment(slot);
+        int position = at(slot) + fieldOffset;
+        int length = segment.get(position) & 0xFF;
+        byte[] bytes = new byte[length];
+        segment.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void putField(int slot, int fieldOffset, byte[] value) {
+        ByteBuffer segment = segment(slot);
+        int position = at(slot) + fieldOffset;
+        segment.put(position, (byte) value.length);
+        segment.put(position + 1, value);
+    }
+
+    private long historyOffset(int slot) {
+        return segment(slot).getLong(at(slot) + HISTORY_OFFSET);
+    }
+
+    //null if any field is too wide for its slot
+    private static byte[][] encodeFields(PersonRecord record) {
+        String[] values = {record.personID, record.firstName, record.lastName, record.address, record.birthDate};
+        int[] widths = {ID_WIDTH, FIRST_NAME_WIDTH, LAST_NAME_WIDTH, ADDRESS_WIDTH, BIRTH_DATE_WIDTH};
+
+        byte[][] fields = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            fields[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            if (fields[i].length >= widths[i]) return null;
+        }
+
+        return fields;
+    }
+
+    private void writeSlot(int slot, byte[][] fields, long historyOffset) {
+        ByteBuffer segment = segment(slot);
+        int position = at(slot);
+        segment.put(position, LIVE);
+        putField(slot, ID_OFFSET, fields[0]);
+        putField(slot, FIRST_NAME_OFFSET, fields[1]);
+        putField(slot, LAST_NAME_OFFSET, fields[2]);
+        putField(slot, ADDRESS_OFFSET, fields[3]);
+        putField(slot, BIRTH_DATE_OFFSET, fields[4]);
+        segment.putLong(position + HISTORY_OFFSET, historyOffset);
+        PersonMetrics.countWritten(SLOT_SIZE);
+    }
+
+    //forces the slot and the header, once the overflow blocks it points at are on disk
+    private void forceSlot(int slot) throws IOException {
+        if (!forceOnWrite) return;
+        overflowChannel.force(false);
+        segment(slot).force(at(slot), SLOT_SIZE);
+        header.force();
+    }
+
+    //a block holding the entries of history chained after previous, null if the history is not in the "'points' on 'date'" format
+    private static ByteBuffer encodeHistory(String history, long previous, int depth) {
+        if (history.isEmpty()) return ByteBuffer.allocate(0);
+
+        String[] entries = history.split(", ");
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER + entries.length * 5);
+        block.putInt(entries.length).putInt(depth).putLong(previous);
+
+        try {
+            for (String entry : entries) {
+                int on = entry.indexOf(" on ");
+                if (on < 0) return null;
+                byte points = Byte.parseByte(entry.substring(0, on));
+                LocalDate date = LocalDate.parse(entry.substring(on + 4));
+                block.putInt((int) date.toEpochDay()).put(points);
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+
+        return block.flip();
+    }
+
+    private String readHistory(long historyOffset) throws IOException {
+        if (historyOffset < 0) return "";
+
+        //the chain runs from the newest block back to the first, so collect it and read it forwards
+        ArrayDeque<ByteBuffer> blocks = new ArrayDeque<>();
+        for (long offset = historyOffset; offset >= 0; ) {
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER);
+            readFully(blockHeader, offset);
+            blockHeader.flip();
+            ByteBuffer entries = ByteBuffer.allocate(blockHeader.getInt() * 5);
+            blockHeader.getInt(); //depth
+            readFully(entries, offset + BLOCK_HEADER);
+            blocks.push(entries.flip());
+            offset = blockHeader.getLong();
+        }
+
+        StringBuilder history = new StringBuilder();
+        for (ByteBuffer entries : blocks) {
+            while (entries.hasRemaining()) {
+                if (history.length() > 0) history.append(", ");
+                int epochDay = entries.getInt();
+                history.append(entries.get()).append(" on ").append(LocalDate.ofEpochDay(epochDay));
+            }
+        }
+
+        return history.toString();
+    }
+
+    private int depthAt(long historyOffset) throws IOException {
+        ByteBuffer depth = ByteBuffer.allocate(4);
+        readFully(depth, historyOffset + 4);
+        return depth.flip().getInt();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        PersonMetrics.countRead(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            if (overflowChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Demerit history is cut short at " + position);
+            }
+        }
+    }
+
+    private long appendHistory(ByteBuffer block) throws IOException {
+        if (!block.hasRemaining()) return -1;
+
+        long offset = overflowChannel.size();
+        PersonMetrics.countWritten(block.remaining());
+        while (block.hasRemaining()) overflowChannel.write(block, offset + block.position());
+        return offset;
+    }
+
+    /**
+     * Turns the fsync after every write off, for bulk loads that call sync() once at the end.
+     */
+    public void setForceOnWrite(boolean forceOnWrite) {
+        lock.lock();
+        try {
+            this.forceOnWrite = forceOnWrite;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String personID) {
+        lock.lock();
+        try {
+            return index.containsKey(personID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PersonRecord find(String personID) throws IOException {
+        lock.lock();
+        try {
+            Integer slot = index.get(personID);
+            if (slot == null) return null;
+
+            PersonMetrics.countRead(SLOT_SIZE);
+            return new PersonRecord(
+                    getField(slot, ID_OFFSET),
+                    getField(slot, FIRST_NAME_OFFSET),
+                    getField(slot, LAST_NAME_OFFSET),
+                    getField(slot, ADDRESS_OFFSET),
+                    getField(slot, BIRTH_DATE_OFFSET),
+                    readHistory(historyOffset(slot))
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(PersonRecord record) throws IOException {
+        lock.lock();
+        try {
+            if (index.containsKey(record.personID)) return false;
+
+            byte[][] fields = encodeFields(record);
+            ByteBuffer history = encodeHistory(record.demeritHistory, -1, 0);
+            if (fields == null || history == null) return false; //does not fit the fixed layout
+
+            int slot = slotCount;
+            if (slot == Integer.MAX_VALUE) throw new IOException("Person store is full");
+            if (slot == capacity) {
+                map((int) Math.min(Integer.MAX_VALUE, 2L * capacity)); //grow the mapping, the file grows with it
+            }
+
+            writeSlot(slot, fields, appendHistory(history));
+            slotCount++;
+            header.putInt(8, slotCount);
+            index.put(record.personID, slot);
+            forceSlot(slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean update(String personID, PersonRecord record) throws IOException {
+        lock.lock();
+        try {
+            Integer slot = index.get(personID);
+            if (slot == null) return false;
+            if (index.containsKey(record.personID) && !personID.equals(record.personID)) return false; //new ID is taken
+
+            byte[][] fields = encodeFields(record);
+            if (fields == null) return false;
+
+            long historyOffset = historyOffset(slot);
+            String oldHistory = readHistory(historyOffset);
+            if (!oldHistory.equals(record.demeritHistory)) {
+                ByteBuffer history;
+                int depth = historyOffset < 0 ? MAX_CHAIN : depthAt(historyOffset) + 1;
+                if (depth < MAX_CHAIN && record.demeritHistory.startsWith(oldHistory + ", ")) {
+                    //only offences after the stored ones, which go in a block chained to the old one
+                    history = encodeHistory(record.demeritHistory.substring(oldHistory.length() + 2), historyOffset, depth);
+                } else {
+                    history = encodeHistory(record.demeritHistory, -1, 0);
+                }
+                if (history == null) return false;
+                historyOffset = appendHistory(history); //old blocks stay behind, the overflow area is append-only
+            }
+
+            writeSlot(slot, fields, historyOffset);
+
+            if (!personID.equals(record.personID)) {
+                index.remove(personID);
+                index.put(record.personID, slot);
+            }
+
+            forceSlot(slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the slot as no longer live. The slot is not reused.
+     */
+    @Override
+    public boolean delete(String personID) throws IOException {
+        lock.lock();
+        try {
+            Integer slot = index.remove(personID);
+            if (slot == null) return false;
+
+            segment(slot).put(at(slot), (byte) 0);
+            PersonMetrics.countWritten(1);
+            forceSlot(slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<PersonRecord> action) throws IOException {
+        lock.lock();
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (segment(slot).get(at(slot)) == LIVE) {
+                    action.accept(find(getField(slot, ID_OFFSET)));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bytes in the overflow file, old blocks included.
+     */
+    public long overflowSize() throws IOException {
+        return overflowChannel.size();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            overflowChannel.force(false);
+            for (MappedByteBuffer segment : segments) segment.force();
+            header.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            sync();
+            slotChannel.close();
+            overflowChannel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies every record of a person.txt file into a new binary store.
+     */
+    public static void convertFromText(Path textFile, Path binaryFile) throws IOException {
+        try (TextPersonStore text = new TextPersonStore(textFile);
+             BinaryPersonStore binary = open(binaryFile)) {
+            binary.setForceOnWrite(false); //closing syncs once
+            text.forEach(record -> {
+                try {
+                    if (!binary.insert(record)) {
+                        System.out.println("Skipped record that does not fit the binary layout: " + record.personID);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes every record of a binary store out in the person.txt format.
+     */
+    public static void convertToText(Path binaryFile, Path textFile) throws IOException {
+        convertToText(binaryFile, null, textFile);
+    }
+
+    /**
+     * Writes every record of a binary store out in the person.txt format, with the offences held
+     * in demeritLog (see Person.useDemeritLog) written into the Demerit History lines. The text file
+     * must then not be read together with the same log. demeritLog may be null.
+     */
+    public static void convertToText(Path binaryFile, DemeritEventLog demeritLog, Path textFile) throws IOException {
+        try (BinaryPersonStore binary = open(binaryFile);
+             RecordWriter writer = RecordWriter.replace(textFile)) {
+            binary.forEach(record -> {
+                try {
+                    if (demeritLog != null) record.demeritHistory = demeritLog.historyOf(record.personID, record.demeritHistory);
+                    writer.write(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
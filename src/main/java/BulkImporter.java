@@ -0,0 +1,234 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Loads people in bulk from a CSV file or a person.txt style file in one streaming pass. Rows are
+ * checked with the same rules as Person.addPerson, duplicates are dropped through an in-memory set
+ * and the accepted records are written by the store in one batch, instead of one addPerson call
+ * (and one file scan) per row.
+ *
+ * CSV rows are: personID,firstName,lastName,address,birthDate. Fields may be double-quoted, and a
+ * first row starting with "personID" is treated as a header.
+ */
+public class BulkImporter {
+    private final PersonStore store;
+
+    public BulkImporter(PersonStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Outcome of an import: how many rows were written and why the others were not.
+     */
+    public static class Result {
+        private int imported;
+        private final List<String> rejects = new ArrayList<>(); //"line N: reason"
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rejects.size();
+        }
+
+        public List<String> getRejects() {
+            return rejects;
+        }
+    }
+
+    public Result importCsv(Path csvFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            return load(new CsvRows(reader));
+        }
+    }
+
+    public Result importText(Path textFile) throws IOException {
+        return importText(textFile, null);
+    }
+
+    /**
+     * Imports a person.txt whose offences are partly held in demeritLog, as with
+     * Person.useDemeritLog. The logged offences are written into the imported Demerit History
+     * lines, so the store must not be read together with the same log afterwards. demeritLog may
+     * be null.
+     */
+    public Result importText(Path textFile, DemeritEventLog demeritLog) throws IOException {
+        try (RecordReader reader = RecordReader.open(textFile)) {
+            return load(new TextRows(reader, demeritLog));
+        }
+    }
+
+    private Result load(RowSource rows) throws IOException {
+        Result result = new Result();
+        HashSet<String> seen = new HashSet<>();
+
+        //validates lazily while the store pulls records, so nothing is held in memory but the ID set
+        Iterator<PersonRecord> accepted = new Iterator<>() {
+            private PersonRecord next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    PersonRecord record;
+                    try {
+                        record = rows.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (record == null) return false;
+
+                    String reason = check(record, seen);
+                    if (reason == null) {
+                        next = record;
+                    } else {
+                        result.rejects.add("line " + rows.lineNumber() + ": " + reason);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public PersonRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                PersonRecord record = next;
+                next = null;
+                return record;
+            }
+        };
+
+        try {
+            result.imported = store.insertAll(accepted);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return result;
+    }
+
+    //same conditions as addPerson, returns the reason a row is rejected or null if it is fine
+    private String check(PersonRecord record, HashSet<String> seen) {
+        if (record.personID == null) return "wrong number of fields";
+        if (!Person.checkID(record.personID)) return "invalid ID";
+        if (!Person.checkAddress(record.address)) return "invalid address";
+        if (!Person.checkDate(record.birthDate)) return "invalid birth date";
+        if (!seen.add(record.personID) || store.contains(record.personID)) return "duplicate ID";
+        return null;
+    }
+
+    private interface RowSource {
+        /**
+         * Next row, or null at the end. A row with a null ID could not be split into fields.
+         */
+        PersonRecord next() throws IOException;
+
+        long lineNumber();
+    }
+
+    private static class CsvRows implements RowSource {
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        CsvRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public PersonRecord next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) return null;
+                lineNumber++;
+            } while (line.isEmpty() || (lineNumber == 1 && line.startsWith("personID")));
+
+            List<String> fields = split(line);
+            if (fields.size() != 5) {
+                return new PersonRecord(null, null, null, null, null, "");
+            }
+            return new PersonRecord(fields.get(0), fields.get(1), fields.get(2), fields.get(3), fields.get(4), "");
+        }
+
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>(5);
+            if (line.indexOf('"') < 0) { //no quoting, cut on commas directly
+                int start = 0;
+                int comma;
+                while ((comma = line.indexOf(',', start)) >= 0) {
+                    fields.add(line.substring(start, comma));
+                    start = comma + 1;
+                }
+                fields.add(line.substring(start));
+                return fields;
+            }
+
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"'); //escaped quote
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public long lineNumber() {
+            return lineNumber;
+        }
+    }
+
+    private static class TextRows implements RowSource {
+        private final RecordReader reader;
+        private final DemeritEventLog demeritLog;
+
+        TextRows(RecordReader reader, DemeritEventLog demeritLog) {
+            this.reader = reader;
+            this.demeritLog = demeritLog;
+        }
+
+        @Override
+        public PersonRecord next() throws IOException {
+            if (!reader.next()) return null;
+
+            //a copy, the store may hold on to the records it is handed
+            PersonRecord record = reader.record().copy();
+            if (demeritLog != null && record.personID != null) {
+                record.demeritHistory = demeritLog.historyOf(record.personID, record.demeritHistory);
+            }
+            return record;
+        }
+
+        @Override
+        public long lineNumber() {
+            return reader.lineNumber();
+        }
+    }
+}
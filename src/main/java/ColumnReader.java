@@ -0,0 +1,157 @@
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads one column of an export written by ColumnarExporter, value by value, without touching the
+ * other column files. Like RecordReader, next() moves to the next value and text() or number()
+ * returns it, depending on whether it is a text or a number column.
+ */
+public class ColumnReader implements Closeable {
+    private final String name;
+    private final boolean text;
+    private final long count;
+    private final Inflater inflater = new Inflater();
+    private final InputStream in;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    private long read;
+    private long number; //current value of a number column, values are stored as differences
+    private String value; //current value of a text column
+    private final ArrayList<String> dictionary = new ArrayList<>();
+
+    private ColumnReader(Path file, String name, long count) throws IOException {
+        this.name = name;
+        this.count = count;
+
+        InputStream raw = Files.newInputStream(file);
+        try {
+            DataInputStream header = new DataInputStream(raw);
+            if (header.readInt() != ColumnarExporter.MAGIC || header.readInt() != ColumnarExporter.VERSION) {
+                throw new IOException("Not a column file: " + file);
+            }
+            this.text = header.readByte() == ColumnarExporter.TEXT;
+        } catch (IOException e) {
+            raw.close();
+            throw e;
+        }
+        this.in = new InflaterInputStream(raw, inflater, 64 * 1024);
+    }
+
+    /**
+     * Opens the named column of the export in directory.
+     */
+    public static ColumnReader open(Path directory, String column) throws IOException {
+        Properties manifest = manifest(directory);
+        String count = manifest.getProperty(column + ".count");
+        if (count == null) throw new IOException("No column " + column + " in " + directory);
+        return new ColumnReader(directory.resolve(column + ".col"), column, Long.parseLong(count));
+    }
+
+    /**
+     * The export's columns.properties. Throws an IOException if there is no complete export in directory.
+     */
+    public static Properties manifest(Path directory) throws IOException {
+        Path file = directory.resolve(ColumnarExporter.MANIFEST);
+        if (!Files.exists(file)) throw new IOException("No complete export in " + directory);
+
+        Properties manifest = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            manifest.load(in);
+        }
+        return manifest;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isText() {
+        return text;
+    }
+
+    /**
+     * Number of values in the column.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Moves to the next value. Returns false after the last one.
+     */
+    public boolean next() throws IOException {
+        if (read == count) return false;
+
+        if (text) {
+            int code = (int) readVarint();
+            if (code > 0) {
+                value = dictionary.get(code - 1);
+            } else {
+                byte[] bytes = new byte[(int) readVarint()];
+                for (int i = 0; i < bytes.length; i++) bytes[i] = get();
+                value = new String(bytes, StandardCharsets.UTF_8);
+                if (dictionary.size() < ColumnarExporter.DICTIONARY_LIMIT) dictionary.add(value); //as the writer did
+            }
+        } else {
+            long zigzag = readVarint();
+            number += (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        read++;
+        return true;
+    }
+
+    /**
+     * The current value of a text column.
+     */
+    public String text() {
+        if (!text) throw new IllegalStateException(name + " is a number column");
+        return value;
+    }
+
+    /**
+     * The current value of a number column.
+     */
+    public long number() {
+        if (text) throw new IllegalStateException(name + " is a text column");
+        return number;
+    }
+
+    private long readVarint() throws IOException {
+        long result = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return result;
+        }
+    }
+
+    private byte get() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException("Column " + name + " ends before its " + count + " values");
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+        inflater.end();
+    }
+}
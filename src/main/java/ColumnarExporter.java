@@ -0,0 +1,278 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Exports person.txt as one compressed file per column, for analytics jobs that would otherwise
+ * parse the labelled-line format themselves. A job that needs one field reads one column file
+ * with a ColumnReader and never decodes the others.
+ *
+ * Person columns, one value per person in file order: id, firstName, lastName, the five parts of
+ * the address (streetNumber, street, city, state, country) and birthDay as an epoch day. Demerit
+ * offences are flattened into event columns, one value per offence: eventRow (the person's
+ * position in the person columns), eventDay and eventPoints.
+ *
+ * Text columns are dictionary coded: a value seen before is written as its dictionary number, a
+ * new one as its bytes, which adds it to the dictionary until that holds DICTIONARY_LIMIT values.
+ * Number columns store the difference to the previous value as a zigzag varint. Every column is
+ * then deflated. columns.properties lists the columns with their value counts and is written last,
+ * so a directory without it holds no complete export.
+ */
+public class ColumnarExporter {
+    static final int MAGIC = 0x50434F4C; //"PCOL"
+    static final int VERSION = 1;
+    static final byte TEXT = 1;
+    static final byte NUMBER = 2;
+    static final int DICTIONARY_LIMIT = 1 << 16;
+    static final String MANIFEST = "columns.properties";
+
+    /**
+     * birthDay of a record whose birth date is not a dd-MM-yyyy date.
+     */
+    public static final long NO_DATE = Integer.MIN_VALUE;
+
+    public static final String[] TEXT_COLUMNS = {"id", "firstName", "lastName", "streetNumber", "street", "city", "state", "country"};
+    public static final String[] EVENT_COLUMNS = {"eventRow", "eventDay", "eventPoints"};
+
+    /**
+     * What an export wrote.
+     */
+    public static class Result {
+        private long rows;
+        private long events;
+        private long bytes;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        /**
+         * Size of all column files together.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    private ColumnarExporter() {
+    }
+
+    public static Result export(Path textFile, Path directory) throws IOException {
+        return export(textFile, null, directory);
+    }
+
+    /**
+     * Exports every live record of textFile into directory, replacing an earlier export there.
+     * Offences held in demeritLog are exported with the ones in the Demerit History lines, as
+     * Person.findById would count them. demeritLog may be null.
+     */
+    public static Result export(Path textFile, DemeritEventLog demeritLog, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(MANIFEST)); //the old export is incomplete from here on
+
+        Result result = new Result();
+        ColumnWriter[] text = new ColumnWriter[TEXT_COLUMNS.length];
+        ColumnWriter[] events = new ColumnWriter[EVENT_COLUMNS.length];
+        ColumnWriter birthDay = null;
+        try {
+            for (int i = 0; i < text.length; i++) text[i] = new ColumnWriter(directory, TEXT_COLUMNS[i], TEXT);
+            for (int i = 0; i < events.length; i++) events[i] = new ColumnWriter(directory, EVENT_COLUMNS[i], NUMBER);
+            birthDay = new ColumnWriter(directory, "birthDay", NUMBER);
+
+            String[] address = new String[5];
+            try (RecordReader reader = RecordReader.open(textFile)) {
+                while (reader.next()) {
+                    PersonRecord record = reader.record();
+                    splitAddress(record.address, address);
+                    text[0].writeText(record.personID);
+                    text[1].writeText(record.firstName);
+                    text[2].writeText(record.lastName);
+                    for (int i = 0; i < 5; i++) text[3 + i].writeText(address[i]);
+                    birthDay.writeNumber(epochDay(record.birthDate));
+
+                    DemeritLedger ledger = Person.parseDemeritHistory(record.demeritHistory);
+                    if (demeritLog != null) demeritLog.copyInto(record.personID, ledger);
+                    for (int i = 0; i < ledger.size(); i++) {
+                        events[0].writeNumber(result.rows);
+                        events[1].writeNumber(ledger.dayAt(i));
+                        events[2].writeNumber(ledger.pointsAt(i));
+                    }
+                    result.events += ledger.size();
+                    result.rows++;
+                }
+            }
+
+            Properties manifest = new Properties();
+            for (ColumnWriter column : text) result.bytes += column.finish(manifest);
+            for (ColumnWriter column : events) result.bytes += column.finish(manifest);
+            result.bytes += birthDay.finish(manifest);
+            manifest.setProperty("rows", Long.toString(result.rows));
+            manifest.setProperty("events", Long.toString(result.events));
+            writeManifest(directory, manifest);
+        } finally {
+            for (ColumnWriter column : text) if (column != null) column.close();
+            for (ColumnWriter column : events) if (column != null) column.close();
+            if (birthDay != null) birthDay.close();
+        }
+        return result;
+    }
+
+    //the five " | " separated parts checkAddress validates, or the whole address as the street if it has some other shape
+    static void splitAddress(String address, String[] parts) {
+        String[] split = address.split(" \\| ", -1);
+        if (split.length == 5) {
+            System.arraycopy(split, 0, parts, 0, 5);
+        } else {
+            parts[0] = "";
+            parts[1] = address;
+            parts[2] = "";
+            parts[3] = "";
+            parts[4] = "";
+        }
+    }
+
+    //dd-MM-yyyy as an epoch day, NO_DATE if it is not one
+    static long epochDay(String birthDate) {
+        if (birthDate == null || birthDate.length() != 10 || birthDate.charAt(2) != '-' || birthDate.charAt(5) != '-') return NO_DATE;
+        try {
+            int day = Integer.parseInt(birthDate.substring(0, 2));
+            int month = Integer.parseInt(birthDate.substring(3, 5));
+            int year = Integer.parseInt(birthDate.substring(6));
+            return LocalDate.of(year, month, day).toEpochDay();
+        } catch (RuntimeException e) {
+            return NO_DATE;
+        }
+    }
+
+    private static void writeManifest(Path directory, Properties manifest) throws IOException {
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            manifest.store(out, "columnar person export");
+        }
+        Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes one column file: the magic, version and encoding, then the deflated values.
+     */
+    private static class ColumnWriter {
+        private final String name;
+        private final byte encoding;
+        private final Path file;
+        private final Path temporary;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final OutputStream out;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int position;
+        private long count;
+        private long previous; //NUMBER: the last value written
+        private final HashMap<String, Integer> dictionary = new HashMap<>(); //TEXT: value -> its number
+        private boolean done;
+
+        ColumnWriter(Path directory, String name, byte encoding) throws IOException {
+            this.name = name;
+            this.encoding = encoding;
+            this.file = directory.resolve(name + ".col");
+            this.temporary = directory.resolve(name + ".col.tmp");
+
+            OutputStream raw = Files.newOutputStream(temporary);
+            byte[] header = ByteBuffer.allocate(9).putInt(MAGIC).putInt(VERSION).put(encoding).array();
+            raw.write(header);
+            this.out = new DeflaterOutputStream(raw, deflater, 64 * 1024);
+        }
+
+        void writeText(String value) throws IOException {
+            Integer code = dictionary.get(value);
+            if (code != null) {
+                writeVarint(code + 1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarint(0); //a new value follows
+                writeVarint(bytes.length);
+                for (byte b : bytes) put(b);
+                if (dictionary.size() < DICTIONARY_LIMIT) dictionary.put(value, dictionary.size());
+            }
+            count++;
+        }
+
+        void writeNumber(long value) throws IOException {
+            long delta = value - previous;
+            writeVarint((delta << 1) ^ (delta >> 63)); //zigzag, small differences either way stay small
+            previous = value;
+            count++;
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private void put(byte b) throws IOException {
+            if (position == buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = b;
+        }
+
+        //completes the file, records it in the manifest and returns its size
+        long finish(Properties manifest) throws IOException {
+            out.write(buffer, 0, position);
+            out.close();
+            deflater.end();
+            done = true;
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            manifest.setProperty(name, encoding == TEXT ? "text" : "number");
+            manifest.setProperty(name + ".count", Long.toString(count));
+            return Files.size(file);
+        }
+
+        void close() throws IOException {
+            if (done) return;
+            out.close();
+            deflater.end();
+            Files.deleteIfExists(temporary); //export failed, leave no half-written column
+        }
+    }
+
+    /**
+     * Exports a person.txt: ColumnarExporter <person.txt> <output directory> [demerit log directory]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: ColumnarExporter <person.txt> <output directory> [demerit log directory]");
+            return;
+        }
+
+        Path textFile = Path.of(args[0]);
+        long start = System.nanoTime();
+        Result result;
+        if (args.length == 3) {
+            try (DemeritEventLog demeritLog = new DemeritEventLog(Path.of(args[2]))) {
+                result = export(textFile, demeritLog, Path.of(args[1]));
+            }
+        } else {
+            result = export(textFile, Path.of(args[1]));
+        }
+        System.out.printf("Exported %d persons and %d offences in %.1f s: %d bytes of text, %d bytes of columns (%.1fx smaller)%n",
+                result.getRows(), result.getEvents(), (System.nanoTime() - start) / 1e9, Files.size(textFile), result.getBytes(),
+                (double) Files.size(textFile) / result.getBytes());
+    }
+}
@@ -0,0 +1,490 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Demerit offences kept as an append-only stream of events instead of a history line that is
+ * rewritten on every offence. An offence is one small entry appended to demerits.log through a
+ * WriteAheadLog, so its cost does not depend on how long the history already is, and offences
+ * appended at the same time share one fsync. An ID change is an event too, so the offences follow
+ * the person.
+ *
+ * Every person's offences are also held in memory as a DemeritLedger, which keeps them in date
+ * order whatever order they were appended in. Nothing is ever dropped from the ledgers, so they
+ * take about 150 bytes per person plus 9 to 18 bytes per offence (the ledger arrays grow by
+ * doubling) for as long as the log is open: some 2 GB for 10 million persons with 10 offences each.
+ *
+ * Every snapshotEvery events the ledgers are written to demerits.snapshot, one compact entry per
+ * person with their offences. The append
+ * that reaches the interval only moves demerits.log aside to demerits.log.old, starts a new log
+ * and takes a shallow copy of the ledger map; the snapshot is written from that copy by a
+ * background thread, and demerits.log.old is deleted once it is in place. A ledger the copy still
+ * refers to is copied before it is changed, so the snapshot sees every ledger as it was at the
+ * rotation. Opening the log loads the snapshot and replays demerits.log.old, if it is still there,
+ * and demerits.log, so startup time is bounded by the snapshot interval, not by the whole history.
+ *
+ * Every event carries a sequence number and the snapshot records the last one it holds, so events
+ * that are still in a log after a crash between writing the snapshot and deleting the log are not
+ * counted twice.
+ */
+public class DemeritEventLog implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x444D5253; //"DMRS"
+    private static final int SNAPSHOT_VERSION = 2; //1 also held the day and every person's window total, which were never read
+    private static final byte OFFENCE = 1;
+    private static final byte RENAME = 2;
+
+    private static final ExecutorService SNAPSHOTTER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "demerit-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Path retiredFile; //the log a snapshot is being written for
+    private final int snapshotEvery;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition snapshotWritten = lock.newCondition();
+    private final HashMap<String, DemeritLedger> ledgers = new HashMap<>();
+    private WriteAheadLog log;
+    private long batchBase; //batches of the logs before this one, so batch numbers keep rising
+    private long lastBatch; //last batch handed out
+    private HashMap<String, DemeritLedger> writing; //the ledgers the snapshot in progress is written from
+    private IOException snapshotFailure;
+    private long sequence; //of the last event
+    private long rotatedSequence; //last event of the retired log, the snapshot in progress holds up to here
+    private long snapshotSequence; //last event the snapshot holds
+    private int replayed; //events read back from the log when it was opened
+
+    /**
+     * Opens the log in the directory, creating it if needed, with a snapshot every 100000 events.
+     */
+    public DemeritEventLog(Path directory) throws IOException {
+        this(directory, 100_000);
+    }
+
+    public DemeritEventLog(Path directory, int snapshotEvery) throws IOException {
+        if (snapshotEvery < 1) throw new IllegalArgumentException("snapshotEvery must be at least 1");
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve("demerits.snapshot");
+        this.logFile = directory.resolve("demerits.log");
+        this.retiredFile = directory.resolve("demerits.log.old");
+        this.snapshotEvery = snapshotEvery;
+
+        if (Files.exists(snapshotFile)) loadSnapshot();
+        boolean retired = Files.exists(retiredFile);
+        if (retired) { //the last snapshot was not finished, its events are only in the old log
+            WriteAheadLog old = new WriteAheadLog(retiredFile, 0, 1024 * 1024);
+            replayed = old.replay(this::apply);
+            old.close();
+        }
+        this.log = newLog();
+        replayed += log.replay(this::apply);
+        rotatedSequence = sequence;
+
+        if (retired) {
+            //nobody else has the log yet, so the snapshot can be written straight from the ledgers
+            writeSnapshot(ledgers, sequence);
+            Files.delete(retiredFile);
+            log.truncate();
+            snapshotSequence = sequence;
+        }
+    }
+
+    private WriteAheadLog newLog() throws IOException {
+        return new WriteAheadLog(logFile, 0, 1024 * 1024);
+    }
+
+    /**
+     * Appends an offence and returns once it is on disk.
+     */
+    public void append(String personID, LocalDate day, int point) throws IOException {
+        awaitDurable(enqueue(personID, day, point));
+    }
+
+    /**
+     * Appends an offence without waiting for it to reach the disk, and returns the batch to pass
+     * to awaitDurable(). Offences of a batch job are enqueued first and waited for once.
+     */
+    public long enqueue(String personID, LocalDate day, int point) throws IOException {
+        lock.lock();
+        try {
+            checkSnapshot();
+            byte[] id = personID.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer event = ByteBuffer.allocate(1 + 8 + 2 + id.length + 4 + 1);
+            event.put(OFFENCE).putLong(++sequence).putShort((short) id.length).put(id).putInt((int) day.toEpochDay()).put((byte) point);
+
+            writableLedger(personID).add((int) day.toEpochDay(), point);
+            return enqueue(event.array());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //size of an offence in the log, with the log's own length and checksum
+    static int offenceBytes(String personID) {
+        return 8 + 1 + 8 + 2 + personID.getBytes(StandardCharsets.UTF_8).length + 4 + 1;
+    }
+
+    public void awaitDurable(long batch) throws IOException {
+        WriteAheadLog current;
+        long base;
+        lock.lock();
+        try {
+            current = log;
+            base = batchBase;
+        } finally {
+            lock.unlock();
+        }
+        //a batch of a retired log was made durable before that log was closed
+        if (batch > base) current.awaitDurable(batch - base);
+    }
+
+    /**
+     * Moves the offences of oldID over to newID, e.g. after an ID change.
+     */
+    public void rename(String oldID, String newID) throws IOException {
+        long batch;
+        lock.lock();
+        try {
+            checkSnapshot();
+            if (!ledgers.containsKey(oldID)) return; //no offences to move
+
+            byte[] from = oldID.getBytes(StandardCharsets.UTF_8);
+            byte[] to = newID.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer event = ByteBuffer.allocate(1 + 8 + 2 + from.length + 2 + to.length);
+            event.put(RENAME).putLong(++sequence).putShort((short) from.length).put(from).putShort((short) to.length).put(to);
+
+            moveLedger(oldID, newID);
+            batch = enqueue(event.array());
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(batch);
+    }
+
+    //called holding the lock, hands a snapshot to the background thread once enough events have gathered
+    private long enqueue(byte[] event) throws IOException {
+        lastBatch = batchBase + log.enqueue(event);
+        long batch = lastBatch;
+        if (sequence - rotatedSequence >= snapshotEvery) {
+            HashMap<String, DemeritLedger> copy = rotate();
+            long upTo = rotatedSequence;
+            SNAPSHOTTER.execute(() -> {
+                try {
+                    finishSnapshot(copy, upTo);
+                } catch (IOException e) {
+                    failSnapshot(e);
+                }
+            });
+        }
+        return batch;
+    }
+
+    //called holding the lock: a ledger the snapshot in progress still refers to is copied before it changes
+    private DemeritLedger writableLedger(String personID) {
+        DemeritLedger ledger = ledgers.get(personID);
+        if (ledger == null || (writing != null && writing.get(personID) == ledger)) {
+            ledger = ledger == null ? new DemeritLedger() : ledger.copy();
+            ledgers.put(personID, ledger);
+        }
+        return ledger;
+    }
+
+    private void moveLedger(String oldID, String newID) {
+        DemeritLedger moved = ledgers.remove(oldID);
+        if (moved == null) return;
+        if (writing != null) moved = moved.copy(); //may be in the snapshot in progress under oldID
+
+        if (!ledgers.containsKey(newID)) {
+            ledgers.put(newID, moved);
+        } else {
+            addAll(moved, writableLedger(newID));
+        }
+    }
+
+    private static void addAll(DemeritLedger from, DemeritLedger to) {
+        for (int i = 0; i < from.size(); i++) {
+            to.add(from.dayAt(i), from.pointsAt(i));
+        }
+    }
+
+    /**
+     * Adds the person's offences to the ledger, oldest first.
+     */
+    public void copyInto(String personID, DemeritLedger ledger) {
+        lock.lock();
+        try {
+            DemeritLedger offences = ledgers.get(personID);
+            if (offences != null) addAll(offences, ledger);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The person's offences in date order, as a copy.
+     */
+    public DemeritLedger ledgerOf(String personID) {
+        DemeritLedger ledger = new DemeritLedger();
+        copyInto(personID, ledger);
+        return ledger;
+    }
+
+    /**
+     * The points of the person's logged offences on or after the given epoch day.
+     */
+    public int sumSince(String personID, int fromEpochDay) {
+        lock.lock();
+        try {
+            DemeritLedger offences = ledgers.get(personID);
+            return offences == null ? 0 : offences.sumSince(fromEpochDay);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The person's Demerit History line with their logged offences added, in the format Person
+     * writes it, for copying a person.txt into something that does not read this log. The line is
+     * returned as it is if nothing is logged for the person.
+     */
+    public String historyOf(String personID, String demeritHistory) {
+        DemeritLedger logged = ledgerOf(personID);
+        if (logged.size() == 0) return demeritHistory;
+
+        DemeritLedger ledger = Person.parseDemeritHistory(demeritHistory);
+        addAll(logged, ledger);
+        return Person.buildDemeritHistory(ledger);
+    }
+
+    //replays one event read back from the log
+    private void apply(byte[] payload) {
+        ByteBuffer event = ByteBuffer.wrap(payload);
+        byte type = event.get();
+        long eventSequence = event.getLong();
+        if (eventSequence <= snapshotSequence) return; //already in the snapshot
+        sequence = Math.max(sequence, eventSequence);
+
+        String personID = readString(event);
+        if (type == OFFENCE) {
+            int day = event.getInt();
+            int point = event.get();
+            ledgers.computeIfAbsent(personID, key -> new DemeritLedger()).add(day, point);
+        } else if (type == RENAME) {
+            moveLedger(personID, readString(event));
+        }
+    }
+
+    private static String readString(ByteBuffer event) {
+        byte[] bytes = new byte[event.getShort()];
+        event.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes every ledger to the snapshot file and deletes the log it replaces. Waits for a
+     * snapshot already in progress first; appends go on meanwhile, into a new log.
+     */
+    public void snapshot() throws IOException {
+        HashMap<String, DemeritLedger> copy;
+        long upTo;
+        lock.lock();
+        try {
+            copy = rotate();
+            upTo = rotatedSequence;
+        } finally {
+            lock.unlock();
+        }
+        finishSnapshot(copy, upTo);
+    }
+
+    /**
+     * Waits until the snapshot in progress, if any, is written.
+     */
+    void awaitSnapshot() throws IOException {
+        lock.lock();
+        try {
+            while (writing != null) snapshotWritten.awaitUninterruptibly();
+            checkSnapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkSnapshot() throws IOException {
+        if (snapshotFailure != null) throw new IOException("Demerit snapshot failed", snapshotFailure);
+    }
+
+    //called holding the lock: closes the log as the retired one, starts a new one and returns the ledgers to snapshot
+    private HashMap<String, DemeritLedger> rotate() throws IOException {
+        awaitSnapshot(); //there is only one retired log
+        try {
+            log.awaitDurable(lastBatch - batchBase);
+            log.close();
+            Files.move(logFile, retiredFile, StandardCopyOption.ATOMIC_MOVE);
+            log = newLog();
+        } catch (IOException e) {
+            snapshotFailure = e; //the log may be closed, appends must not wait on it
+            throw e;
+        }
+        batchBase = lastBatch;
+        rotatedSequence = sequence;
+
+        writing = new HashMap<>(ledgers); //references only, writableLedger() copies a ledger before it changes
+        return writing;
+    }
+
+    private void finishSnapshot(Map<String, DemeritLedger> copy, long upTo) throws IOException {
+        writeSnapshot(copy, upTo);
+        Files.delete(retiredFile); //every event in it is in the snapshot now
+
+        lock.lock();
+        try {
+            snapshotSequence = upTo;
+            writing = null;
+            snapshotWritten.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //the retired log stays, so the next open replays it; appends fail from here on as they would if the log failed
+    private void failSnapshot(IOException e) {
+        lock.lock();
+        try {
+            snapshotFailure = e;
+            writing = null;
+            snapshotWritten.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeSnapshot(Map<String, DemeritLedger> copy, long upTo) throws IOException {
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream file = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(upTo);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, DemeritLedger> person : copy.entrySet()) {
+                DemeritLedger ledger = person.getValue();
+                out.writeUTF(person.getKey());
+                out.writeInt(ledger.size());
+                for (int i = 0; i < ledger.size(); i++) {
+                    out.writeInt(ledger.dayAt(i));
+                    out.writeByte(ledger.pointsAt(i));
+                }
+            }
+            out.flush();
+            file.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array()); //not part of its own checksum
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadSnapshot() throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 64 * 1024), crc))) {
+            int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != SNAPSHOT_VERSION) {
+                throw new IOException("Not a demerit snapshot: " + snapshotFile);
+            }
+            long lastSequence = in.readLong();
+            if (version == 1) in.readInt(); //day it was taken
+            int persons = in.readInt();
+            for (int p = 0; p < persons; p++) {
+                String personID = in.readUTF();
+                if (version == 1) in.readInt(); //window total, recomputed from the events
+                int events = in.readInt();
+                DemeritLedger ledger = new DemeritLedger();
+                for (int i = 0; i < events; i++) {
+                    ledger.add(in.readInt(), in.readByte());
+                }
+                ledgers.put(personID, ledger);
+            }
+
+            long expected = crc.getValue();
+            if (in.readLong() != expected) throw new IOException("Corrupt demerit snapshot: " + snapshotFile);
+            sequence = lastSequence;
+            snapshotSequence = lastSequence;
+        } catch (EOFException e) {
+            throw new IOException("Truncated demerit snapshot: " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * Events appended since the last snapshot, which the next open would replay.
+     */
+    public long getEventsSinceSnapshot() {
+        lock.lock();
+        try {
+            return sequence - snapshotSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Events that were replayed from the log when it was opened.
+     */
+    public int getReplayed() {
+        return replayed;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return ledgers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot if anything was appended since the last one, so the next open replays
+     * nothing, and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            try {
+                awaitSnapshot();
+                if (sequence > snapshotSequence) snapshot();
+            } finally {
+                log.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A person's demerit offences, kept sorted by day in primitive arrays: the epoch day of each
+ * offence, its points and a running prefix sum of the points. Several offences on the same day
+ * are kept as separate entries, in the order they were added.
+ *
+ * A window sum is two binary searches and a subtraction, so it costs O(log n) however long the
+ * history is. Each entry takes 9 bytes instead of a boxed LocalDate/Integer pair in a HashMap.
+ */
+public class DemeritLedger {
+    private int[] days = new int[4];
+    private byte[] points = new byte[4];
+    private int[] prefix = new int[5]; //prefix[i] = sum of points[0 .. i-1]
+    private int size;
+
+    public void add(LocalDate date, int point) {
+        add((int) date.toEpochDay(), point);
+    }
+
+    public void add(int epochDay, int point) {
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size * 2);
+            points = Arrays.copyOf(points, size * 2);
+            prefix = Arrays.copyOf(prefix, size * 2 + 1);
+        }
+
+        //offences usually arrive in date order, so this is normally an append
+        int at = upperBound(epochDay);
+        System.arraycopy(days, at, days, at + 1, size - at);
+        System.arraycopy(points, at, points, at + 1, size - at);
+        days[at] = epochDay;
+        points[at] = (byte) point;
+        size++;
+
+        for (int i = at; i < size; i++) {
+            prefix[i + 1] = prefix[i] + points[i];
+        }
+    }
+
+    /**
+     * An independent copy, for adding offences without changing this ledger until they are stored.
+     */
+    public DemeritLedger copy() {
+        DemeritLedger copy = new DemeritLedger();
+        copy.days = Arrays.copyOf(days, days.length);
+        copy.points = Arrays.copyOf(points, points.length);
+        copy.prefix = Arrays.copyOf(prefix, prefix.length);
+        copy.size = size;
+        return copy;
+    }
+
+    //first index whose day is >= epochDay
+    private int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < epochDay) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    //first index whose day is > epochDay
+    private int upperBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] <= epochDay) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Points of every offence on or after the given day.
+     */
+    public int sumSince(int fromEpochDay) {
+        return prefix[size] - prefix[lowerBound(fromEpochDay)];
+    }
+
+    /**
+     * Points of every offence between the two days, both included.
+     */
+    public int sumBetween(int fromEpochDay, int toEpochDay) {
+        if (toEpochDay < fromEpochDay) return 0;
+        return prefix[upperBound(toEpochDay)] - prefix[lowerBound(fromEpochDay)];
+    }
+
+    public int total() {
+        return prefix[size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dayAt(int i) {
+        return days[i];
+    }
+
+    public LocalDate dateAt(int i) {
+        return LocalDate.ofEpochDay(days[i]);
+    }
+
+    public int pointsAt(int i) {
+        return points[i];
+    }
+}
@@ -0,0 +1,200 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Single-pass validators for personID, address and date that do not allocate. They accept any
+ * CharSequence, so they can run over a StringBuilder or, through ByteSlice, straight over bytes
+ * in a buffer without building Strings first.
+ *
+ * The results match the original String-based checks exactly, including the corner cases of
+ * String.split (trailing empty parts are dropped) and Integer.parseInt (an optional sign, and any
+ * Unicode decimal digit).
+ */
+public class FieldValidator {
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private FieldValidator() {
+    }
+
+    public static boolean checkID(CharSequence id) {
+        int len = id.length();
+        if (len != 10) {
+            return false; //10 chars long
+        }
+
+        //first two char is a number between 2-9
+        char firstChar = id.charAt(0);
+        char secondChar = id.charAt(1);
+        if (firstChar < '2' || firstChar > '9') return false;
+        if (secondChar < '2' || secondChar > '9') return false;
+
+        int specialChars = 0;
+        for (int i = 1; i < 9; i++) {
+            if (!Character.isLetterOrDigit(id.charAt(i))) {
+                specialChars++;
+            }
+        }
+
+        if (specialChars < 2) { //at least 2 special chars between 2-9
+            return false;
+        }
+
+        //last two chars are uppercase
+        return Character.isUpperCase(id.charAt(len - 2)) && Character.isUpperCase(id.charAt(len - 1));
+    }
+
+    /**
+     * Street Number | Street | City | State | Country, with a numeric street number and Victoria as the state.
+     */
+    public static boolean checkAddress(CharSequence address) {
+        int len = address.length();
+        int parts = 0; //parts found so far
+        int lastNonEmpty = -1;
+        int numberEnd = -1; //end of the street number part
+        int stateStart = -1, stateEnd = -1;
+        boolean separatorFound = false;
+
+        int start = 0;
+        int i = 0;
+        while (i <= len) {
+            boolean separator = i + 2 < len && address.charAt(i) == ' ' && address.charAt(i + 1) == '|' && address.charAt(i + 2) == ' ';
+            if (!separator && i < len) {
+                i++;
+                continue;
+            }
+
+            //a part ends at a separator or at the end of the text
+            if (parts == 0) numberEnd = i;
+            if (parts == 3) {
+                stateStart = start;
+                stateEnd = i;
+            }
+            if (i > start) lastNonEmpty = parts;
+            parts++;
+
+            if (!separator) break;
+            separatorFound = true;
+            i += 3;
+            start = i;
+        }
+
+        //String.split drops trailing empty parts, unless there was no separator at all
+        int partCount = separatorFound ? lastNonEmpty + 1 : 1;
+        if (partCount != 5) return false; //make sure format is correct
+        if (!regionEquals(address, stateStart, stateEnd, "Victoria")) return false; //make sure state is Victoria
+        return parseInt(address, 0, numberEnd) != NOT_A_NUMBER; //make sure street number is a number
+    }
+
+    /**
+     * DD-MM-YYYY with a day of 1-31, a month of 1-12 and a year of 1-2025.
+     */
+    public static boolean checkDate(CharSequence date) {
+        int len = date.length();
+        int dashes = 0;
+        int lastNonEmpty = -1;
+        int firstDash = -1, secondDash = -1, thirdDash = len;
+
+        int start = 0;
+        for (int i = 0; i <= len; i++) {
+            if (i < len && date.charAt(i) != '-') continue;
+
+            if (i > start) lastNonEmpty = dashes;
+            if (i < len) {
+                if (dashes == 0) firstDash = i;
+                else if (dashes == 1) secondDash = i;
+                else if (dashes == 2) thirdDash = i;
+                dashes++;
+            }
+            start = i + 1;
+        }
+
+        //String.split drops trailing empty parts, unless there was no dash at all
+        int partCount = dashes == 0 ? 1 : lastNonEmpty + 1;
+        if (partCount != 3) return false; //make sure format is correct
+
+        long day = parseInt(date, 0, firstDash);
+        long month = parseInt(date, firstDash + 1, secondDash);
+        long year = parseInt(date, secondDash + 1, thirdDash);
+        if (day == NOT_A_NUMBER || month == NOT_A_NUMBER || year == NOT_A_NUMBER) {
+            return false; //make sure it's a number
+        }
+
+        if (month < 1 || month > 12) return false; //make sure it's a valid month
+        if (day < 1 || day > 31) return false; //make sure it's a valid day
+        return year >= 1 && year <= 2025; //make sure it's a valid year
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    //same rules as Integer.parseInt, returns NOT_A_NUMBER where it would throw
+    private static long parseInt(CharSequence text, int start, int end) {
+        if (start >= end) return NOT_A_NUMBER;
+
+        boolean negative = false;
+        int i = start;
+        char first = text.charAt(i);
+        if (first < '0') {
+            if (first == '-') negative = true;
+            else if (first != '+') return NOT_A_NUMBER;
+            if (end - start == 1) return NOT_A_NUMBER; //a sign on its own
+            i++;
+        }
+
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0) return NOT_A_NUMBER;
+            result = result * 10 + digit;
+            if (result > limit) return NOT_A_NUMBER; //overflow
+        }
+
+        return negative ? -result : result;
+    }
+
+    /**
+     * A reusable CharSequence view over bytes in a buffer, reading each byte as one ISO-8859-1
+     * character. For ASCII text (which is what person.txt holds for valid records) the validators
+     * give the same answers as on the decoded String. Point it at the next field with set() instead
+     * of creating a new view.
+     */
+    public static class ByteSlice implements CharSequence {
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        public ByteSlice set(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteSlice().set(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) chars[i] = charAt(i);
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A PersonIndex saved to disk: every personID with the offset of its record, plus how much of
+ * person.txt the index covered when it was saved. The file is memory-mapped when it is opened and
+ * searched in place, so opening it costs a checksum pass rather than building millions of map
+ * entries.
+ *
+ * Layout: a header, then one 16-byte entry per ID (hash, offset of the key, offset of the record)
+ * sorted by hash, then the keys as a length and UTF-8 bytes, and a CRC32 of everything before it.
+ */
+public class IndexSnapshot {
+    private static final int MAGIC = 0x50494458; //"PIDX"
+    private static final int VERSION = 1;
+    private static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer map;
+    private final long coveredLength;
+    private final long tailChecksum;
+    private final String fileKey;
+    private final int tombstones;
+    private final int count;
+    private final int entriesStart;
+    private final int keysStart;
+
+    private IndexSnapshot(ByteBuffer map) throws IOException {
+        this.map = map;
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) throw new IOException("Not an index snapshot");
+        coveredLength = map.getLong(8);
+        tailChecksum = map.getLong(16);
+        tombstones = map.getInt(24);
+        count = map.getInt(28);
+        byte[] key = new byte[map.getShort(32) & 0xFFFF];
+        map.get(34, key);
+        fileKey = new String(key, StandardCharsets.UTF_8);
+        entriesStart = 34 + key.length;
+        keysStart = entriesStart + count * ENTRY_BYTES;
+    }
+
+    /**
+     * Maps the snapshot and checks its checksum. Throws an IOException if the file is damaged or
+     * not a snapshot.
+     */
+    public static IndexSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 42) throw new IOException("Truncated index snapshot: " + file);
+            if (size > Integer.MAX_VALUE) throw new IOException("Index snapshot too large to map: " + file);
+
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); //stays valid after the channel closes
+            CRC32 crc = new CRC32();
+            crc.update(map.duplicate().limit((int) size - 8));
+            if (map.getLong((int) size - 8) != crc.getValue()) throw new IOException("Corrupt index snapshot: " + file);
+            return new IndexSnapshot(map);
+        }
+    }
+
+    /**
+     * Hash the entries are sorted by, over the UTF-8 bytes of the ID.
+     */
+    static int hash(byte[] key) {
+        int hash = 0;
+        for (byte b : key) hash = 31 * hash + (b & 0xFF);
+        return hash ^ (hash >>> 16);
+    }
+
+    public long getCoveredLength() {
+        return coveredLength;
+    }
+
+    public long getTailChecksum() {
+        return tailChecksum;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    public int getTombstones() {
+        return tombstones;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    int hashAt(int i) {
+        return map.getInt(entriesStart + i * ENTRY_BYTES);
+    }
+
+    byte[] keyAt(int i) {
+        int at = keysStart + map.getInt(entriesStart + i * ENTRY_BYTES + 4);
+        byte[] key = new byte[map.getShort(at) & 0xFFFF];
+        map.get(at + 2, key);
+        return key;
+    }
+
+    long recordOffsetAt(int i) {
+        return map.getLong(entriesStart + i * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Offset of the record saved for the ID, or -1 if the snapshot has no such ID.
+     */
+    public long offsetOf(String personID) {
+        byte[] key = personID.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+
+        //first entry with this hash, then every entry sharing it
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hashAt(middle) < hash) low = middle + 1;
+            else high = middle;
+        }
+        for (int i = low; i < count && hashAt(i) == hash; i++) {
+            if (keyEquals(i, key)) return recordOffsetAt(i);
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int i, byte[] key) {
+        int at = keysStart + map.getInt(entriesStart + i * ENTRY_BYTES + 4);
+        if ((map.getShort(at) & 0xFFFF) != key.length) return false;
+        for (int j = 0; j < key.length; j++) {
+            if (map.get(at + 2 + j) != key[j]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Receives the entries of a snapshot being written, in hash order.
+     */
+    interface Visitor {
+        void visit(byte[] key, int hash, long recordOffset) throws IOException;
+    }
+
+    /**
+     * Calls the visitor for every entry in hash order. Called several times while writing and must
+     * give the same entries every time.
+     */
+    interface Entries {
+        void forEach(Visitor visitor) throws IOException;
+    }
+
+    /**
+     * Writes a snapshot to a temporary file, forces it to disk and renames it over file.
+     */
+    static void write(Path file, long coveredLength, long tailChecksum, String fileKey, int tombstones, Entries entries) throws IOException {
+        int[] count = new int[1];
+        long[] keyBytes = new long[1];
+        entries.forEach((key, hash, recordOffset) -> {
+            count[0]++;
+            keyBytes[0] += 2 + key.length;
+        });
+        byte[] fileKeyBytes = fileKey.getBytes(StandardCharsets.UTF_8);
+        if (34L + fileKeyBytes.length + (long) count[0] * ENTRY_BYTES + keyBytes[0] + 8 > Integer.MAX_VALUE) {
+            throw new IOException("Index too large for a snapshot: " + count[0] + " entries");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream raw = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 256 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(coveredLength);
+            out.writeLong(tailChecksum);
+            out.writeInt(tombstones);
+            out.writeInt(count[0]);
+            out.writeShort(fileKeyBytes.length);
+            out.write(fileKeyBytes);
+
+            int[] keyOffset = new int[1];
+            entries.forEach((key, hash, recordOffset) -> {
+                out.writeInt(hash);
+                out.writeInt(keyOffset[0]);
+                out.writeLong(recordOffset);
+                keyOffset[0] += 2 + key.length;
+            });
+            entries.forEach((key, hash, recordOffset) -> {
+                out.writeShort(key.length);
+                out.write(key);
+            });
+
+            out.flush();
+            raw.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array()); //not part of its own checksum
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Positions of the hashes in ascending hash order, for putting entries in the order write() needs.
+     */
+    static int[] hashOrder(int[] hashes) {
+        long[] packed = new long[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            packed[i] = ((long) hashes[i] << 32) | i; //the hash decides, the position only breaks ties
+        }
+        Arrays.sort(packed);
+
+        int[] order = new int[hashes.length];
+        for (int i = 0; i < packed.length; i++) order[i] = (int) packed[i];
+        return order;
+    }
+}
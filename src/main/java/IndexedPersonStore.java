@@ -0,0 +1,363 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Puts secondary indexes over another store: hash indexes on last name and city (the third part of
+ * the address) and a sorted index on birth date, so searches do not have to read the whole file.
+ *
+ * The indexes are built with one pass over the store the first time they are queried, and from then
+ * on kept up to date by every insert and update made through this store. Writes made to the
+ * underlying store directly are not seen. The underlying store is written outside the index lock,
+ * so searches do not wait for its fsync; the indexes are updated once the write has returned.
+ *
+ * Person's searches use the store installed with Person.useStore(new IndexedPersonStore(store)).
+ */
+public class IndexedPersonStore implements PersonStore {
+    //what a person is indexed under, so an update can find the keys to remove
+    private static class Keys {
+        final String lastName;
+        final String city;
+        final int birthKey;
+
+        Keys(PersonRecord record) {
+            lastName = record.lastName;
+            city = cityOf(record.address);
+            birthKey = birthKeyOf(record.birthDate);
+        }
+    }
+
+    private final PersonStore store;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean built;
+    private final HashMap<String, Keys> indexed = new HashMap<>(); //personID -> keys
+    private final HashMap<String, HashSet<String>> byLastName = new HashMap<>();
+    private final HashMap<String, HashSet<String>> byCity = new HashMap<>();
+    private final TreeMap<Integer, HashSet<String>> byBirthDate = new TreeMap<>(); //yyyymmdd -> IDs
+    private long builds; //lets insertAll see that the indexes were built while it was writing
+    private final HashMap<String, Integer> writing = new HashMap<>(); //personID -> calls writing it to the store right now
+    private final HashSet<String> overlapped = new HashSet<>(); //written by two calls at once, so which came last is not known
+
+    public IndexedPersonStore(PersonStore store) {
+        this.store = store;
+    }
+
+    public PersonStore getStore() {
+        return store;
+    }
+
+    //City in "Street Number | Street | City | State | Country", or null if there is no third part
+    static String cityOf(String address) {
+        String[] parts = address.split(" \\| ");
+        return parts.length > 2 ? parts[2] : null;
+    }
+
+    //DD-MM-YYYY as the number YYYYMMDD, which sorts in date order, or -1 if it cannot be read
+    static int birthKeyOf(String birthDate) {
+        String[] parts = birthDate.split("-");
+        if (parts.length != 3) return -1;
+        try {
+            return Integer.parseInt(parts[2]) * 10000 + Integer.parseInt(parts[1]) * 100 + Integer.parseInt(parts[0]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void build() throws IOException {
+        if (built) return;
+        store.forEach(this::add);
+        built = true;
+        builds++;
+    }
+
+    private void add(PersonRecord record) {
+        remove(record.personID); //a record seen twice replaces the first copy
+        Keys keys = new Keys(record);
+        indexed.put(record.personID, keys);
+        byLastName.computeIfAbsent(keys.lastName, name -> new HashSet<>()).add(record.personID);
+        if (keys.city != null) byCity.computeIfAbsent(keys.city, city -> new HashSet<>()).add(record.personID);
+        if (keys.birthKey >= 0) byBirthDate.computeIfAbsent(keys.birthKey, day -> new HashSet<>()).add(record.personID);
+    }
+
+    private void remove(String personID) {
+        Keys keys = indexed.remove(personID);
+        if (keys == null) return;
+
+        removeFrom(byLastName, keys.lastName, personID);
+        if (keys.city != null) removeFrom(byCity, keys.city, personID);
+        if (keys.birthKey >= 0) removeFrom(byBirthDate, keys.birthKey, personID);
+    }
+
+    private static <K> void removeFrom(Map<K, HashSet<String>> index, K key, String personID) {
+        HashSet<String> ids = index.get(key);
+        if (ids == null) return;
+        ids.remove(personID);
+        if (ids.isEmpty()) index.remove(key); //do not keep empty buckets for names that are gone
+    }
+
+    /**
+     * IDs of everyone with exactly this last name.
+     */
+    public List<String> findByLastName(String lastName) throws IOException {
+        lock.lock();
+        try {
+            build();
+            return copy(byLastName.get(lastName));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * IDs of everyone whose address is in exactly this city.
+     */
+    public List<String> findByCity(String city) throws IOException {
+        lock.lock();
+        try {
+            build();
+            return copy(byCity.get(city));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * IDs of everyone born in the years fromYear to toYear, both included, oldest first.
+     */
+    public List<String> findByBirthYear(int fromYear, int toYear) throws IOException {
+        lock.lock();
+        try {
+            build();
+            List<String> ids = new ArrayList<>();
+            if (toYear < fromYear) return ids;
+
+            for (Set<String> born : byBirthDate.subMap(fromYear * 10000, true, toYear * 10000 + 9999, true).values()) {
+                ids.addAll(born);
+            }
+            return ids;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static List<String> copy(Set<String> ids) {
+        return ids == null ? new ArrayList<>() : new ArrayList<>(ids);
+    }
+
+    @Override
+    public boolean contains(String personID) {
+        return store.contains(personID);
+    }
+
+    @Override
+    public PersonRecord find(String personID) throws IOException {
+        return store.find(personID);
+    }
+
+    //marks the IDs as being written, before the store is called
+    private void begin(Collection<String> personIDs) {
+        lock.lock();
+        try {
+            for (String personID : personIDs) {
+                if (writing.merge(personID, 1, Integer::sum) > 1) overlapped.add(personID);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indexes what a store call wrote: written maps a personID to the record now stored under it,
+     * or to null if it has none any more; IDs the call did not change are left out. written is null
+     * if the call failed partway. IDs written by two calls at once are read back from the store by
+     * the call that ends last, as the order the store applied them in is not known here.
+     */
+    private void end(Collection<String> personIDs, Map<String, PersonRecord> written) {
+        lock.lock();
+        try {
+            List<String> readBack = new ArrayList<>();
+            for (String personID : personIDs) {
+                int left = writing.merge(personID, -1, Integer::sum);
+                if (left == 0) writing.remove(personID);
+                if (left > 0 && overlapped.contains(personID)) continue; //the last call writing it reads it back
+
+                boolean unknown = overlapped.remove(personID) || written == null;
+                if (!built) continue; //the first query reads the store anyway
+                if (unknown) {
+                    readBack.add(personID);
+                } else if (written.containsKey(personID)) {
+                    remove(personID);
+                    PersonRecord record = written.get(personID);
+                    if (record != null) add(record);
+                }
+            }
+
+            for (String personID : readBack) {
+                remove(personID);
+                PersonRecord record = store.find(personID);
+                if (record != null) add(record);
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            clearIndexes(); //rebuilt on the next query
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(PersonRecord record) throws IOException {
+        List<String> personIDs = List.of(record.personID);
+        begin(personIDs);
+        Map<String, PersonRecord> written = null;
+        try {
+            boolean inserted = store.insert(record);
+            written = inserted ? Map.of(record.personID, record) : Map.of();
+            return inserted;
+        } finally {
+            end(personIDs, written);
+        }
+    }
+
+    @Override
+    public int insertAll(Iterator<PersonRecord> records) throws IOException {
+        boolean indexing;
+        long buildsBefore;
+        lock.lock();
+        try {
+            indexing = built;
+            buildsBefore = builds;
+        } finally {
+            lock.unlock();
+        }
+
+        //with the indexes built, the records are kept to be indexed once they are written
+        List<PersonRecord> passed = new ArrayList<>();
+        Iterator<PersonRecord> keeping = !indexing ? records : new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public PersonRecord next() {
+                PersonRecord record = records.next();
+                passed.add(record);
+                return record;
+            }
+        };
+
+        boolean stored = false;
+        try {
+            int inserted = store.insertAll(keeping);
+            stored = true;
+            return inserted;
+        } finally {
+            lock.lock();
+            try {
+                if (!stored || builds != buildsBefore) {
+                    clearIndexes(); //not known what was written, or built from part of it; rebuild on the next query
+                } else if (built) {
+                    //the store skips IDs it already has, so those are not indexed either
+                    for (PersonRecord record : passed) {
+                        if (!indexed.containsKey(record.personID)) add(record);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean update(String personID, PersonRecord record) throws IOException {
+        List<String> personIDs = personID.equals(record.personID) ? List.of(personID) : List.of(personID, record.personID);
+        begin(personIDs);
+        Map<String, PersonRecord> written = null;
+        try {
+            boolean updated = store.update(personID, record);
+            written = new HashMap<>();
+            if (updated) {
+                written.put(personID, null);
+                written.put(record.personID, record); //replaces the null if the ID stays the same
+            }
+            return updated;
+        } finally {
+            end(personIDs, written);
+        }
+    }
+
+    @Override
+    public Set<String> updateAll(Map<String, PersonRecord> records) throws IOException {
+        Set<String> personIDs = new HashSet<>(records.keySet());
+        for (PersonRecord record : records.values()) {
+            personIDs.add(record.personID);
+        }
+        begin(personIDs);
+        Map<String, PersonRecord> written = null;
+        try {
+            Set<String> updated = store.updateAll(records);
+            written = new HashMap<>();
+            for (String personID : updated) {
+                written.putIfAbsent(personID, null);
+                PersonRecord record = records.get(personID);
+                written.put(record.personID, record);
+            }
+            return updated;
+        } finally {
+            end(personIDs, written);
+        }
+    }
+
+    @Override
+    public boolean delete(String personID) throws IOException {
+        List<String> personIDs = List.of(personID);
+        begin(personIDs);
+        Map<String, PersonRecord> written = null;
+        try {
+            boolean deleted = store.delete(personID);
+            written = new HashMap<>();
+            if (deleted) written.put(personID, null);
+            return deleted;
+        } finally {
+            end(personIDs, written);
+        }
+    }
+
+    private void clearIndexes() {
+        built = false;
+        indexed.clear();
+        byLastName.clear();
+        byCity.clear();
+        byBirthDate.clear();
+    }
+
+    @Override
+    public void forEach(Consumer<PersonRecord> action) throws IOException {
+        store.forEach(action);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        store.sync();
+    }
+
+    @Override
+    public void saveIndex() throws IOException {
+        store.saveIndex();
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for PersonServer. It adds a set of persons, then starts every request at once, each
+ * on its own virtual thread, as a mix of lookups (4 in 5) and demerits. At most `connections` of
+ * them are on the wire at any time; the rest are parked, which costs a small heap object each and
+ * no platform thread. The platform thread count of this JVM is reported to show that it stays flat.
+ *
+ *   LoadTestClient [baseURI] [requests] [connections] [persons]
+ */
+public class LoadTestClient {
+    /**
+     * What a run saw. Latencies are in microseconds, from the request being sent to its response.
+     */
+    public static class Result {
+        private int ok;
+        private int rejected; //503 from the server's backpressure
+        private int failed; //any other status, or no response at all
+        private long elapsedNanos;
+        private int peakPlatformThreads;
+        private long[] latencies;
+
+        public int getOk() {
+            return ok;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getPeakPlatformThreads() {
+            return peakPlatformThreads;
+        }
+
+        /**
+         * Latency at the given percentile (0-100) of the requests that got a response.
+         */
+        public long percentile(double percentile) {
+            if (latencies.length == 0) return 0;
+            int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+            return latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%d ok, %d rejected, %d failed in %.2f s (%.0f requests/s)%n"
+                            + "latency us: p50 %d, p99 %d, p99.9 %d, max %d%n"
+                            + "peak platform threads: %d",
+                    ok, rejected, failed, seconds, (ok + rejected + failed) / seconds,
+                    percentile(50), percentile(99), percentile(99.9), percentile(100), peakPlatformThreads);
+        }
+    }
+
+    private static String id(int number) {
+        return String.format("5%d@#%04dAB", number % 8 + 2, number % 10000);
+    }
+
+    private static String path(int number) {
+        return "/persons/" + URLEncoder.encode(id(number), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds `persons` persons (already existing ones are fine) and then sends `requests` requests
+     * against them over at most `connections` connections.
+     */
+    public static Result run(URI base, int requests, int connections, int persons) throws IOException, InterruptedException {
+        if (persons < 1 || persons > 10000) throw new IllegalArgumentException("persons must be between 1 and 10000");
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(executor)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+            for (int p = 0; p < persons; p++) {
+                String body = "{\"personID\": " + PersonServer.quote(id(p))
+                        + ", \"firstName\": \"Load\", \"lastName\": \"Test\""
+                        + ", \"address\": \"32 | Highland Street | Melbourne | Victoria | Australia\""
+                        + ", \"birthDate\": \"15-11-1990\"}";
+                client.send(HttpRequest.newBuilder(base.resolve("/persons")).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+            }
+
+            threads.resetPeakThreadCount();
+            Semaphore wire = new Semaphore(connections);
+            AtomicInteger ok = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            long[] latencies = new long[requests];
+            AtomicInteger answered = new AtomicInteger();
+
+            long start = System.nanoTime();
+            try (ExecutorService load = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int r = 0; r < requests; r++) {
+                    load.submit(() -> {
+                        HttpRequest request = request(base, ThreadLocalRandom.current().nextInt(persons));
+                        wire.acquireUninterruptibly();
+                        try {
+                            long sent = System.nanoTime();
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            latencies[answered.getAndIncrement()] = (System.nanoTime() - sent) / 1000;
+                            if (status == 503) rejected.incrementAndGet();
+                            else if (status < 400) ok.incrementAndGet();
+                            else failed.incrementAndGet();
+                        } catch (IOException | InterruptedException e) {
+                            failed.incrementAndGet();
+                        } finally {
+                            wire.release();
+                        }
+                    });
+                }
+            } //waits for every request
+
+            Result result = new Result();
+            result.elapsedNanos = System.nanoTime() - start;
+            result.ok = ok.get();
+            result.rejected = rejected.get();
+            result.failed = failed.get();
+            result.peakPlatformThreads = threads.getPeakThreadCount();
+            result.latencies = Arrays.copyOf(latencies, answered.get());
+            Arrays.sort(result.latencies);
+            return result;
+        }
+    }
+
+    private static HttpRequest request(URI base, int person) {
+        if (ThreadLocalRandom.current().nextInt(5) > 0) {
+            return HttpRequest.newBuilder(base.resolve(path(person))).GET().build();
+        }
+        //a day in the last year, so most go through and some people get suspended along the way
+        String day = String.format("%02d-%02d-2025", 1 + ThreadLocalRandom.current().nextInt(28), 1 + ThreadLocalRandom.current().nextInt(12));
+        String body = "{\"point\": " + (1 + ThreadLocalRandom.current().nextInt(6)) + ", \"offenseDate\": \"" + day + "\"}";
+        return HttpRequest.newBuilder(base.resolve(path(person) + "/demerits")).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        URI base = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int persons = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        System.out.println(run(base, requests, connections, persons));
+    }
+}
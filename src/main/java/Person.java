@@ -1,22 +1,36 @@
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 public class Person {
+    private static PersonStore store; //where persons are kept, person.txt unless another store is set
+    private static DemeritEventLog demeritLog; //where new offences go instead of the history line, if set
+    private static final PersonCache cache = new PersonCache(PersonCache.DEFAULT_CAPACITY); //persons loaded by findById
+    private static final PersonMetrics metrics = new PersonMetrics(); //disabled unless turned on
+
+    static {
+        //saves the store's index on a normal exit, so the next start does not rescan person.txt
+        Runtime.getRuntime().addShutdownHook(new Thread(Person::closeStore, "person-store-close"));
+    }
+
     private String personID;
     private String firstName;
     private String lastName;
     private String address;
     private String birthDate;
-    private HashMap<LocalDate, Integer> demeritPoints = new HashMap<>(); // A variable that holds the demerit points with the offense day
+    private DemeritLedger demeritPoints = new DemeritLedger(); // A variable that holds the demerit points with the offense day, sorted by day
     private boolean isSuspended;
 
     public Person(String personID, String firstName, String lastName, String address, String birthDate) {
@@ -27,86 +41,248 @@ public class Person {
         this.birthDate = birthDate;
     }
 
-    private boolean checkDate(String date) {
-        String[] dateParts = date.split("-");
-        if (dateParts.length != 3) return false; //make sure format is correct
+    public String getPersonID() {
+        return personID;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getBirthDate() {
+        return birthDate;
+    }
+
+    public boolean isSuspended() {
+        return isSuspended;
+    }
+
+    void setSuspended(boolean suspended) {
+        isSuspended = suspended;
+    }
+
+    private static synchronized PersonStore getStore() throws IOException {
+        if (store == null) {
+            store = new IndexedPersonStore(new TextPersonStore(Paths.get("person.txt"))); //the searches need the indexes
+        }
 
+        return store;
+    }
+
+    /**
+     * Switches every Person to the given storage engine, e.g. a BinaryPersonStore or a store in a temp directory.
+     * Passing null goes back to person.txt in the working directory. The store used until now is
+     * closed, which saves its index.
+     */
+    public static synchronized void useStore(PersonStore personStore) {
+        if (store != personStore) closeStore();
+        store = personStore;
+        cache.clear(); //cached persons belong to the previous store
+    }
+
+    /**
+     * Closes the store in use, e.g. when the application stops; the next call that needs a store
+     * opens person.txt in the working directory again. Also run by a shutdown hook.
+     */
+    public static synchronized void closeStore() {
+        if (store == null) return;
         try {
-            int day = Integer.parseInt(dateParts[0]);
-            int month = Integer.parseInt(dateParts[1]);
-            int year = Integer.parseInt(dateParts[2]);
+            store.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        store = null;
+        cache.clear();
+    }
 
-            if (month < 1 || month > 12) {
-                return false; //make sure it's a valid month
-            }
+    /**
+     * Appends new offences to the given event log instead of rewriting the person's Demerit History
+     * line, and counts the logged offences together with the line when a person is loaded. Passing
+     * null goes back to rewriting the line; offences already logged then stay in the log only.
+     */
+    public static synchronized void useDemeritLog(DemeritEventLog log) {
+        demeritLog = log;
+        cache.clear(); //cached persons were loaded with the previous log's offences
+    }
 
-            if (day < 1 || day > 31) {
-                return false; //make sure it's a valid day
-            }
+    private static synchronized DemeritEventLog getDemeritLog() {
+        return demeritLog;
+    }
 
-            if (year < 1 || year > 2025) {
-                return false; //make sure it's a valid year
-            }
-        } catch (NumberFormatException e) {
-            return false; //make sure it's a number
+    /**
+     * The cache behind findById, for its hit/miss counts and to change its capacity.
+     */
+    public static PersonCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Counters and latencies of addPerson, updatePersonalDetails and addDemeritPoints.
+     */
+    public static PersonMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Whether the store holds a person with this ID.
+     */
+    public static boolean exists(String personID) {
+        try {
+            return getStore().contains(personID);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return false;
         }
+    }
 
-        return true;
+    /**
+     * Loads a person from the store, with the demerit points of their full history, or returns null
+     * if there is no such person. Recently used persons are served from the cache, and every caller
+     * gets the same object for the same ID while it stays cached.
+     */
+    public static Person findById(String personID) {
+        Person person = cache.get(personID);
+        if (person != null) {
+            return person;
+        }
+
+        PersonRecord record;
+        try {
+            record = getStore().find(personID);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+        if (record == null) {
+            return null; //person is not in the file
+        }
+
+        person = new Person(record.personID, record.firstName, record.lastName, record.address, record.birthDate);
+        person.demeritPoints = parseDemeritHistory(record.demeritHistory);
+        DemeritEventLog events = getDemeritLog();
+        if (events != null) {
+            events.copyInto(record.personID, person.demeritPoints); //offences logged since the line was written
+        }
+        person.updateSuspension();
+        return cache.putIfAbsent(person);
+    }
+
+    //the installed store, if it keeps the indexes the searches need; it is never wrapped behind the caller's back
+    private static synchronized IndexedPersonStore getIndexedStore() throws IOException {
+        PersonStore personStore = getStore();
+        if (!(personStore instanceof IndexedPersonStore)) {
+            throw new IllegalStateException("Searching needs an IndexedPersonStore, install one with Person.useStore(new IndexedPersonStore(store))");
+        }
+
+        return (IndexedPersonStore) personStore;
     }
 
-    private boolean checkID(String id) {
-        int len = id.length();
-        if (len != 10) {
-            return false; //10 chars long
+    /**
+     * Everyone with exactly this last name. This and the other searches need an IndexedPersonStore,
+     * which is what the default store is; if useStore installed any other store they throw an
+     * IllegalStateException.
+     */
+    public static List<Person> findByLastName(String lastName) {
+        try {
+            return findAll(getIndexedStore().findByLastName(lastName));
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return new ArrayList<>();
         }
+    }
 
-        //first two char is a number between 2-9
-        char firstChar = id.charAt(0);
-        char secondChar = id.charAt(1);
+    /**
+     * Everyone whose address is in this city, e.g. "Melbourne".
+     */
+    public static List<Person> findByCity(String city) {
+        try {
+            return findAll(getIndexedStore().findByCity(city));
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-        if (!Character.isDigit(firstChar) || firstChar < '2' || firstChar > '9') return false;
-        if (!Character.isDigit(secondChar)|| secondChar < '2' || secondChar > '9') return false;
+    /**
+     * Everyone born between fromYear and toYear, both included, oldest first.
+     */
+    public static List<Person> findByBirthYear(int fromYear, int toYear) {
+        try {
+            return findAll(getIndexedStore().findByBirthYear(fromYear, toYear));
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-        int specialChars = 0;
-        for (int i = 1; i < 9; i++) {
-            if (!Character.isLetterOrDigit(id.charAt(i))) {
-                specialChars++;
+    private static List<Person> findAll(List<String> personIDs) {
+        List<Person> persons = new ArrayList<>(personIDs.size());
+        for (String personID : personIDs) {
+            Person person = findById(personID);
+            if (person != null) {
+                persons.add(person);
             }
         }
+        return persons;
+    }
 
-        if (specialChars < 2) { //at least 2 special chars between 2-9
-            return false;
+    //reads back the "points on yyyy-MM-dd, ..." line written by buildDemeritHistory, skipping anything malformed
+    static DemeritLedger parseDemeritHistory(String history) {
+        DemeritLedger ledger = new DemeritLedger();
+        if (history == null || history.isEmpty()) {
+            return ledger;
         }
 
-        if (!Character.isUpperCase(id.charAt(len - 2)) || !Character.isUpperCase(id.charAt(len - 1)))
-            return false; //last two chars are uppercase
+        for (String entry : history.split(", ")) {
+            int on = entry.indexOf(" on ");
+            if (on < 0) continue;
+            try {
+                int point = Integer.parseInt(entry.substring(0, on).trim());
+                LocalDate date = LocalDate.parse(entry.substring(on + 4).trim());
+                ledger.add(date, point);
+            } catch (RuntimeException e) {
+                //not an offence this class wrote, leave it out
+            }
+        }
 
-        return true;
+        return ledger;
     }
 
-    private boolean checkAddress(String addressToCheck) {
-        String[] parts = addressToCheck.split(" \\| ");
-        if (parts.length != 5) return false; //make sure format is correct
-        if (!parts[3].equals("Victoria")) return false; //make sure state is Victoria
-        try {
-            Integer.parseInt(parts[0]);
-        } catch (NumberFormatException e) {
-            return false;
-        } //make sure street number is a number
+    //the checks are single-pass and allocation-free, see FieldValidator
+    static boolean checkDate(String date) {
+        return FieldValidator.checkDate(date);
+    }
 
-        return true;
+    static boolean checkID(String id) {
+        return FieldValidator.checkID(id);
+    }
+
+    static boolean checkAddress(String addressToCheck) {
+        return FieldValidator.checkAddress(addressToCheck);
     }
 
     private String buildDemeritHistory() {
+        return buildDemeritHistory(demeritPoints);
+    }
+
+    static String buildDemeritHistory(DemeritLedger demeritPoints) {
         StringBuilder demeritHistory = new StringBuilder();
         boolean first = true;
 
-        for (HashMap.Entry<LocalDate, Integer> entry : demeritPoints.entrySet()) {
+        for (int i = 0; i < demeritPoints.size(); i++) { //oldest offence first
             if (!first) {
                 demeritHistory.append(", ");//if more than one, add comma
             }
 
-            demeritHistory.append(entry.getValue()).append(" on ").append(entry.getKey());//'points' on 'date'
+            demeritHistory.append(demeritPoints.pointsAt(i)).append(" on ").append(demeritPoints.dateAt(i));//'points' on 'date'
             first = false;
         }
 
@@ -125,64 +301,59 @@ public class Person {
         //the information should be inserted into a TXT file, and the addPerson function should return true.
         //Otherwise, the information should not be inserted into the TXT file, and the addPerson function should return false.
 
-        //check duplicate
-        Path filePath = Paths.get("person.txt");
+        PersonMetrics.Trace trace = metrics.trace(PersonMetrics.Operation.ADD_PERSON);
 
+        //check duplicate
+        trace.begin(PersonMetrics.Phase.READ);
         try {
-            List<String> lines = Files.readAllLines(filePath);
-
-            for (int i = 0; i < lines.size(); ) {
-                if (i + 1 >= lines.size()) break;
-
-                String idLine = lines.get(i + 1);
-                String id = idLine.replace("ID: ", "");
-
-                if (personID.equals(id)) {//if theres already id in file, return true
-                    return true;
-                }
-
-                i += 6;
+            if (getStore().contains(personID)) { //if theres already id in file, return true
+                return trace.finish(true);
             }
-
         } catch (IOException e) {
             System.out.println(e.getMessage());
+            trace.ioError();
+            return trace.finish(false);
         }
 
         //condition 1
+        trace.begin(PersonMetrics.Phase.VALIDATE);
         boolean idCheck = checkID(personID);
         if (!idCheck) {
-            return false;
+            trace.reject(PersonMetrics.Rule.ID_FORMAT);
+            return trace.finish(false);
         }
 
         //condition 2
         boolean addressCheck = checkAddress(address);
         if (!addressCheck) {
-            return false;
+            trace.reject(PersonMetrics.Rule.ADDRESS_FORMAT);
+            return trace.finish(false);
         }
 
         //condition 3
         boolean dateCheck = checkDate(birthDate);
         if (!dateCheck) {
-            return false;
+            trace.reject(PersonMetrics.Rule.BIRTH_DATE_FORMAT);
+            return trace.finish(false);
         }
 
+        trace.begin(PersonMetrics.Phase.PARSE);
         String demeritHistory = buildDemeritHistory();
 
-        String content =
-                "Name: " + firstName + " " + lastName +
-                        "\nID: " + personID +
-                        "\nAddress: " + address +
-                        "\nBirth Date: " + birthDate +
-                        "\nDemerit History: " + demeritHistory + "\n\n";
+        PersonRecord record = new PersonRecord(personID, firstName, lastName, address, birthDate, demeritHistory);
 
+        trace.begin(PersonMetrics.Phase.WRITE);
         try {
-            Files.writeString(filePath, content, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            boolean inserted = getStore().insert(record);
+            if (inserted) {
+                cache.written(personID, this);
+            }
+            return trace.finish(inserted);
         } catch (IOException e) {
             System.out.println(e.getMessage());
-            return false;
+            trace.ioError();
+            return trace.finish(false);
         }
-
-        return true;
     }
 
     public boolean updatePersonalDetails(String updatedId, String updatedFirstName, String updatedLastName, String updatedAddress, String updatedBirthDate) {
@@ -196,118 +367,147 @@ public class Person {
         //the Person's information should be updated in the TXT file with the updated information, and the updatePersonalDetails function should return true.
         //Otherwise, the Person's updated information should not be updated in the TXT file, and the updatePersonalDetails function should return false.
 
-        try {
-            Path filePath = Paths.get("person.txt");
-
-            List<String> lines = Files.readAllLines(filePath); //read from file
-            ArrayList<String> newLines = new ArrayList<>(lines); //create duplicate to override later
-
-            if (updatedBirthDate != null && (
-                            updatedId != null ||
-                            updatedFirstName != null ||
-                            updatedLastName != null ||
-                            updatedAddress != null)) return false;
+        PersonMetrics.Trace trace = metrics.trace(PersonMetrics.Operation.UPDATE_PERSONAL_DETAILS);
 
-            boolean birthDateChanged = false;
-
-            for (int i = 0; i < lines.size(); ) {
-                if (i + 1 >= lines.size()) break;
-
-                String idLine = lines.get(i + 1);
+        if (updatedBirthDate != null && (
+                        updatedId != null ||
+                        updatedFirstName != null ||
+                        updatedLastName != null ||
+                        updatedAddress != null)) {
+            trace.reject(PersonMetrics.Rule.BIRTH_DATE_WITH_OTHER_CHANGES);
+            return trace.finish(false);
+        }
 
-                String id = idLine.replace("ID: ", "");
+        try {
+            PersonStore personStore = getStore();
+            trace.begin(PersonMetrics.Phase.READ);
+            PersonRecord record = personStore.find(personID); //find the record without scanning the file
+            if (record == null) {
+                trace.reject(PersonMetrics.Rule.NOT_IN_FILE);
+                return trace.finish(false); //person is not in the file
+            }
 
-                if (id.equals(personID)) {
-                    //check birthdate
-                    if (updatedBirthDate != null) {
-                        //check birthdate format
-                        boolean dateCheck = checkDate(updatedBirthDate);
-                        if (dateCheck) {
-                            birthDateChanged = true;
-                            birthDate = updatedBirthDate;
-                            newLines.set(i + 3, "\nBirth Date: " + birthDate);
+            String oldID = personID;
+
+            //check birthdate
+            if (updatedBirthDate != null) {
+                //check birthdate format
+                trace.begin(PersonMetrics.Phase.VALIDATE);
+                boolean dateCheck = checkDate(updatedBirthDate);
+                if (dateCheck) {
+                    birthDate = updatedBirthDate;
+                    record.birthDate = birthDate;
+                    return write(personStore, oldID, record, trace); //skip if birthdate is updated
+                }
+                trace.reject(PersonMetrics.Rule.BIRTH_DATE_FORMAT);
+            }
 
-                            i += 6;
-                            continue; //skip if birthdate is updated
+            //check id
+            if (updatedId != null) {
+                trace.begin(PersonMetrics.Phase.VALIDATE);
+                int firstChar = personID.charAt(0);
+                if (firstChar % 2 != 0) { //cant be even number
+                    boolean idCheck = checkID(updatedId);
+                    if (!idCheck) {
+                        trace.reject(PersonMetrics.Rule.ID_FORMAT);
+                    } else {
+                        trace.begin(PersonMetrics.Phase.READ);
+                        idCheck = !personStore.contains(updatedId);
+                        if (!idCheck) {
+                            trace.reject(PersonMetrics.Rule.ID_TAKEN);
                         }
                     }
+                    if (idCheck) {
+                        personID = updatedId;
+                        record.personID = personID;
+                    }
+                } else {
+                    trace.reject(PersonMetrics.Rule.EVEN_ID_CHANGE);
+                }
+            }
 
-                    if (!birthDateChanged) {
-                        //check id
-                        if (updatedId != null) {
-                            int firstChar = personID.charAt(0);
-                            if (firstChar % 2 != 0) { //cant be even number
-                                boolean idCheck = checkID(updatedId);
-                                if (idCheck) {
-                                    personID = updatedId;
-                                    newLines.set(i + 1, "\nID: " + personID);
-                                }
-                            }
-                        }
-
-                        //check address
-                        if (updatedAddress != null) {
-                            int birthYear = Integer.parseInt(birthDate.split("-")[2]);
-                            int currentYear = Year.now().getValue();
-
-                            if ((currentYear - birthYear) >= 18) { //older than 18
-                                boolean addressCheck = checkAddress(updatedAddress);
-                                if (addressCheck) {
-                                    address = updatedAddress;
-                                    newLines.set(i + 2, "\nAddress: " + address);
-                                }
-                            } else {
-                                return false;
-                            }
-                        }
-
-                        //check name
-                        if (updatedFirstName != null || updatedLastName != null) {
-                            if (updatedFirstName != null) {
-                                firstName = updatedFirstName;
-                            }
-
-                            if (updatedLastName != null) {
-                                lastName = updatedLastName;
-                            }
-
-                            newLines.set(i, "Name: " + firstName + " " + lastName);
-                        }
+            //check address
+            if (updatedAddress != null) {
+                trace.begin(PersonMetrics.Phase.VALIDATE);
+                int birthYear = Integer.parseInt(birthDate.split("-")[2]);
+                int currentYear = Year.now().getValue();
+
+                if ((currentYear - birthYear) >= 18) { //older than 18
+                    boolean addressCheck = checkAddress(updatedAddress);
+                    if (addressCheck) {
+                        address = updatedAddress;
+                        record.address = address;
+                    } else {
+                        trace.reject(PersonMetrics.Rule.ADDRESS_FORMAT);
                     }
+                } else {
+                    trace.reject(PersonMetrics.Rule.UNDER_18_ADDRESS_CHANGE);
+                    return trace.finish(false);
+                }
+            }
 
-                    break;
+            //check name
+            if (updatedFirstName != null || updatedLastName != null) {
+                if (updatedFirstName != null) {
+                    firstName = updatedFirstName;
                 }
 
-                i += 6; //including the empty line
-            }
+                if (updatedLastName != null) {
+                    lastName = updatedLastName;
+                }
 
-            try {
-                Files.write(filePath, newLines, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-            } catch (IOException e) {
-                System.out.println(e.getMessage());
-                return false;
+                record.firstName = firstName;
+                record.lastName = lastName;
             }
+
+            return write(personStore, oldID, record, trace);
         } catch (IOException e) {
             System.out.println(e.getMessage());
-            return false;
+            trace.ioError();
+            return trace.finish(false);
         }
-
-        return true;
     }
-    
-private int getDemeritPoints() {
-        int totalPoints = 0;
-        LocalDate now = LocalDate.now();
-        LocalDate twoYearsAgo = now.minusYears(2); //get points from 2 years ago to now
 
-        for (HashMap.Entry<LocalDate, Integer> entry : demeritPoints.entrySet()) {
-            LocalDate offenseDate = entry.getKey();
-            if (!offenseDate.isBefore(twoYearsAgo)) { //if entry in hashmap is before two years ago, add to total points
-                totalPoints += entry.getValue();
+    //writes the record over the one stored under oldID and keeps the cache in step, returns whether the write happened
+    private boolean write(PersonStore personStore, String oldID, PersonRecord record, PersonMetrics.Trace trace) throws IOException {
+        trace.begin(PersonMetrics.Phase.WRITE);
+        boolean updated = personStore.update(oldID, record);
+        if (updated) {
+            DemeritEventLog events = getDemeritLog();
+            if (events != null && !oldID.equals(personID)) {
+                events.rename(oldID, personID); //logged offences follow the new ID
             }
+            cache.written(oldID, this);
         }
+        return trace.finish(updated);
+    }
 
-        return totalPoints;
+    //suspends the person if the points of the last two years are over the limit for their age
+    private void updateSuspension() {
+        int birthYear = Integer.parseInt(birthDate.split("-")[2]);
+        int currentYear = Year.now().getValue();
+        int age = currentYear - birthYear;
+
+        int totalPoints = getDemeritPoints(); //get points in the last 2 years only
+
+        //check age, and suspend depending on requirement
+        if (age < 21 && totalPoints > 6) {
+            isSuspended = true;
+        } else if (age >= 21 && totalPoints > 12) {
+            isSuspended = true;
+        }
+    }
+
+    //every offence on record, oldest first
+    DemeritLedger getDemeritLedger() {
+        return demeritPoints;
+    }
+
+    private int getDemeritPoints() {
+        LocalDate now = LocalDate.now();
+        LocalDate twoYearsAgo = now.minusYears(2); //get points from 2 years ago to now
+
+        return demeritPoints.sumSince((int) twoYearsAgo.toEpochDay()); //binary search instead of a walk over every offence
     }
 
     public String addDemeritPoints(int point, String offenseDate) {
@@ -319,67 +519,224 @@ private int getDemeritPoints() {
         //Instruction: If the above conditions and any other conditions you may want to consider are met, the demerit points for a person should be inserted into the TXT file,
         //and the addDemerit Points function should return "Success". Otherwise, the addDemeritPoints function should return "Failed".
 
+        PersonMetrics.Trace trace = metrics.trace(PersonMetrics.Operation.ADD_DEMERIT_POINTS);
+
+        LocalDate date = parseOffense(point, offenseDate, trace);
+        if (date == null) {
+            return trace.finish("Failed");
+        }
+
+        //add to a copy of the ledger, a second offence on the same day is kept as well
+        DemeritLedger ledger = demeritPoints.copy(); //the person keeps the old history until the new one is stored
+        ledger.add(date, point);
+
+        try {
+            PersonStore personStore = getStore();
+            DemeritEventLog events = getDemeritLog();
+            if (events != null) {
+                if (!appendOffense(personStore, events, date, point, trace)) {
+                    return trace.finish("Failed");
+                }
+            } else {
+                trace.begin(PersonMetrics.Phase.READ);
+                PersonRecord record = personStore.find(personID);
+                if (record == null) {
+                    trace.reject(PersonMetrics.Rule.NOT_IN_FILE);
+                    return trace.finish("Failed"); //person is not in the file
+                }
+
+                //write a new history line to update change
+                trace.begin(PersonMetrics.Phase.PARSE);
+                record.demeritHistory = buildDemeritHistory(ledger);
+                trace.begin(PersonMetrics.Phase.WRITE);
+                if (!personStore.update(personID, record)) {
+                    return trace.finish("Failed");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            trace.ioError();
+            return trace.finish("Failed");
+        }
+
+        //stored, so the person and the cache can see it
+        demeritPoints = ledger;
+        updateSuspension();
+        cache.written(personID, this);
+        return trace.finish("Success");
+    }
+
+    //adds the offence as one event in the log, without reading or rewriting the person's record
+    private boolean appendOffense(PersonStore personStore, DemeritEventLog events, LocalDate date, int point, PersonMetrics.Trace trace) throws IOException {
+        trace.begin(PersonMetrics.Phase.READ);
+        if (!personStore.contains(personID)) {
+            trace.reject(PersonMetrics.Rule.NOT_IN_FILE);
+            return false; //person is not in the file
+        }
+
+        trace.begin(PersonMetrics.Phase.WRITE);
+        events.append(personID, date, point);
+        return true;
+    }
+
+    //checks conditions 1 and 2 of addDemeritPoints, returns the offence date or null if the offence is not valid
+    private static LocalDate parseOffense(int point, String offenseDate, PersonMetrics.Trace trace) {
         //condition 1
+        trace.begin(PersonMetrics.Phase.VALIDATE);
         boolean dateCheck = checkDate(offenseDate);
         if (!dateCheck) {
-            return "Failed";
+            trace.reject(PersonMetrics.Rule.OFFENSE_DATE_FORMAT);
+            return null;
         }
 
         //condition 2
         if (point < 1 || point > 6) {
-            return "Failed";
+            trace.reject(PersonMetrics.Rule.POINT_RANGE);
+            return null;
         }
 
         //convert date in string form to LocalDate object
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-        LocalDate date = LocalDate.parse(offenseDate, formatter);
-        //add to hash map
-        demeritPoints.put(date, point);
+        trace.begin(PersonMetrics.Phase.PARSE);
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+            return LocalDate.parse(offenseDate, formatter);
+        } catch (DateTimeParseException e) {
+            trace.reject(PersonMetrics.Rule.OFFENSE_DATE_FORMAT);
+            return null; //passes checkDate but is not DD-MM-YYYY, e.g. 1-01-2020
+        } finally {
+            trace.end();
+        }
+    }
 
-        int birthYear = Integer.parseInt(birthDate.split("-")[2]);
-        int currentYear = Year.now().getValue();
-        int age = currentYear - birthYear;
+    /**
+     * One offence of a batch for addDemeritPointsBatch.
+     */
+    public static class DemeritEntry {
+        private final String personID;
+        private final int point;
+        private final String offenseDate;
+
+        public DemeritEntry(String personID, int point, String offenseDate) {
+            this.personID = personID;
+            this.point = point;
+            this.offenseDate = offenseDate;
+        }
 
-        int totalPoints = getDemeritPoints(); //get points in the last 2 years only
+        public String getPersonID() {
+            return personID;
+        }
 
-        //check age, and suspend depending on requirement
-        if (age < 21 && totalPoints > 6) {
-            isSuspended = true;
-        } else if (age >= 21 && totalPoints > 12) {
-            isSuspended = true;
+        public int getPoint() {
+            return point;
         }
 
-        Path filePath = Paths.get("person.txt");
+        public String getOffenseDate() {
+            return offenseDate;
+        }
+    }
 
-        try {
-            List<String> lines = Files.readAllLines(filePath);
-            ArrayList<String> newLines = new ArrayList<>(lines);
+    /**
+     * Adds a batch of offences, each checked the same way as addDemeritPoints. Offences are grouped
+     * by person, so every person's history and suspension status is updated once, and all changed
+     * records are written to the store in one pass. Returns "Success" or "Failed" for every entry,
+     * in the order of the entries.
+     *
+     * The new histories are built on copies; a person loaded by findById only gets their new
+     * offences once the store has confirmed the write. Callers that share persons between threads
+     * go through PersonRegistry.addDemeritPointsBatch instead, which holds the persons' locks.
+     */
+    public static List<String> addDemeritPointsBatch(List<DemeritEntry> entries) {
+        return addDemeritPointsBatch(entries, Person::findById);
+    }
 
-            for (int i = 0; i < lines.size(); ) {
-                if (i + 1 >= lines.size()) break;
+    //the batch with persons looked up through loader, which must return the object other callers see for the ID
+    static List<String> addDemeritPointsBatch(List<DemeritEntry> entries, Function<String, Person> loader) {
+        PersonMetrics.Trace trace = metrics.trace(PersonMetrics.Operation.ADD_DEMERIT_POINTS_BATCH);
+        String[] results = new String[entries.size()];
+        Arrays.fill(results, "Failed");
+
+        //valid entries grouped by person, in the order each person first appears
+        LinkedHashMap<String, List<Integer>> byPerson = new LinkedHashMap<>();
+        LocalDate[] dates = new LocalDate[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            DemeritEntry entry = entries.get(i);
+            dates[i] = parseOffense(entry.point, entry.offenseDate, trace);
+            if (dates[i] != null) {
+                byPerson.computeIfAbsent(entry.personID, personID -> new ArrayList<>()).add(i);
+            }
+        }
 
-                String idLine = lines.get(i + 1);
-                String id = idLine.replace("ID: ", "");
+        DemeritEventLog events = getDemeritLog();
+        LinkedHashMap<String, PersonRecord> records = new LinkedHashMap<>();
+        HashMap<String, Person> persons = new HashMap<>();
+        HashMap<String, DemeritLedger> ledgers = new HashMap<>(); //new histories, published once they are stored
+        for (Map.Entry<String, List<Integer>> group : byPerson.entrySet()) {
+            trace.begin(PersonMetrics.Phase.READ);
+            Person person = loader.apply(group.getKey()); //with the full history, so suspension counts every offence
+            if (person == null) {
+                trace.reject(PersonMetrics.Rule.NOT_IN_FILE);
+                continue; //person is not in the file
+            }
 
-                if (personID.equals(id)) {
-                    //write a new history line to update change
-                    newLines.set(i + 4, "Demerit History: " + buildDemeritHistory());
-                    break;
-                }
+            DemeritLedger ledger = person.demeritPoints.copy(); //others may be reading the person meanwhile
+            for (int i : group.getValue()) {
+                ledger.add(dates[i], entries.get(i).point);
+            }
 
-                i += 6;
+            if (events == null) { //the log only needs the new offences, not a new history line
+                trace.begin(PersonMetrics.Phase.PARSE);
+                records.put(person.personID, new PersonRecord(person.personID, person.firstName, person.lastName,
+                        person.address, person.birthDate, buildDemeritHistory(ledger)));
             }
+            persons.put(person.personID, person);
+            ledgers.put(person.personID, ledger);
+        }
 
-            try {
-                Files.write(filePath, newLines, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-            } catch (IOException e) {
-                System.out.println(e.getMessage());
-                return "Failed";
+        trace.begin(PersonMetrics.Phase.WRITE);
+        Set<String> updated;
+        try {
+            if (events != null) {
+                updated = appendOffenses(events, persons.keySet(), byPerson, entries, dates, trace);
+            } else {
+                updated = records.isEmpty() ? new HashSet<>() : getStore().updateAll(records);
             }
         } catch (IOException e) {
             System.out.println(e.getMessage());
+            trace.ioError();
+            updated = new HashSet<>();
+        }
+
+        for (Map.Entry<String, Person> written : persons.entrySet()) {
+            String personID = written.getKey();
+            if (!updated.contains(personID)) {
+                continue; //the person keeps the history that is still in the file
+            }
+
+            Person person = written.getValue();
+            person.demeritPoints = ledgers.get(personID);
+            person.updateSuspension();
+            cache.written(personID, person);
+            for (int i : byPerson.get(personID)) {
+                results[i] = "Success";
+            }
         }
 
-        return "Success";
+        trace.finish(!Arrays.asList(results).contains("Failed"));
+        return Arrays.asList(results);
+    }
+
+    //enqueues the offences of every person and waits once for all of them to be on disk
+    private static Set<String> appendOffenses(DemeritEventLog events, Set<String> personIDs, Map<String, List<Integer>> byPerson,
+                                              List<DemeritEntry> entries, LocalDate[] dates, PersonMetrics.Trace trace) throws IOException {
+        long batch = 0;
+        for (String personID : personIDs) {
+            for (int i : byPerson.get(personID)) {
+                batch = events.enqueue(personID, dates[i], entries.get(i).point);
+            }
+        }
+        if (batch > 0) {
+            events.awaitDurable(batch);
+        }
+        return new HashSet<>(personIDs);
     }
 }
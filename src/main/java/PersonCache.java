@@ -0,0 +1,193 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of Person objects loaded by Person.findById, keyed by personID. When it is full
+ * the least recently used person is dropped. Counts hits and misses so the hit rate can be checked
+ * against the working set.
+ */
+public class PersonCache {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    //access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Person> persons = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Person> eldest) {
+            if (size() <= capacity) return false;
+            evictions++;
+            return true;
+        }
+    };
+
+    public PersonCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.capacity = capacity;
+    }
+
+    /**
+     * The cached person, or null on a miss.
+     */
+    public Person get(String personID) {
+        lock.lock();
+        try {
+            Person person = persons.get(personID);
+            if (person == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return person;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a freshly loaded person, unless another thread loaded the same ID first. Returns the
+     * person that ended up in the cache, so every caller shares one object.
+     */
+    public Person putIfAbsent(Person person) {
+        lock.lock();
+        try {
+            Person cached = persons.putIfAbsent(person.getPersonID(), person);
+            return cached == null ? person : cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called after a person has been written under oldID. If the writer is the cached object its
+     * state is current and it stays cached (under its new ID if that changed), otherwise the cached
+     * copy is out of date and is dropped.
+     */
+    public void written(String oldID, Person writer) {
+        lock.lock();
+        try {
+            Person cached = persons.get(oldID);
+            if (cached == null) return;
+
+            if (cached != writer) {
+                persons.remove(oldID);
+            } else if (!oldID.equals(writer.getPersonID())) {
+                persons.remove(oldID);
+                persons.put(writer.getPersonID(), writer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String personID) {
+        lock.lock();
+        try {
+            persons.remove(personID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            persons.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setCapacity(int capacity) {
+        lock.lock();
+        try {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+            this.capacity = capacity;
+
+            //drop the least recently used persons until the cache fits
+            Iterator<Map.Entry<String, Person>> eldest = persons.entrySet().iterator();
+            while (persons.size() > capacity) {
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        lock.lock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return persons.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMisses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEvictions() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hits as a fraction of all lookups, 0 before the first lookup.
+     */
+    public double hitRate() {
+        lock.lock();
+        try {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resetStats() {
+        lock.lock();
+        try {
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,466 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Primary-key index over person.txt: maps every personID to the byte offset of its "Name:" line.
+ * It is built with one pass over the file and then kept up to date by the writers, so duplicate
+ * checks and record lookups no longer rescan the whole file.
+ *
+ * Records whose Name line was overwritten with the tombstone marker ("Void: ") are replaced
+ * copies and are only counted. If the same ID is found twice, the later copy wins and the
+ * earlier offset is reported through staleOffsets() so the store can tombstone it.
+ *
+ * save() writes the index to person.txt.idx as an IndexSnapshot. open() maps that snapshot instead
+ * of parsing the file, and only scans the records appended after it was saved. IDs are then looked
+ * up in the snapshot until they are first used, at which point the record's marker is checked,
+ * since the snapshot cannot know about deletes made after it was saved, and the ID moves into the
+ * in-memory map.
+ *
+ * After open() the counts are estimates. They start from the snapshot's and add what the tail scan
+ * finds, so a tombstone written into the covered part after the save, by a run that then stopped
+ * without saving again, is not in tombstones(). The record it replaced stays in size() until its ID
+ * is looked up. Both only delay a compaction, and build(), which every compaction ends with,
+ * counts them exactly again. Logging each tombstone to a second file would keep them exact, at the
+ * price of a second fsync per update.
+ */
+public class PersonIndex {
+    private static final int TAIL_CHECK_BYTES = 4096; //end of the covered part, checksummed to notice a replaced file
+
+    private final Path filePath;
+    private final Path snapshotFile;
+    private final HashMap<String, Long> offsets = new HashMap<>(); //personID -> offset of the record
+    private final List<Long> staleOffsets = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private IndexSnapshot snapshot; //IDs not looked up yet, null after a full build
+    private final HashSet<String> removed = new HashSet<>(); //snapshot IDs that are gone
+    private FileChannel reader; //for checking snapshot records, opened on first use
+    private int size;
+    private int tombstones;
+    private long scanStart;
+    private boolean dirty = true; //changed since the snapshot was saved
+
+    public PersonIndex(Path filePath) {
+        this.filePath = filePath;
+        this.snapshotFile = Paths.get(filePath + ".idx");
+    }
+
+    public void build() throws IOException {
+        lock.lock();
+        try {
+            reset();
+            scan(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the saved snapshot if it still matches the file and scans only the records appended
+     * after it. Builds the index from the whole file if there is no usable snapshot.
+     */
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            reset();
+
+            IndexSnapshot saved = loadSnapshot();
+            if (saved == null) {
+                scan(0);
+                return;
+            }
+
+            snapshot = saved;
+            size = saved.size();
+            tombstones = saved.getTombstones();
+            scan(saved.getCoveredLength());
+            dirty = !offsets.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //the snapshot, or null if there is none or it does not belong to the file as it is now
+    private IndexSnapshot loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile) || !Files.exists(filePath)) return null;
+
+        IndexSnapshot saved;
+        try {
+            saved = IndexSnapshot.open(snapshotFile);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+
+        if (saved.getCoveredLength() > Files.size(filePath)) return null; //file was cut short or replaced
+        if (!saved.getFileKey().equals(fileKey())) return null; //file was replaced by a rename
+        if (saved.getTailChecksum() != tailChecksum(saved.getCoveredLength())) return null;
+        return saved;
+    }
+
+    private void reset() throws IOException {
+        offsets.clear();
+        staleOffsets.clear();
+        removed.clear();
+        snapshot = null;
+        if (reader != null) reader.close();
+        reader = null; //the file may have been replaced
+        size = 0;
+        tombstones = 0;
+        dirty = true;
+    }
+
+    private void scan(long start) throws IOException {
+        scanStart = start;
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return; //nothing written yet
+        }
+
+        try (InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(start)), 64 * 1024)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            long position = start;
+            long lineStart = start;
+            long nameOffset = -1; //offset of the last "Name:" line seen
+
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+
+                String text = line.toString(StandardCharsets.UTF_8);
+                if (text.startsWith("Name: ")) {
+                    nameOffset = lineStart;
+                } else if (text.startsWith(TextPersonStore.TOMBSTONE)) {
+                    tombstones++;
+                    nameOffset = -1;
+                } else if (text.startsWith("ID: ") && nameOffset >= 0) {
+                    //a record is a Name line followed by its ID line
+                    String id = text.substring(4);
+                    long earlier = storedOffsetOf(id);
+                    offsets.put(id, nameOffset);
+                    if (earlier >= 0) staleOffsets.add(earlier); //update appended but the old copy was not tombstoned
+                    else size++;
+                    nameOffset = -1;
+                } else {
+                    nameOffset = -1;
+                }
+
+                line.reset();
+                lineStart = position;
+            }
+        }
+    }
+
+    //offset without checking snapshot records, which a scan of the tail does not need
+    private long storedOffsetOf(String id) {
+        Long offset = offsets.get(id);
+        if (offset != null) return offset;
+        if (snapshot == null || removed.contains(id)) return -1;
+        return snapshot.offsetOf(id);
+    }
+
+    private long lookup(String id) throws IOException {
+        Long offset = offsets.get(id);
+        if (offset != null) return offset;
+        if (snapshot == null || removed.contains(id)) return -1;
+
+        long saved = snapshot.offsetOf(id);
+        if (saved < 0) return -1;
+        if (!isLive(saved)) {
+            removed.add(id); //deleted after the snapshot was saved
+            size--;
+            return -1;
+        }
+        offsets.put(id, saved);
+        return saved;
+    }
+
+    private boolean isLive(long offset) throws IOException {
+        if (reader == null) reader = FileChannel.open(filePath, StandardOpenOption.READ);
+        ByteBuffer marker = ByteBuffer.allocate(6);
+        while (marker.hasRemaining()) {
+            if (reader.read(marker, offset + marker.position()) < 0) return false;
+        }
+        return new String(marker.array(), StandardCharsets.UTF_8).equals("Name: ");
+    }
+
+    public boolean contains(String id) {
+        lock.lock();
+        try {
+            return offsetOf(id) >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the byte offset of the record, or -1 if the ID is not in the file.
+     */
+    public long offsetOf(String id) {
+        lock.lock();
+        try {
+            try {
+                return lookup(id);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+                return -1;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String id, long offset) {
+        lock.lock();
+        try {
+            if (offsetOf(id) < 0) size++;
+            offsets.put(id, offset);
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.lock();
+        try {
+            if (offsetOf(id) < 0) return;
+            offsets.remove(id);
+            if (snapshot != null) removed.add(id); //the snapshot may still hold it
+            size--;
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Offsets of older copies of an ID found by the last build() or open().
+     */
+    public List<Long> staleOffsets() {
+        lock.lock();
+        try {
+            return new ArrayList<>(staleOffsets);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tombstones in the file; after open() from a snapshot, possibly fewer, see the class comment.
+     */
+    public int tombstones() {
+        lock.lock();
+        try {
+            return tombstones;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addTombstone() {
+        lock.lock();
+        try {
+            tombstones++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Live records in the file; after open() from a snapshot, possibly more, see the class comment.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Where the last build() or open() started reading the file: 0 for a full build, the end of
+     * the snapshot when one was used.
+     */
+    public long scanStart() {
+        lock.lock();
+        try {
+            return scanStart;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saves the index next to the file if it changed since it was last saved or opened. Everything
+     * written to the file so far must be in the index.
+     */
+    public void save() throws IOException {
+        Checkpoint checkpoint = checkpoint();
+        if (checkpoint != null) checkpoint.write();
+    }
+
+    /**
+     * Takes a copy of the index for a save, or returns null if nothing changed since the last one.
+     * Only the copy needs the writers kept out; Checkpoint.write() writes it to disk without
+     * holding any lock. Everything written to the file so far must be in the index.
+     */
+    public Checkpoint checkpoint() throws IOException {
+        lock.lock();
+        try {
+            if (!dirty || !Files.exists(filePath)) return null;
+
+            long coveredLength = Files.size(filePath);
+            byte[][] keys = new byte[offsets.size()][];
+            int[] hashes = new int[keys.length];
+            long[] recordOffsets = new long[keys.length];
+            int n = 0;
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                keys[n] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                hashes[n] = IndexSnapshot.hash(keys[n]);
+                recordOffsets[n++] = entry.getValue();
+            }
+            HashSet<String> replaced = new HashSet<>(removed); //snapshot IDs that the copy must leave out
+            if (snapshot != null) replaced.addAll(offsets.keySet());
+
+            Checkpoint checkpoint = new Checkpoint(coveredLength, tailChecksum(coveredLength), fileKey(), tombstones,
+                    keys, hashes, recordOffsets, snapshot, replaced);
+            dirty = false;
+            return checkpoint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A copy of the index taken by checkpoint(), to be written as the snapshot.
+     */
+    public class Checkpoint {
+        private final long coveredLength;
+        private final long tailChecksum;
+        private final String fileKey;
+        private final int tombstones;
+        private final byte[][] keys;
+        private final int[] hashes;
+        private final long[] recordOffsets;
+        private final IndexSnapshot saved; //mapped, so it stays readable after a newer snapshot replaces its file
+        private final HashSet<String> replaced;
+
+        private Checkpoint(long coveredLength, long tailChecksum, String fileKey, int tombstones, byte[][] keys, int[] hashes,
+                           long[] recordOffsets, IndexSnapshot saved, HashSet<String> replaced) {
+            this.coveredLength = coveredLength;
+            this.tailChecksum = tailChecksum;
+            this.fileKey = fileKey;
+            this.tombstones = tombstones;
+            this.keys = keys;
+            this.hashes = hashes;
+            this.recordOffsets = recordOffsets;
+            this.saved = saved;
+            this.replaced = replaced;
+        }
+
+        public void write() throws IOException {
+            int[] order = IndexSnapshot.hashOrder(hashes);
+
+            //merges the IDs in memory with the snapshot IDs nobody has touched, both in hash order
+            IndexSnapshot.Entries entries = visitor -> {
+                int fromMap = 0;
+                int fromSnapshot = 0;
+                int snapshotSize = saved == null ? 0 : saved.size();
+                while (fromMap < order.length || fromSnapshot < snapshotSize) {
+                    if (fromSnapshot < snapshotSize && (fromMap == order.length || saved.hashAt(fromSnapshot) < hashes[order[fromMap]])) {
+                        byte[] key = saved.keyAt(fromSnapshot);
+                        if (!replaced.contains(new String(key, StandardCharsets.UTF_8))) {
+                            visitor.visit(key, saved.hashAt(fromSnapshot), saved.recordOffsetAt(fromSnapshot));
+                        }
+                        fromSnapshot++;
+                    } else {
+                        int i = order[fromMap++];
+                        visitor.visit(keys[i], hashes[i], recordOffsets[i]);
+                    }
+                }
+            };
+            try {
+                IndexSnapshot.write(snapshotFile, coveredLength, tailChecksum, fileKey, tombstones, entries);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    dirty = true; //the next save tries again
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Deletes the saved snapshot, before the file is rewritten and its offsets stop being valid.
+     */
+    public void discardSnapshot() throws IOException {
+        lock.lock();
+        try {
+            Files.deleteIfExists(snapshotFile);
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (reader != null) reader.close();
+            reader = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //checksum of the last bytes before length, which changes if the file was replaced by another
+    private long tailChecksum(long length) throws IOException {
+        int bytes = (int) Math.min(TAIL_CHECK_BYTES, length);
+        ByteBuffer tail = ByteBuffer.allocate(bytes);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, length - bytes + tail.position()) < 0) break;
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(tail.flip());
+        return crc.getValue();
+    }
+
+    //identity of the file on disk (device and inode on Linux), which a rename over it changes
+    private String fileKey() throws IOException {
+        Object key = Files.readAttributes(filePath, BasicFileAttributes.class).fileKey();
+        return key == null ? "" : key.toString();
+    }
+}
@@ -0,0 +1,349 @@
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms for the operations of Person: calls and their outcome, time
+ * spent in each phase, the bytes read from and written to storage in each phase, and how often
+ * each validation rule turned a value away.
+ *
+ * Bytes are counted where the storage does its I/O: RecordReader and RecordWriter for person.txt
+ * files, slots and history blocks of a BinaryPersonStore, and frames queued on a WriteAheadLog.
+ * They are added to the call traced on the thread doing the I/O, under its current phase. Work
+ * done on other threads, such as background compaction and the log's flush thread, and index
+ * snapshots are not counted.
+ *
+ * Every call gets a Trace from trace(). While metrics are disabled that is one shared Trace that
+ * does nothing, so a call costs a volatile read and a few empty method calls. While enabled, the
+ * trace adds up the phases of its call and records them once when the call finishes. Metrics start
+ * disabled unless the system property person.metrics is true.
+ */
+public class PersonMetrics implements PersonMetricsMXBean {
+    public enum Operation {
+        ADD_PERSON, UPDATE_PERSONAL_DETAILS, ADD_DEMERIT_POINTS, ADD_DEMERIT_POINTS_BATCH
+    }
+
+    /**
+     * READ is looking records up in the store, PARSE is converting between text and values (offence
+     * dates, the demerit history line), VALIDATE is the checks on new values, WRITE is writing to
+     * the store.
+     */
+    public enum Phase {
+        READ, PARSE, VALIDATE, WRITE
+    }
+
+    public enum Rule {
+        ID_FORMAT, ADDRESS_FORMAT, BIRTH_DATE_FORMAT, BIRTH_DATE_WITH_OTHER_CHANGES, EVEN_ID_CHANGE, ID_TAKEN,
+        UNDER_18_ADDRESS_CHANGE, OFFENSE_DATE_FORMAT, POINT_RANGE, NOT_IN_FILE
+    }
+
+    private static final String[] COUNTERS = {"calls", "success", "failed", "ioErrors", "bytesRead", "bytesWritten"};
+    private static final int CALLS = 0, SUCCESS = 1, FAILED = 2, IO_ERRORS = 3, BYTES_READ = 4, BYTES_WRITTEN = 5;
+
+    private static final ThreadLocal<Trace> ACTIVE = new ThreadLocal<>(); //the call being traced on this thread
+
+    private volatile boolean enabled = Boolean.getBoolean("person.metrics");
+    private final AtomicLongArray counters = new AtomicLongArray(Operation.values().length * COUNTERS.length);
+    private final AtomicLongArray rejects = new AtomicLongArray(Rule.values().length);
+    private final LatencyHistogram[] totals = new LatencyHistogram[Operation.values().length];
+    private final LatencyHistogram[][] phases = new LatencyHistogram[Operation.values().length][Phase.values().length];
+    private final AtomicLongArray phaseBytes = new AtomicLongArray(Operation.values().length * Phase.values().length * 2); //read, written
+
+    public PersonMetrics() {
+        for (int op = 0; op < totals.length; op++) {
+            totals[op] = new LatencyHistogram();
+            for (int phase = 0; phase < phases[op].length; phase++) {
+                phases[op][phase] = new LatencyHistogram();
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts tracing one call of the operation.
+     */
+    public Trace trace(Operation operation) {
+        return enabled ? new Trace(this, operation) : Trace.NONE;
+    }
+
+    /**
+     * Counts bytes read from storage for the call traced on this thread, if there is one.
+     */
+    static void countRead(long bytes) {
+        Trace trace = ACTIVE.get();
+        if (trace != null) trace.count(trace.bytesRead, bytes);
+    }
+
+    /**
+     * Counts bytes written to storage for the call traced on this thread, if there is one.
+     */
+    static void countWritten(long bytes) {
+        Trace trace = ACTIVE.get();
+        if (trace != null) trace.count(trace.bytesWritten, bytes);
+    }
+
+    /**
+     * What one call did. Methods are not thread-safe, a trace belongs to the thread making the call,
+     * and is the one storage I/O on that thread is counted for until it finishes.
+     */
+    public static class Trace {
+        static final Trace NONE = new Trace(null, null);
+
+        private final PersonMetrics metrics;
+        private final Operation operation;
+        private final long started;
+        private final long[] phaseNanos;
+        private Phase phase;
+        private long phaseStarted;
+        private final long[] bytesRead; //by phase, the last one for bytes outside any phase
+        private final long[] bytesWritten;
+        private final Trace outer; //traced on the same thread before this one
+        private boolean ioError;
+
+        private Trace(PersonMetrics metrics, Operation operation) {
+            this.metrics = metrics;
+            this.operation = operation;
+            if (metrics == null) {
+                phaseNanos = null;
+                bytesRead = null;
+                bytesWritten = null;
+                outer = null;
+                started = 0;
+            } else {
+                phaseNanos = new long[Phase.values().length];
+                Arrays.fill(phaseNanos, -1); //for phases the call never reached
+                bytesRead = new long[Phase.values().length + 1];
+                bytesWritten = new long[Phase.values().length + 1];
+                outer = ACTIVE.get();
+                ACTIVE.set(this);
+                started = System.nanoTime();
+            }
+        }
+
+        private void count(long[] bytes, long count) {
+            bytes[phase == null ? bytes.length - 1 : phase.ordinal()] += count;
+        }
+
+        /**
+         * Starts timing a phase, ending the one before it.
+         */
+        public void begin(Phase phase) {
+            if (metrics == null) return;
+            end();
+            this.phase = phase;
+            this.phaseStarted = System.nanoTime();
+        }
+
+        /**
+         * Ends the current phase. A phase can be begun and ended many times, the times add up.
+         */
+        public void end() {
+            if (metrics == null || phase == null) return;
+            long elapsed = System.nanoTime() - phaseStarted;
+            int i = phase.ordinal();
+            phaseNanos[i] = phaseNanos[i] < 0 ? elapsed : phaseNanos[i] + elapsed;
+            phase = null;
+        }
+
+        public void reject(Rule rule) {
+            if (metrics != null) metrics.rejects.incrementAndGet(rule.ordinal());
+        }
+
+        public void ioError() {
+            if (metrics != null) ioError = true;
+        }
+
+        /**
+         * Records the call with its outcome and returns the outcome, so a method can end with
+         * return trace.finish(...).
+         */
+        public boolean finish(boolean success) {
+            if (metrics == null) return success;
+            end();
+            if (ACTIVE.get() == this) {
+                if (outer == null) ACTIVE.remove(); else ACTIVE.set(outer);
+            }
+            metrics.record(this, success);
+            return success;
+        }
+
+        public String finish(String result) {
+            finish(result.equals("Success"));
+            return result;
+        }
+    }
+
+    private void record(Trace trace, boolean success) {
+        int op = trace.operation.ordinal();
+        int base = op * COUNTERS.length;
+        counters.incrementAndGet(base + CALLS);
+        counters.incrementAndGet(base + (success ? SUCCESS : FAILED));
+        if (trace.ioError) counters.incrementAndGet(base + IO_ERRORS);
+        long read = 0, written = 0;
+        for (int phase = 0; phase < trace.bytesRead.length; phase++) {
+            read += trace.bytesRead[phase];
+            written += trace.bytesWritten[phase];
+            if (phase == Phase.values().length) break; //outside any phase, only in the totals
+            if (trace.bytesRead[phase] > 0) phaseBytes.addAndGet(phaseBytesAt(op, phase), trace.bytesRead[phase]);
+            if (trace.bytesWritten[phase] > 0) phaseBytes.addAndGet(phaseBytesAt(op, phase) + 1, trace.bytesWritten[phase]);
+        }
+        if (read > 0) counters.addAndGet(base + BYTES_READ, read);
+        if (written > 0) counters.addAndGet(base + BYTES_WRITTEN, written);
+
+        totals[op].record(System.nanoTime() - trace.started);
+        for (int phase = 0; phase < trace.phaseNanos.length; phase++) {
+            if (trace.phaseNanos[phase] >= 0) phases[op][phase].record(trace.phaseNanos[phase]);
+        }
+    }
+
+    private static int phaseBytesAt(int op, int phase) {
+        return (op * Phase.values().length + phase) * 2;
+    }
+
+    public long getCounter(Operation operation, String counter) {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            if (COUNTERS[i].equals(counter)) return counters.get(operation.ordinal() * COUNTERS.length + i);
+        }
+        throw new IllegalArgumentException("no counter " + counter);
+    }
+
+    /**
+     * Bytes read (or written) from storage during the phase of the operation.
+     */
+    public long getBytes(Operation operation, Phase phase, boolean written) {
+        return phaseBytes.get(phaseBytesAt(operation.ordinal(), phase.ordinal()) + (written ? 1 : 0));
+    }
+
+    public long getRejects(Rule rule) {
+        return rejects.get(rule.ordinal());
+    }
+
+    /**
+     * Latencies of the whole call when phase is null.
+     */
+    public LatencyHistogram getLatency(Operation operation, Phase phase) {
+        return phase == null ? totals[operation.ordinal()] : phases[operation.ordinal()][phase.ordinal()];
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> all = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            for (int i = 0; i < COUNTERS.length; i++) {
+                all.put(operation + "." + COUNTERS[i], counters.get(operation.ordinal() * COUNTERS.length + i));
+            }
+            for (Phase phase : Phase.values()) {
+                all.put(operation + "." + phase + ".bytesRead", getBytes(operation, phase, false));
+                all.put(operation + "." + phase + ".bytesWritten", getBytes(operation, phase, true));
+            }
+        }
+        for (Rule rule : Rule.values()) {
+            all.put("reject." + rule, rejects.get(rule.ordinal()));
+        }
+        return all;
+    }
+
+    @Override
+    public Map<String, Long> getLatencies() {
+        Map<String, Long> all = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            putLatencies(all, operation + ".total", totals[operation.ordinal()]);
+            for (Phase phase : Phase.values()) {
+                putLatencies(all, operation + "." + phase, getLatency(operation, phase));
+            }
+        }
+        return all;
+    }
+
+    private static void putLatencies(Map<String, Long> all, String name, LatencyHistogram histogram) {
+        all.put(name + ".p50", histogram.percentile(50) / 1000);
+        all.put(name + ".p90", histogram.percentile(90) / 1000);
+        all.put(name + ".p99", histogram.percentile(99) / 1000);
+        all.put(name + ".p999", histogram.percentile(99.9) / 1000);
+        all.put(name + ".max", histogram.getMax() / 1000);
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("person metrics, ").append(enabled ? "enabled" : "disabled").append('\n');
+
+        out.append(String.format("%-26s %10s %10s %10s %10s %14s %14s%n", "operation", "calls", "success", "failed", "io errors", "bytes read", "bytes written"));
+        for (Operation operation : Operation.values()) {
+            int base = operation.ordinal() * COUNTERS.length;
+            out.append(String.format("%-26s %10d %10d %10d %10d %14d %14d%n", operation, counters.get(base + CALLS), counters.get(base + SUCCESS),
+                    counters.get(base + FAILED), counters.get(base + IO_ERRORS), counters.get(base + BYTES_READ), counters.get(base + BYTES_WRITTEN)));
+        }
+
+        out.append(String.format("%n%-26s %-8s %14s %14s%n", "bytes", "phase", "read", "written"));
+        for (Operation operation : Operation.values()) {
+            for (Phase phase : Phase.values()) {
+                long read = getBytes(operation, phase, false), written = getBytes(operation, phase, true);
+                if (read == 0 && written == 0) continue;
+                out.append(String.format("%-26s %-8s %14d %14d%n", operation, phase.toString().toLowerCase(), read, written));
+            }
+        }
+
+        out.append(String.format("%n%-26s %-8s %10s %10s %10s %10s %10s %10s%n", "latency (us)", "phase", "count", "mean", "p50", "p99", "p99.9", "max"));
+        for (Operation operation : Operation.values()) {
+            appendLatency(out, operation, "total", totals[operation.ordinal()]);
+            for (Phase phase : Phase.values()) {
+                appendLatency(out, operation, phase.toString(), getLatency(operation, phase));
+            }
+        }
+
+        out.append(String.format("%n%-30s %10s%n", "rejected by rule", "count"));
+        for (Rule rule : Rule.values()) {
+            out.append(String.format("%-30s %10d%n", rule, rejects.get(rule.ordinal())));
+        }
+        return out.toString();
+    }
+
+    private static void appendLatency(StringBuilder out, Operation operation, String phase, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) return;
+        out.append(String.format("%-26s %-8s %10d %10.1f %10d %10d %10d %10d%n", operation, phase.toLowerCase(), histogram.getCount(),
+                histogram.getMean() / 1000, histogram.percentile(50) / 1000, histogram.percentile(99) / 1000,
+                histogram.percentile(99.9) / 1000, histogram.getMax() / 1000));
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < counters.length(); i++) counters.set(i, 0);
+        for (int i = 0; i < rejects.length(); i++) rejects.set(i, 0);
+        for (int i = 0; i < phaseBytes.length(); i++) phaseBytes.set(i, 0);
+        for (int op = 0; op < totals.length; op++) {
+            totals[op].reset();
+            for (LatencyHistogram histogram : phases[op]) histogram.reset();
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as seforit:type=PersonMetrics, unless
+     * something is registered under that name already.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName("seforit:type=PersonMetrics"));
+        } catch (InstanceAlreadyExistsException e) {
+            //registered before
+        } catch (JMException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+import java.util.Map;
+
+/**
+ * JMX view of PersonMetrics, registered as seforit:type=PersonMetrics.
+ */
+public interface PersonMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Counters by name: "OPERATION.calls", ".success", ".failed", ".ioErrors", ".bytesRead",
+     * ".bytesWritten" and "OPERATION.PHASE.bytesRead", ".bytesWritten" for every operation, and
+     * "reject.RULE" for every validation rule. Bytes are counted as the storage does its I/O; see
+     * PersonMetrics.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Latencies in microseconds by name: "OPERATION.PHASE.p50", ".p90", ".p99", ".p999" and ".max",
+     * with "total" as the phase for the whole call.
+     */
+    Map<String, Long> getLatencies();
+
+    /**
+     * Everything as a table of text.
+     */
+    String dump();
+
+    void reset();
+}
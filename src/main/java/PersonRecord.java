@@ -0,0 +1,60 @@
+/**
+ * A person as it is kept on disk, independent of the storage format. Stores read and write
+ * these, while Person keeps the validation rules.
+ */
+public class PersonRecord {
+    String personID;
+    String firstName;
+    String lastName;
+    String address;
+    String birthDate;
+    String demeritHistory; //"'points' on 'date'" entries separated by ", "
+
+    public PersonRecord(String personID, String firstName, String lastName, String address, String birthDate, String demeritHistory) {
+        this.personID = personID;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.birthDate = birthDate;
+        this.demeritHistory = demeritHistory;
+    }
+
+    public PersonRecord copy() {
+        return new PersonRecord(personID, firstName, lastName, address, birthDate, demeritHistory);
+    }
+
+    /**
+     * The record in the person.txt layout, including the empty line that ends it.
+     */
+    public String toText() {
+        return "Name: " + firstName + " " + lastName +
+                "\nID: " + personID +
+                "\nAddress: " + address +
+                "\nBirth Date: " + birthDate +
+                "\nDemerit History: " + demeritHistory + "\n\n";
+    }
+
+    public String getPersonID() {
+        return personID;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getBirthDate() {
+        return birthDate;
+    }
+
+    public String getDemeritHistory() {
+        return demeritHistory;
+    }
+}
@@ -0,0 +1,285 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe front for Person. Every operation takes the lock stripe of the personID it works
+ * on, so different people are changed in parallel while operations on one person run one at a
+ * time, in order. The store behind Person stays the single writer of the file.
+ *
+ * The stripes only keep work on different people from queueing on each other in here. Every write
+ * still ends up in the store, and a TextPersonStore writes one record at a time under its own lock,
+ * so write throughput is that of one store whatever the stripe count; put a ShardedPersonStore
+ * behind Person to spread writes over several files.
+ *
+ * Persons are loaded from the store on first use and kept, up to the capacity. Past it, persons
+ * not used since the last sweep are dropped, skipping any whose stripe is held, and loaded again
+ * from the store when they are next used.
+ *
+ * Suspension is tracked by a SuspensionEngine, so it also clears again when points age out of
+ * the two-year window; call advanceTo() once a day to roll the window forward. The engine keeps a
+ * small entry for every person it has seen, including dropped ones, so their totals stay right.
+ */
+public class PersonRegistry {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    //a kept person and whether it was used since the last sweep
+    private static class Kept {
+        final Person person;
+        volatile boolean used = true;
+
+        Kept(Person person) {
+            this.person = person;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Kept> persons = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final SuspensionEngine suspensions = new SuspensionEngine(LocalDate.now());
+    private final int capacity;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PersonRegistry() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    public PersonRegistry(int stripeCount) {
+        this(stripeCount, DEFAULT_CAPACITY);
+    }
+
+    public PersonRegistry(int stripeCount, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.capacity = capacity;
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1; //round up to a power of two
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        suspensions.addListener((personID, suspended) -> {
+            Kept kept = persons.get(personID);
+            if (kept != null) kept.person.setSuspended(suspended);
+        });
+    }
+
+    private int stripeOf(String personID) {
+        int hash = personID.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Adds the person to the store and keeps it for later operations. Unlike Person.addPerson,
+     * returns false if the ID is already stored, and the stored person stays the one kept.
+     */
+    public boolean addPerson(Person person) {
+        ReentrantLock lock = stripes[stripeOf(person.getPersonID())];
+        lock.lock();
+        try {
+            if (contains(person.getPersonID())) return false; //Person.addPerson would say true without writing anything
+            if (!person.addPerson()) return false;
+            register(person);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps a person that is already in the store, without writing it again. Offences they already
+     * have count towards their suspension.
+     */
+    public void register(Person person) {
+        if (persons.putIfAbsent(person.getPersonID(), new Kept(person)) != null) return;
+
+        if (suspensions.track(person.getPersonID(), person.getBirthDate())) {
+            DemeritLedger ledger = person.getDemeritLedger();
+            for (int i = 0; i < ledger.size(); i++) {
+                suspensions.record(person.getPersonID(), ledger.dateAt(i), ledger.pointsAt(i));
+            }
+        } else {
+            person.setSuspended(suspensions.isSuspended(person.getPersonID())); //dropped and loaded again, the engine kept counting
+        }
+        if (persons.size() > capacity) evict();
+    }
+
+    /**
+     * Second chance sweep: a person used since the last sweep is marked unused and kept, an unused
+     * one is dropped unless its stripe is held. One thread sweeps at a time; the others go on.
+     */
+    private void evict() {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            for (int pass = 0; pass < 2 && persons.size() > capacity; pass++) {
+                for (Map.Entry<String, Kept> entry : persons.entrySet()) {
+                    if (persons.size() <= capacity) return;
+
+                    Kept kept = entry.getValue();
+                    if (kept.used) {
+                        kept.used = false;
+                        continue;
+                    }
+                    ReentrantLock lock = stripes[stripeOf(entry.getKey())];
+                    if (lock.isHeldByCurrentThread() || !lock.tryLock()) continue; //in use by an operation
+                    try {
+                        if (!kept.used && persons.remove(entry.getKey(), kept)) evictions.incrementAndGet();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Whether a person with this ID is kept or stored.
+     */
+    public boolean contains(String personID) {
+        return persons.containsKey(personID) || Person.exists(personID);
+    }
+
+    /**
+     * The kept person with this ID, or null if it is not kept (any more).
+     */
+    public Person get(String personID) {
+        Kept kept = persons.get(personID);
+        if (kept == null) return null;
+        kept.used = true;
+        return kept.person;
+    }
+
+    /**
+     * The kept person with this ID, or else the one in the store, which is kept from then on.
+     * Returns null if neither has it.
+     */
+    public Person load(String personID) {
+        Person person = get(personID);
+        if (person != null) return person;
+
+        ReentrantLock lock = stripes[stripeOf(personID)];
+        lock.lock();
+        try {
+            person = get(personID);
+            if (person != null) return person; //loaded while waiting for the lock
+
+            person = Person.findById(personID);
+            if (person != null) register(person);
+            return person;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean updatePersonalDetails(String personID, String updatedId, String updatedFirstName, String updatedLastName, String updatedAddress, String updatedBirthDate) {
+        //an ID change holds both IDs, always locked in stripe order so two renames cannot deadlock
+        int first = stripeOf(personID);
+        int second = updatedId == null ? first : stripeOf(updatedId);
+        ReentrantLock lower = stripes[Math.min(first, second)];
+        ReentrantLock upper = stripes[Math.max(first, second)];
+
+        lower.lock();
+        upper.lock();
+        try {
+            Person person = load(personID);
+            if (person == null) return false;
+
+            String oldBirthDate = person.getBirthDate();
+            boolean updated = person.updatePersonalDetails(updatedId, updatedFirstName, updatedLastName, updatedAddress, updatedBirthDate);
+            if (!person.getPersonID().equals(personID)) {
+                Kept kept = persons.remove(personID);
+                persons.put(person.getPersonID(), kept);
+                suspensions.rename(personID, person.getPersonID());
+            }
+            if (!person.getBirthDate().equals(oldBirthDate)) {
+                suspensions.changeBirthDate(person.getPersonID(), person.getBirthDate());
+            }
+            return updated;
+        } finally {
+            upper.unlock();
+            lower.unlock();
+        }
+    }
+
+    public String addDemeritPoints(String personID, int point, String offenseDate) {
+        ReentrantLock lock = stripes[stripeOf(personID)];
+        lock.lock();
+        try {
+            Person person = load(personID);
+            if (person == null) return "Failed";
+
+            String result = person.addDemeritPoints(point, offenseDate);
+            if (result.equals("Success")) {
+                suspensions.record(personID, LocalDate.parse(offenseDate, DATE_FORMAT), point);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Person.addDemeritPointsBatch over the kept persons, with the lock of every person in the batch
+     * held, so it cannot interleave with other operations on them. Offences that were stored count
+     * towards the persons' suspension.
+     */
+    public List<String> addDemeritPointsBatch(List<Person.DemeritEntry> entries) {
+        //every stripe the batch touches, locked in stripe order so two batches cannot deadlock
+        TreeSet<Integer> touched = new TreeSet<>();
+        for (Person.DemeritEntry entry : entries) {
+            touched.add(stripeOf(entry.getPersonID()));
+        }
+        for (int stripe : touched) {
+            stripes[stripe].lock();
+        }
+        try {
+            List<String> results = Person.addDemeritPointsBatch(entries, this::load);
+            for (int i = 0; i < entries.size(); i++) {
+                if (results.get(i).equals("Success")) {
+                    Person.DemeritEntry entry = entries.get(i);
+                    suspensions.record(entry.getPersonID(), LocalDate.parse(entry.getOffenseDate(), DATE_FORMAT), entry.getPoint());
+                }
+            }
+            return results;
+        } finally {
+            for (int stripe : touched.descendingSet()) {
+                stripes[stripe].unlock();
+            }
+        }
+    }
+
+    /**
+     * Rolls the demerit window forward to the given day, e.g. from a nightly job. Only people whose
+     * points expire (or who turn 21) are re-evaluated. Returns how many that was.
+     */
+    public int advanceTo(LocalDate day) {
+        return suspensions.advanceTo(day);
+    }
+
+    public boolean isSuspended(String personID) {
+        return suspensions.isSuspended(personID);
+    }
+
+    /**
+     * Number of kept persons, at most about the capacity.
+     */
+    public int size() {
+        return persons.size();
+    }
+
+    /**
+     * Persons dropped to stay within the capacity.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
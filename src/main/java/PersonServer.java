@@ -0,0 +1,374 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a PersonRegistry over HTTP with JSON bodies:
+ *
+ *   POST /persons                   add, body {"personID", "firstName", "lastName", "address", "birthDate"}
+ *   GET  /persons/{id}              lookup
+ *   PUT  /persons/{id}              update, body with only the fields that change
+ *   POST /persons/{id}/demerits     demerit, body {"point", "offenseDate"}
+ *   GET  /metrics                   text dump of Person.getMetrics()
+ *
+ * IDs are percent-encoded in the path, since most of them contain '#', '%' or '/'.
+ * The result of add, update and demerit is {"result": "Success"} or {"result": "Failed"}. Adding an
+ * ID that is already stored is answered with 409 and changes nothing.
+ *
+ * Every request runs on its own virtual thread, so a request blocked on file I/O does not hold a
+ * platform thread. Backpressure is a bounded queue: at most maxRunning requests work on the
+ * registry at once and at most maxWaiting more wait for their turn; anything past that is turned
+ * away at once with 503 and a Retry-After header.
+ */
+public class PersonServer {
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final PersonRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore admitted; //running plus waiting
+    private final Semaphore running;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Binds to the port (0 picks a free one); call start() to begin serving.
+     */
+    public PersonServer(PersonRegistry registry, int port, int maxRunning, int maxWaiting) throws IOException {
+        if (maxRunning < 1) throw new IllegalArgumentException("maxRunning must be at least 1");
+        if (maxWaiting < 0) throw new IllegalArgumentException("maxWaiting must not be negative");
+
+        this.registry = registry;
+        this.admitted = new Semaphore(maxRunning + maxWaiting);
+        this.running = new Semaphore(maxRunning);
+        this.server = HttpServer.create(new InetSocketAddress(port), maxRunning + maxWaiting);
+        server.setExecutor(executor);
+        server.createContext("/persons", this::handle);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting connections, waits up to delaySeconds for requests in progress, and then
+     * waits for their threads to finish.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+        Person.closeStore(); //every request is done, so the store can save its index
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getServed() {
+        return served.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!admitted.tryAcquire()) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "{\"error\": \"busy\"}");
+                return;
+            }
+            try {
+                running.acquireUninterruptibly(); //parks the virtual thread, not a platform thread
+                try {
+                    route(exchange);
+                    served.incrementAndGet();
+                } finally {
+                    running.release();
+                }
+            } finally {
+                admitted.release();
+            }
+        }
+    }
+
+    //not held back by the queue, so it still answers when the server is overloaded
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = Person.getMetrics().dump().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        //"/persons", "/persons/{id}" or "/persons/{id}/demerits"
+        String[] path = exchange.getRequestURI().getRawPath().split("/");
+        String method = exchange.getRequestMethod();
+
+        try {
+            if (path.length < 2 || !path[1].equals("persons")) {
+                respond(exchange, 404, "{\"error\": \"not found\"}");
+                return;
+            }
+            if (path.length == 2) {
+                if (method.equals("POST")) {
+                    add(exchange);
+                    return;
+                }
+            } else if (path.length == 3) {
+                String personID = decode(path[2]);
+                if (method.equals("GET")) {
+                    lookup(exchange, personID);
+                    return;
+                }
+                if (method.equals("PUT")) {
+                    update(exchange, personID);
+                    return;
+                }
+            } else if (path.length == 4 && path[3].equals("demerits")) {
+                if (method.equals("POST")) {
+                    demerit(exchange, decode(path[2]));
+                    return;
+                }
+            } else {
+                respond(exchange, 404, "{\"error\": \"not found\"}");
+                return;
+            }
+            respond(exchange, 405, "{\"error\": \"method not allowed\"}");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "{\"error\": " + quote(e.getMessage()) + "}");
+        }
+    }
+
+    private void add(HttpExchange exchange) throws IOException {
+        Map<String, String> body = parseObject(readBody(exchange));
+        for (String field : new String[]{"personID", "firstName", "lastName", "address", "birthDate"}) {
+            if (body.get(field) == null) throw new IllegalArgumentException(field + " is missing");
+        }
+        Person person = new Person(body.get("personID"), body.get("firstName"), body.get("lastName"), body.get("address"), body.get("birthDate"));
+        if (registry.contains(person.getPersonID())) {
+            respond(exchange, 409, "{\"error\": \"person already exists\"}");
+            return;
+        }
+        boolean added = registry.addPerson(person);
+        if (!added && registry.contains(person.getPersonID())) {
+            respond(exchange, 409, "{\"error\": \"person already exists\"}"); //added by another request meanwhile
+            return;
+        }
+        respondResult(exchange, added ? 201 : 400, added);
+    }
+
+    private void lookup(HttpExchange exchange, String personID) throws IOException {
+        Person person = registry.load(personID);
+        if (person == null) {
+            respond(exchange, 404, "{\"error\": \"no such person\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"personID\": " + quote(person.getPersonID())
+                + ", \"firstName\": " + quote(person.getFirstName())
+                + ", \"lastName\": " + quote(person.getLastName())
+                + ", \"address\": " + quote(person.getAddress())
+                + ", \"birthDate\": " + quote(person.getBirthDate())
+                + ", \"suspended\": " + registry.isSuspended(person.getPersonID()) + "}");
+    }
+
+    private void update(HttpExchange exchange, String personID) throws IOException {
+        Map<String, String> body = parseObject(readBody(exchange));
+        if (registry.load(personID) == null) {
+            respond(exchange, 404, "{\"error\": \"no such person\"}");
+            return;
+        }
+        boolean updated = registry.updatePersonalDetails(personID, body.get("personID"), body.get("firstName"), body.get("lastName"), body.get("address"), body.get("birthDate"));
+        respondResult(exchange, updated ? 200 : 400, updated);
+    }
+
+    private void demerit(HttpExchange exchange, String personID) throws IOException {
+        Map<String, String> body = parseObject(readBody(exchange));
+        int point;
+        try {
+            point = Integer.parseInt(String.valueOf(body.get("point")));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("point must be a whole number");
+        }
+        if (registry.load(personID) == null) {
+            respond(exchange, 404, "{\"error\": \"no such person\"}");
+            return;
+        }
+        String result = body.get("offenseDate") == null ? "Failed" : registry.addDemeritPoints(personID, point, body.get("offenseDate"));
+        respondResult(exchange, result.equals("Success") ? 200 : 400, result.equals("Success"));
+    }
+
+    private static String decode(String segment) {
+        return URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8); //a '+' in a path is a plus, not a space
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) throw new IllegalArgumentException("body is too large");
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respondResult(HttpExchange exchange, int status, boolean success) throws IOException {
+        respond(exchange, status, success ? "{\"result\": \"Success\"}" : "{\"result\": \"Failed\"}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * The text as a JSON string literal.
+     */
+    static String quote(String text) {
+        if (text == null) return "null";
+
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+                    else quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Reads a flat JSON object. Strings, numbers and booleans are kept as their text and null as
+     * null; nested objects and arrays are not accepted.
+     */
+    static Map<String, String> parseObject(String json) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] pos = {skipSpace(json, 0)};
+
+        expect(json, pos, '{');
+        if (peek(json, pos) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                String name = readString(json, pos);
+                expect(json, pos, ':');
+                fields.put(name, readValue(json, pos));
+                if (peek(json, pos) == ',') {
+                    pos[0]++;
+                    continue;
+                }
+                expect(json, pos, '}');
+                break;
+            }
+        }
+        if (skipSpace(json, pos[0]) != json.length()) throw new IllegalArgumentException("text after the JSON object");
+        return fields;
+    }
+
+    private static int skipSpace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) pos++;
+        return pos;
+    }
+
+    //next character that is not white space, or 0 at the end
+    private static char peek(String json, int[] pos) {
+        pos[0] = skipSpace(json, pos[0]);
+        return pos[0] < json.length() ? json.charAt(pos[0]) : 0;
+    }
+
+    private static void expect(String json, int[] pos, char c) {
+        if (peek(json, pos) != c) throw new IllegalArgumentException("malformed JSON, expected '" + c + "' at " + pos[0]);
+        pos[0]++;
+    }
+
+    private static String readValue(String json, int[] pos) {
+        if (peek(json, pos) == '"') return readString(json, pos);
+
+        int start = pos[0];
+        while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) pos[0]++;
+        String literal = json.substring(start, pos[0]);
+        if (literal.equals("null")) return null;
+        if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) return literal;
+        throw new IllegalArgumentException("malformed JSON value at " + start);
+    }
+
+    private static String readString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            if (pos[0] >= json.length()) throw new IllegalArgumentException("unterminated JSON string");
+            char c = json.charAt(pos[0]++);
+            if (c == '"') return text.toString();
+            if (c != '\\') {
+                text.append(c);
+                continue;
+            }
+
+            if (pos[0] >= json.length()) throw new IllegalArgumentException("unterminated JSON string");
+            char escaped = json.charAt(pos[0]++);
+            switch (escaped) {
+                case '"', '\\', '/' -> text.append(escaped);
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' -> {
+                    if (pos[0] + 4 > json.length()) throw new IllegalArgumentException("malformed JSON escape");
+                    try {
+                        text.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("malformed JSON escape");
+                    }
+                    pos[0] += 4;
+                }
+                default -> throw new IllegalArgumentException("malformed JSON escape");
+            }
+        }
+    }
+
+    /**
+     * Serves person.txt: PersonServer [port] [maxRunning] [maxWaiting]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int maxRunning = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int maxWaiting = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+
+        Person.getMetrics().setEnabled(true);
+        Person.getMetrics().register();
+
+        PersonServer server = new PersonServer(new PersonRegistry(), port, maxRunning, maxWaiting);
+        server.start();
+        System.out.println("Serving persons on port " + server.getPort());
+    }
+}
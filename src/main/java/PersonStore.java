@@ -0,0 +1,78 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine behind Person. Implementations decide how records are laid out on disk;
+ * Person only validates and hands them over.
+ */
+public interface PersonStore extends Closeable {
+    boolean contains(String personID);
+
+    /**
+     * Returns the stored record, or null if the ID is not in the store.
+     */
+    PersonRecord find(String personID) throws IOException;
+
+    /**
+     * Adds a new record. Returns false if the ID is already stored.
+     */
+    boolean insert(PersonRecord record) throws IOException;
+
+    /**
+     * Adds many new records in one pass, skipping IDs that are already stored. Returns how many were added.
+     * Stores that can batch their writes override this.
+     */
+    default int insertAll(Iterator<PersonRecord> records) throws IOException {
+        int added = 0;
+        while (records.hasNext()) {
+            if (insert(records.next())) added++;
+        }
+        return added;
+    }
+
+    /**
+     * Replaces the record stored under personID. The new record may carry a different ID.
+     * Returns false if personID is not in the store.
+     */
+    boolean update(String personID, PersonRecord record) throws IOException;
+
+    /**
+     * Replaces many records in one go, each keyed by the ID it is stored under. Returns the keys
+     * that were found and replaced. Stores that can batch their writes override this.
+     */
+    default Set<String> updateAll(Map<String, PersonRecord> records) throws IOException {
+        Set<String> updated = new HashSet<>();
+        for (Map.Entry<String, PersonRecord> entry : records.entrySet()) {
+            if (update(entry.getKey(), entry.getValue())) updated.add(entry.getKey());
+        }
+        return updated;
+    }
+
+    /**
+     * Removes the record stored under personID. Returns false if personID is not in the store.
+     */
+    boolean delete(String personID) throws IOException;
+
+    /**
+     * Visits every stored record in storage order.
+     */
+    void forEach(Consumer<PersonRecord> action) throws IOException;
+
+    /**
+     * Forces every write made so far to disk.
+     */
+    void sync() throws IOException;
+
+    /**
+     * Saves whatever lets the next open skip reading the whole store, such as TextPersonStore's
+     * index, as a checkpoint while the store stays in use. Stores that keep nothing of the kind do
+     * nothing.
+     */
+    default void saveIndex() throws IOException {
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams records out of a person.txt file: 5 labelled lines and an empty line per person.
+ * Lines are cut straight out of a buffer filled by positional reads, so memory use does not depend
+ * on the size of the file, and next() refills the same PersonRecord every time. Callers that keep a
+ * record past the next call must copy it.
+ *
+ * A record starts at a "Name: " line. Tombstoned copies (starting with TextPersonStore.TOMBSTONE)
+ * and anything before the first record are skipped.
+ */
+public class RecordReader implements Closeable {
+    private static final byte[][] LABELS = {
+            bytes("Name: "), bytes("ID: "), bytes("Address: "), bytes("Birth Date: "), bytes("Demerit History: ")
+    };
+    private static final byte[] TOMBSTONE = bytes(TextPersonStore.TOMBSTONE);
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final ByteBuffer buffer;
+    private long position; //file offset of the next byte to read into the buffer
+    private boolean endOfFile;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long lineNumber;
+
+    private final String[] fields = new String[5];
+    private final PersonRecord record = new PersonRecord(null, null, null, null, null, null);
+
+    /**
+     * Reads from the channel starting at offset, without moving the channel's own position. The
+     * channel stays open when the reader is closed.
+     */
+    public RecordReader(FileChannel channel, long offset, int bufferSize) {
+        this(channel, false, offset, bufferSize);
+    }
+
+    private RecordReader(FileChannel channel, boolean ownsChannel, long offset, int bufferSize) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.position = offset;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip(); //empty until the first read
+    }
+
+    public static RecordReader open(Path file) throws IOException {
+        return new RecordReader(FileChannel.open(file, StandardOpenOption.READ), true, 0, 64 * 1024);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves to the next live record. Returns false at the end of the file.
+     */
+    public boolean next() throws IOException {
+        int count = 0;
+        boolean inRecord = false;
+
+        while (readLine()) {
+            boolean name = startsWith(LABELS[0]);
+            if (name || startsWith(TOMBSTONE)) {
+                count = 0; //start of a record, tombstoned copies are skipped
+                inRecord = name;
+            }
+            if (lineLength == 0 || !inRecord) continue;
+
+            fields[count] = field(LABELS[count]);
+            count++;
+            if (count == 5) {
+                fill();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The record found by the last successful next(), refilled by every call.
+     */
+    public PersonRecord record() {
+        return record;
+    }
+
+    /**
+     * Number of the line the current record ended on, counting from 1 at the reader's start.
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    private void fill() {
+        String name = fields[0];
+        int space = name.indexOf(' ');
+        record.firstName = space < 0 ? name : name.substring(0, space);
+        record.lastName = space < 0 ? "" : name.substring(space + 1);
+        record.personID = fields[1];
+        record.address = fields[2];
+        record.birthDate = fields[3];
+        record.demeritHistory = fields[4];
+    }
+
+    //the line without its label, or the whole line if the label is not there
+    private String field(byte[] label) {
+        int start = startsWith(label) ? label.length : 0;
+        return new String(line, start, lineLength - start, StandardCharsets.UTF_8);
+    }
+
+    private boolean startsWith(byte[] prefix) {
+        if (lineLength < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    //copies the next line into line, without its line break; false once nothing is left
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean any = false;
+
+        while (true) {
+            if (!buffer.hasRemaining() && !refill()) {
+                if (!any) return false;
+                break; //last line without a line break
+            }
+            any = true;
+
+            byte b = buffer.get();
+            if (b == '\n') break;
+            if (lineLength == line.length) line = Arrays.copyOf(line, lineLength * 2);
+            line[lineLength++] = b;
+        }
+
+        if (lineLength > 0 && line[lineLength - 1] == '\r') lineLength--;
+        lineNumber++;
+        return true;
+    }
+
+    private boolean refill() throws IOException {
+        if (endOfFile) return false;
+
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        buffer.flip();
+        if (read <= 0) {
+            endOfFile = true;
+            return false;
+        }
+        position += read;
+        PersonMetrics.countRead(read);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) channel.close();
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes records in the person.txt layout through one buffer, encoding the fields straight into it
+ * instead of building each record as a String first.
+ *
+ * A writer either appends to a channel it is given, or replaces a whole file: then it writes to a
+ * temporary file next to it, and commit() forces that file to disk and renames it over the target.
+ * Until commit() the target is untouched, and closing without committing deletes the temporary file.
+ */
+public class RecordWriter implements Closeable {
+    private static final byte[] NAME = "Name: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID = "\nID: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ADDRESS = "\nAddress: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BIRTH_DATE = "\nBirth Date: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HISTORY = "\nDemerit History: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long position; //file offset the next byte goes to
+
+    private final Path target; //null when appending
+    private final Path temporary;
+    private boolean done;
+
+    private RecordWriter(FileChannel channel, int bufferSize, long position, Path target, Path temporary) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.position = position;
+        this.target = target;
+        this.temporary = temporary;
+    }
+
+    /**
+     * Appends at the end of the channel. The channel stays open when the writer is closed.
+     */
+    public static RecordWriter append(FileChannel channel) throws IOException {
+        return append(channel, 256 * 1024);
+    }
+
+    /**
+     * Appends through a buffer of the given size, e.g. a small one for a single record.
+     */
+    public static RecordWriter append(FileChannel channel, int bufferSize) throws IOException {
+        return new RecordWriter(channel, bufferSize, channel.size(), null, null);
+    }
+
+    /**
+     * Writes a new version of target, which replaces it on commit().
+     */
+    public static RecordWriter replace(Path target) throws IOException {
+        Path temporary = Paths.get(target + ".tmp");
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new RecordWriter(channel, 256 * 1024, 0, target, temporary);
+    }
+
+    /**
+     * Buffers the record and returns the file offset it starts at.
+     */
+    public long write(PersonRecord record) throws IOException {
+        long offset = position;
+        put(NAME);
+        put(record.firstName);
+        put((byte) ' ');
+        put(record.lastName);
+        put(ID);
+        put(record.personID);
+        put(ADDRESS);
+        put(record.address);
+        put(BIRTH_DATE);
+        put(record.birthDate);
+        put(HISTORY);
+        put(record.demeritHistory);
+        put(END);
+        return offset;
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put(b);
+        position++;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        for (byte b : bytes) put(b);
+    }
+
+    private void put(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) { //not ASCII, let the encoder do the rest of the field
+                put(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            put((byte) c);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        long at = position - buffer.remaining();
+        PersonMetrics.countWritten(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes out everything buffered so far, without forcing it to disk.
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Forces the new file to disk and renames it over the target.
+     */
+    public void commit() throws IOException {
+        if (target == null) throw new IllegalStateException("only a replacing writer can be committed");
+
+        drain();
+        channel.force(false);
+        channel.close();
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        done = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (target == null) {
+            drain();
+            return;
+        }
+        if (done) return;
+
+        done = true;
+        channel.close();
+        Files.deleteIfExists(temporary); //not committed, the target stays as it was
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Splits the persons over several TextPersonStores, one person.txt per shard directory, picked by a
+ * hash of the personID. Each shard has its own index, lock and file, so writes to different shards
+ * run in parallel instead of queueing on a single person.txt.
+ *
+ * An update that changes the ID to one that hashes to another shard moves the record: it is
+ * inserted into the new shard and only then deleted from the old one, with both shards locked in
+ * shard order so two moves cannot deadlock. The shard locks are this store's own, not the
+ * TextPersonStores', and every write to a shard takes its lock, so nothing changes either shard
+ * while a record moves between them. A crash between the two steps leaves the record under
+ * both IDs, never under neither.
+ *
+ * The shard count is kept in shards.properties in the store directory; reshard() copies a store
+ * to a new directory with a different count while nothing is using it.
+ */
+public class ShardedPersonStore implements PersonStore {
+    private static final String LAYOUT_FILE = "shards.properties";
+    private static final int INSERT_BATCH = 4096; //records buffered per shard by insertAll
+
+    private final Path directory;
+    private final TextPersonStore[] shards;
+    private final ReentrantLock[] locks; //one per shard, held by every write to it
+
+    private ShardedPersonStore(Path directory, TextPersonStore[] shards) {
+        this.directory = directory;
+        this.shards = shards;
+        this.locks = new ReentrantLock[shards.length];
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Opens the store in the directory, creating it with the given number of shards if it is new.
+     * An existing store must have been created with the same shard count.
+     */
+    public static ShardedPersonStore open(Path directory, int shardCount) throws IOException {
+        if (shardCount < 1) throw new IllegalArgumentException("shardCount must be at least 1");
+
+        Path layout = directory.resolve(LAYOUT_FILE);
+        if (Files.exists(layout)) {
+            int stored = readShardCount(directory);
+            if (stored != shardCount) {
+                throw new IOException("Store in " + directory + " has " + stored + " shards, not " + shardCount + "; use reshard() to change it");
+            }
+        } else {
+            Files.createDirectories(directory);
+            writeShardCount(directory, shardCount);
+        }
+
+        TextPersonStore[] shards = new TextPersonStore[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new TextPersonStore(shardFile(directory, i));
+        }
+        return new ShardedPersonStore(directory, shards);
+    }
+
+    /**
+     * Opens an existing store with the shard count it was created with.
+     */
+    public static ShardedPersonStore open(Path directory) throws IOException {
+        return open(directory, readShardCount(directory));
+    }
+
+    static Path shardFile(Path directory, int shard) throws IOException {
+        Path shardDirectory = directory.resolve(String.format("shard-%03d", shard));
+        Files.createDirectories(shardDirectory);
+        return shardDirectory.resolve("person.txt");
+    }
+
+    private static int readShardCount(Path directory) throws IOException {
+        Properties layout = new Properties();
+        try (Reader in = Files.newBufferedReader(directory.resolve(LAYOUT_FILE), StandardCharsets.UTF_8)) {
+            layout.load(in);
+        }
+        try {
+            return Integer.parseInt(layout.getProperty("shards", ""));
+        } catch (NumberFormatException e) {
+            throw new IOException("No shard count in " + directory.resolve(LAYOUT_FILE));
+        }
+    }
+
+    private static void writeShardCount(Path directory, int shardCount) throws IOException {
+        Properties layout = new Properties();
+        layout.setProperty("shards", Integer.toString(shardCount));
+        Path temporary = directory.resolve(LAYOUT_FILE + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            layout.store(out, "person store layout");
+        }
+        Files.move(temporary, directory.resolve(LAYOUT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Shard of the ID among shardCount shards. String.hashCode is fixed by the language, so the
+     * result does not change between runs or JVMs.
+     */
+    static int shardOf(String personID, int shardCount) {
+        int hash = personID.hashCode();
+        hash ^= hash >>> 16; //the low bits of short strings alone spread badly
+        return Math.floorMod(hash, shardCount);
+    }
+
+    private TextPersonStore shard(String personID) {
+        return shards[shardOf(personID, shards.length)];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Turns fsync after every write on or off for every shard, see TextPersonStore.setForceOnWrite.
+     */
+    public void setForceOnWrite(boolean forceOnWrite) {
+        for (TextPersonStore shard : shards) shard.setForceOnWrite(forceOnWrite);
+    }
+
+    @Override
+    public boolean contains(String personID) {
+        return shard(personID).contains(personID);
+    }
+
+    @Override
+    public PersonRecord find(String personID) throws IOException {
+        return shard(personID).find(personID);
+    }
+
+    @Override
+    public boolean insert(PersonRecord record) throws IOException {
+        int shard = shardOf(record.personID, shards.length);
+        locks[shard].lock();
+        try {
+            return shards[shard].insert(record);
+        } finally {
+            locks[shard].unlock();
+        }
+    }
+
+    private int insertAll(int shard, List<PersonRecord> batch) throws IOException {
+        locks[shard].lock();
+        try {
+            return shards[shard].insertAll(batch.iterator());
+        } finally {
+            locks[shard].unlock();
+        }
+    }
+
+    /**
+     * Sorts the records into per-shard batches and hands each batch to its shard's insertAll, so
+     * every shard still appends through one buffer.
+     */
+    @Override
+    public int insertAll(Iterator<PersonRecord> records) throws IOException {
+        List<List<PersonRecord>> batches = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) batches.add(new ArrayList<>());
+
+        int added = 0;
+        while (records.hasNext()) {
+            PersonRecord record = records.next();
+            int shard = shardOf(record.personID, shards.length);
+            List<PersonRecord> batch = batches.get(shard);
+            batch.add(record);
+            if (batch.size() == INSERT_BATCH) {
+                added += insertAll(shard, batch);
+                batch.clear();
+            }
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (!batches.get(shard).isEmpty()) added += insertAll(shard, batches.get(shard));
+        }
+        return added;
+    }
+
+    @Override
+    public boolean update(String personID, PersonRecord record) throws IOException {
+        int from = shardOf(personID, shards.length);
+        int to = shardOf(record.personID, shards.length);
+        if (from == to) {
+            locks[from].lock();
+            try {
+                return shards[from].update(personID, record);
+            } finally {
+                locks[from].unlock();
+            }
+        }
+
+        //lower shard first, so two moves in opposite directions cannot deadlock
+        ReentrantLock lower = locks[Math.min(from, to)];
+        ReentrantLock upper = locks[Math.max(from, to)];
+        lower.lock();
+        upper.lock();
+        try {
+            if (!shards[from].contains(personID)) return false;
+            if (!shards[to].insert(record)) return false; //new ID is taken
+            shards[from].delete(personID);
+            return true;
+        } finally {
+            upper.unlock();
+            lower.unlock();
+        }
+    }
+
+    /**
+     * Updates that stay in their shard go to that shard's updateAll as one batch; moves between
+     * shards are done one by one.
+     */
+    @Override
+    public Set<String> updateAll(Map<String, PersonRecord> records) throws IOException {
+        List<Map<String, PersonRecord>> batches = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) batches.add(new LinkedHashMap<>());
+
+        Set<String> updated = new HashSet<>();
+        for (Map.Entry<String, PersonRecord> entry : records.entrySet()) {
+            int from = shardOf(entry.getKey(), shards.length);
+            if (from == shardOf(entry.getValue().personID, shards.length)) {
+                batches.get(from).put(entry.getKey(), entry.getValue());
+            } else if (update(entry.getKey(), entry.getValue())) {
+                updated.add(entry.getKey());
+            }
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (batches.get(shard).isEmpty()) continue;
+            locks[shard].lock();
+            try {
+                updated.addAll(shards[shard].updateAll(batches.get(shard)));
+            } finally {
+                locks[shard].unlock();
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(String personID) throws IOException {
+        int shard = shardOf(personID, shards.length);
+        locks[shard].lock();
+        try {
+            return shards[shard].delete(personID);
+        } finally {
+            locks[shard].unlock();
+        }
+    }
+
+    /**
+     * Visits the shards one after another, each in its own storage order.
+     */
+    @Override
+    public void forEach(Consumer<PersonRecord> action) throws IOException {
+        for (TextPersonStore shard : shards) shard.forEach(action);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (TextPersonStore shard : shards) shard.sync();
+    }
+
+    @Override
+    public void saveIndex() throws IOException {
+        for (TextPersonStore shard : shards) shard.saveIndex();
+    }
+
+    @Override
+    public void close() {
+        for (TextPersonStore shard : shards) shard.close();
+    }
+
+    public static void reshard(Path from, Path to, int shardCount) throws IOException {
+        reshard(from, null, to, shardCount);
+    }
+
+    /**
+     * Copies the store in from, or a single person.txt file, into a new store in to with the given
+     * number of shards. Every record is streamed once and written straight into its new shard
+     * file. Offline only: nothing may write to from meanwhile. to must not hold a store yet; from
+     * is left as it was, so switching over is a matter of pointing the application at to.
+     *
+     * Offences held in demeritLog (see Person.useDemeritLog) are written into the copied Demerit
+     * History lines, so the new store must be used without that log. demeritLog may be null.
+     */
+    public static void reshard(Path from, DemeritEventLog demeritLog, Path to, int shardCount) throws IOException {
+        if (shardCount < 1) throw new IllegalArgumentException("shardCount must be at least 1");
+        if (Files.exists(to.resolve(LAYOUT_FILE))) throw new IOException("There is already a store in " + to);
+
+        List<Path> sources = new ArrayList<>();
+        if (Files.isDirectory(from)) {
+            int oldCount = readShardCount(from);
+            for (int i = 0; i < oldCount; i++) sources.add(shardFile(from, i));
+        } else {
+            sources.add(from);
+        }
+
+        Files.createDirectories(to);
+        RecordWriter[] writers = new RecordWriter[shardCount];
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                writers[i] = RecordWriter.replace(shardFile(to, i));
+            }
+            for (Path source : sources) {
+                if (!Files.exists(source)) continue;
+                try (RecordReader reader = RecordReader.open(source)) {
+                    while (reader.next()) {
+                        PersonRecord record = reader.record();
+                        if (demeritLog != null) record.demeritHistory = demeritLog.historyOf(record.personID, record.demeritHistory);
+                        writers[shardOf(record.personID, shardCount)].write(record);
+                    }
+                }
+            }
+            for (RecordWriter writer : writers) writer.commit();
+        } finally {
+            for (RecordWriter writer : writers) {
+                if (writer != null) writer.close(); //drops the temporary files if a commit did not happen
+            }
+        }
+
+        writeShardCount(to, shardCount); //last, so a half-written copy is never taken for a store
+    }
+
+    /**
+     * Offline resharding: ShardedPersonStore <from store or person.txt> <to directory> <shards> [demerit log directory]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 4) {
+            System.out.println("Usage: ShardedPersonStore <from store or person.txt> <to directory> <shards> [demerit log directory]");
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (args.length == 4) {
+            try (DemeritEventLog demeritLog = new DemeritEventLog(Path.of(args[3]))) {
+                reshard(Path.of(args[0]), demeritLog, Path.of(args[1]), Integer.parseInt(args[2]));
+            }
+        } else {
+            reshard(Path.of(args[0]), Path.of(args[1]), Integer.parseInt(args[2]));
+        }
+        System.out.printf("Resharded %s into %s shards in %s in %.1f s%n", args[0], args[2], args[1], (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,345 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Audits every driver in a person.txt file for suspension in parallel. The file is cut into chunks
+ * of about the same size; each chunk owns the records whose "Name: " line starts inside it, so a
+ * record that crosses a chunk edge is read by exactly one chunk. Each chunk is read into its own
+ * buffer with positional reads and parsed there on a ForkJoinPool, without building Strings for
+ * people who are not reported.
+ *
+ * The rules are the ones in Person.addDemeritPoints: age is the audit year minus the birth year,
+ * and the points on or after two years before the audit day must not exceed 6 (under 21) or 12.
+ * A driver is reported as SUSPENDED when they are over the limit and as NEAR when they are within
+ * 2 points of it.
+ *
+ * With Person.useDemeritLog, offences are held in a DemeritEventLog rather than in the file's
+ * Demerit History lines; pass that log to the constructor and the points it holds for each driver
+ * are counted with the ones in the file, as Person.findById counts them.
+ *
+ * The report is CSV, one line per reported driver in file order: status,personID,age,points,limit.
+ * It is written chunk by chunk in file order. At most two chunks per thread are submitted at a
+ * time, and the next one only once the oldest is written, so memory is bounded by the chunks in
+ * flight, not by the file.
+ */
+public class SuspensionAudit {
+    private static final byte[] NAME = "Name: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID = "ID: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BIRTH_DATE = "Birth Date: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HISTORY = "Demerit History: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOMBSTONE = TextPersonStore.TOMBSTONE.getBytes(StandardCharsets.US_ASCII);
+
+    public static final int NEAR_MARGIN = 2; //points below the limit that still get reported
+
+    private final Path file;
+    private final DemeritEventLog demeritLog; //null if every offence is in the file
+    private final int auditYear;
+    private final int windowStart; //yyyymmdd of two years before the audit day
+    private final int windowStartDay; //the same day as an epoch day, for the log
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long chunkBytes = 8L * 1024 * 1024;
+
+    public SuspensionAudit(Path file, LocalDate today) {
+        this(file, null, today);
+    }
+
+    /**
+     * An audit that also counts the offences held in demeritLog, which may be null.
+     */
+    public SuspensionAudit(Path file, DemeritEventLog demeritLog, LocalDate today) {
+        this.file = file;
+        this.demeritLog = demeritLog;
+        this.auditYear = today.getYear();
+        LocalDate twoYearsAgo = today.minusYears(2);
+        this.windowStart = twoYearsAgo.getYear() * 10000 + twoYearsAgo.getMonthValue() * 100 + twoYearsAgo.getDayOfMonth();
+        this.windowStartDay = (int) twoYearsAgo.toEpochDay();
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    public void setChunkBytes(long chunkBytes) {
+        if (chunkBytes < 1) throw new IllegalArgumentException("chunkBytes must be at least 1");
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Counts of an audit run.
+     */
+    public static class Summary {
+        private long audited;
+        private long suspended;
+        private long near;
+        private long unreadable; //records without a readable ID or birth date
+
+        public long getAudited() {
+            return audited;
+        }
+
+        public long getSuspended() {
+            return suspended;
+        }
+
+        public long getNear() {
+            return near;
+        }
+
+        public long getUnreadable() {
+            return unreadable;
+        }
+
+        private void add(Summary other) {
+            audited += other.audited;
+            suspended += other.suspended;
+            near += other.near;
+            unreadable += other.unreadable;
+        }
+    }
+
+    //what one chunk found
+    private static class ChunkResult {
+        final Summary summary = new Summary();
+        final StringBuilder report = new StringBuilder();
+    }
+
+    /**
+     * Audits the whole file and writes the report to out, starting with a header line.
+     */
+    public Summary run(Writer out) throws IOException {
+        Summary summary = new Summary();
+        out.write("status,personID,age,points,limit\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ArrayDeque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>();
+                int maxInFlight = parallelism * 2; //enough to keep every thread busy while the oldest is written
+                long next = 0;
+                while (next < size || !inFlight.isEmpty()) {
+                    while (next < size && inFlight.size() < maxInFlight) {
+                        inFlight.add(pool.submit(new Chunk(channel, size, next, Math.min(size, next + chunkBytes))));
+                        next += chunkBytes;
+                    }
+
+                    //joined in file order, each chunk is written and dropped as soon as it is done
+                    ChunkResult result = join(inFlight.poll());
+                    out.append(result.report);
+                    summary.add(result.summary);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        out.flush();
+        return summary;
+    }
+
+    private static ChunkResult join(ForkJoinTask<ChunkResult> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        }
+    }
+
+    private class Chunk extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L; //ForkJoinTask is Serializable, chunks are never serialized
+        private final transient FileChannel channel;
+        private final long size;
+        private final long start;
+        private final long end;
+
+        //the chunk from the byte before it, plus however much of the next chunk its last record needs
+        private long base;
+        private byte[] data;
+        private int limit;
+
+        Chunk(FileChannel channel, long size, long start, long end) {
+            this.channel = channel;
+            this.size = size;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult();
+            base = Math.max(0, start - 1); //the byte before tells whether the chunk starts on a line
+            int owned = (int) (end - base); //records must start before this
+            data = new byte[(int) Math.min(size - base, owned + 4096L)];
+            try {
+                read(0, data.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            int pos = start == 0 ? 0 : nextLine(0);
+            while (pos < owned) {
+                if (startsWith(pos, NAME)) {
+                    pos = audit(pos, result);
+                } else {
+                    pos = nextLine(pos); //tombstoned copies and the tail of the previous chunk's record
+                }
+            }
+            data = null; //the task is held until it is joined, its result is all that is needed
+            return result;
+        }
+
+        private void read(int offset, int length) throws IOException {
+            ByteBuffer target = ByteBuffer.wrap(data, offset, length);
+            while (target.hasRemaining()) {
+                if (channel.read(target, base + target.position()) < 0) break;
+            }
+            limit = target.position();
+        }
+
+        //reads further into the file when a record runs past what is loaded, false at the end of the file
+        private boolean more() {
+            long left = size - base - limit;
+            if (left <= 0) return false;
+
+            int extra = (int) Math.min(left, Math.max(limit, 4096));
+            data = Arrays.copyOf(data, limit + extra);
+            try {
+                read(limit, extra);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        //index just past the next '\n' at or after pos
+        private int nextLine(int pos) {
+            while (true) {
+                while (pos < limit && data[pos] != '\n') pos++;
+                if (pos < limit || !more()) return pos + 1;
+            }
+        }
+
+        private boolean startsWith(int pos, byte[] prefix) {
+            while (pos + prefix.length > limit) {
+                if (!more()) return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (data[pos + i] != prefix[i]) return false;
+            }
+            return true;
+        }
+
+        //evaluates the record whose Name line is at pos, returns where the next line after it starts
+        private int audit(int pos, ChunkResult result) {
+            int idStart = -1, idEnd = -1;
+            int birthYear = -1;
+            int points = 0;
+
+            pos = nextLine(pos);
+            while (pos < limit || more()) {
+                if (data[pos] == '\n' || startsWith(pos, NAME) || startsWith(pos, TOMBSTONE)) break; //end of the record
+
+                int lineEnd = nextLine(pos) - 1;
+                if (startsWith(pos, ID)) {
+                    idStart = pos + ID.length;
+                    idEnd = lineEnd;
+                } else if (startsWith(pos, BIRTH_DATE)) {
+                    birthYear = lastNumber(pos + BIRTH_DATE.length, lineEnd);
+                } else if (startsWith(pos, HISTORY)) {
+                    points = windowPoints(pos + HISTORY.length, lineEnd);
+                }
+                pos = lineEnd + 1;
+            }
+
+            Summary summary = result.summary;
+            if (idStart < 0 || birthYear < 0) {
+                summary.unreadable++;
+                return pos;
+            }
+            summary.audited++;
+            if (demeritLog != null) {
+                String personID = new String(data, idStart, idEnd - idStart, StandardCharsets.UTF_8);
+                points += demeritLog.sumSince(personID, windowStartDay);
+            }
+
+            int age = auditYear - birthYear;
+            int max = age < 21 ? 6 : 12;
+            String status;
+            if (points > max) {
+                summary.suspended++;
+                status = "SUSPENDED";
+            } else if (points >= max - NEAR_MARGIN) {
+                summary.near++;
+                status = "NEAR";
+            } else {
+                return pos;
+            }
+
+            result.report.append(status).append(',');
+            for (int i = idStart; i < idEnd; i++) {
+                result.report.append((char) (data[i] & 0xFF));
+            }
+            result.report.append(',').append(age).append(',').append(points).append(',').append(max).append('\n');
+            return pos;
+        }
+
+        //the number after the last '-' of DD-MM-YYYY, or -1
+        private int lastNumber(int from, int to) {
+            int dash = to - 1;
+            while (dash >= from && data[dash] != '-') dash--;
+            return digits(dash + 1, to);
+        }
+
+        //digits from..to as a number, or -1 if there are none or anything else
+        private int digits(int from, int to) {
+            if (from >= to || to - from > 9) return -1;
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) return -1;
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        //sums the "points on yyyy-MM-dd" entries that are inside the window, skipping malformed ones
+        private int windowPoints(int from, int to) {
+            int total = 0;
+            int entry = from;
+            while (entry < to) {
+                int entryEnd = entry;
+                while (entryEnd < to && data[entryEnd] != ',') entryEnd++;
+
+                //"p on yyyy-MM-dd", the date is the last 10 characters
+                int dateStart = entryEnd - 10;
+                int on = dateStart - 4;
+                if (on > entry && data[on] == ' ' && data[on + 1] == 'o' && data[on + 2] == 'n' && data[on + 3] == ' ') {
+                    int point = digits(entry, on);
+                    int year = digits(dateStart, dateStart + 4);
+                    int month = digits(dateStart + 5, dateStart + 7);
+                    int day = digits(dateStart + 8, dateStart + 10);
+                    if (point >= 0 && year >= 0 && month >= 0 && day >= 0 && year * 10000 + month * 100 + day >= windowStart) {
+                        total += point;
+                    }
+                }
+
+                entry = entryEnd + 2; //past ", "
+            }
+            return total;
+        }
+    }
+}
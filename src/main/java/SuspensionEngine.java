@@ -0,0 +1,163 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps a running two-year demerit total for every tracked person and re-evaluates suspension
+ * incrementally. Each offence schedules its own expiry on the day it leaves the window, so moving
+ * the clock forward only touches people whose points expire in between, plus people who turn 21
+ * when the year changes (their threshold goes from 6 to 12).
+ *
+ * The rules are the ones in Person.addDemeritPoints: age is the current year minus the birth year,
+ * and a person is suspended when the points on or after two years ago exceed 6 (under 21) or 12.
+ */
+public class SuspensionEngine {
+    private static class Tracked {
+        String personID;
+        int birthYear;
+        int total; //points inside the window
+        boolean suspended;
+    }
+
+    private static class Expiry {
+        final Tracked person;
+        final int points;
+
+        Expiry(Tracked person, int points) {
+            this.person = person;
+            this.points = points;
+        }
+    }
+
+    private final HashMap<String, Tracked> persons = new HashMap<>();
+    private final TreeMap<Integer, ArrayList<Expiry>> expiries = new TreeMap<>(); //epoch day -> points leaving the window that day
+    private final HashMap<Integer, HashSet<Tracked>> byBirthYear = new HashMap<>();
+    private final ArrayList<BiConsumer<String, Boolean>> listeners = new ArrayList<>();
+    private LocalDate today;
+
+    public SuspensionEngine(LocalDate today) {
+        this.today = today;
+    }
+
+    /**
+     * Called with (personID, suspended) whenever a person is suspended or unsuspended.
+     */
+    public synchronized void addListener(BiConsumer<String, Boolean> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts tracking the person. Returns false if they were tracked already.
+     */
+    public synchronized boolean track(String personID, String birthDate) {
+        if (persons.containsKey(personID)) return false;
+
+        Tracked person = new Tracked();
+        person.personID = personID;
+        person.birthYear = birthYearOf(birthDate);
+        persons.put(personID, person);
+        byBirthYear.computeIfAbsent(person.birthYear, year -> new HashSet<>()).add(person);
+        return true;
+    }
+
+    private static int birthYearOf(String birthDate) {
+        return Integer.parseInt(birthDate.split("-")[2]);
+    }
+
+    public synchronized void rename(String personID, String newPersonID) {
+        Tracked person = persons.remove(personID);
+        if (person == null) return;
+
+        person.personID = newPersonID; //scheduled expiries hold the object, not the ID
+        persons.put(newPersonID, person);
+    }
+
+    public synchronized void changeBirthDate(String personID, String birthDate) {
+        Tracked person = persons.get(personID);
+        if (person == null) return;
+
+        byBirthYear.get(person.birthYear).remove(person);
+        person.birthYear = birthYearOf(birthDate);
+        byBirthYear.computeIfAbsent(person.birthYear, year -> new HashSet<>()).add(person);
+        evaluate(person);
+    }
+
+    /**
+     * Adds an offence to the person's running total and schedules the day it expires.
+     */
+    public synchronized void record(String personID, LocalDate offenseDate, int points) {
+        Tracked person = persons.get(personID);
+        if (person == null) return;
+
+        //same boundary as getDemeritPoints: the offence counts while it is not before today minus two years
+        LocalDate expiresOn = offenseDate.plusYears(2).plusDays(1);
+        if (!expiresOn.isAfter(today)) return; //already outside the window
+
+        person.total += points;
+        expiries.computeIfAbsent((int) expiresOn.toEpochDay(), day -> new ArrayList<>()).add(new Expiry(person, points));
+        evaluate(person);
+    }
+
+    /**
+     * Moves the clock forward: rolls off every point whose window ends on or before the new day,
+     * and re-checks people whose age threshold changes with the year. Returns how many people
+     * were re-evaluated.
+     */
+    public synchronized int advanceTo(LocalDate day) {
+        if (!day.isAfter(today)) return 0;
+
+        HashSet<Tracked> touched = new HashSet<>();
+        Map<Integer, ArrayList<Expiry>> due = expiries.headMap((int) day.toEpochDay(), true);
+        for (ArrayList<Expiry> bucket : due.values()) {
+            for (Expiry expiry : bucket) {
+                expiry.person.total -= expiry.points;
+                touched.add(expiry.person);
+            }
+        }
+        due.clear();
+
+        //people turning 21 in any new year move to the higher threshold
+        for (int year = today.getYear() + 1; year <= day.getYear(); year++) {
+            HashSet<Tracked> turning21 = byBirthYear.get(year - 21);
+            if (turning21 != null) touched.addAll(turning21);
+        }
+
+        today = day;
+        for (Tracked person : touched) {
+            evaluate(person);
+        }
+        return touched.size();
+    }
+
+    private void evaluate(Tracked person) {
+        int age = today.getYear() - person.birthYear;
+        boolean suspended = age < 21 ? person.total > 6 : person.total > 12;
+        if (suspended == person.suspended) return;
+
+        person.suspended = suspended;
+        for (BiConsumer<String, Boolean> listener : listeners) {
+            listener.accept(person.personID, suspended);
+        }
+    }
+
+    public synchronized boolean isSuspended(String personID) {
+        Tracked person = persons.get(personID);
+        return person != null && person.suspended;
+    }
+
+    /**
+     * Points inside the two-year window as of the engine's current day.
+     */
+    public synchronized int windowTotal(String personID) {
+        Tracked person = persons.get(personID);
+        return person == null ? 0 : person.total;
+    }
+
+    public synchronized LocalDate today() {
+        return today;
+    }
+}
@@ -0,0 +1,392 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The person.txt store: 5 labelled lines plus an empty line per person, found through a PersonIndex.
+ *
+ * Records are never rewritten in place. An update appends the new copy and forces it to disk, then
+ * turns the old copy into a tombstone by overwriting "Name" with "Void", which keeps the file
+ * length and layout unchanged. An update therefore costs I/O for one record, and a crash at any
+ * point leaves at least one complete copy. Once tombstones outnumber live records the file is
+ * compacted in the background into a new file that replaces the old one by an atomic rename.
+ *
+ * The index is saved next to the file by close(), after a compaction and by saveIndex(), so opening
+ * the store maps the saved index and parses only records appended since, see PersonIndex. sync()
+ * only forces the file: writing the index takes seconds for millions of records, and sync() is
+ * called at every WalPersonStore checkpoint while writers wait. saveIndex() copies the index under
+ * the lock and writes the copy after releasing it, so writers only wait for the copy.
+ */
+public class TextPersonStore implements PersonStore {
+    static final String TOMBSTONE = "Void: "; //same length as "Name: "
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "person-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path filePath;
+    private final PersonIndex index;
+    private final ReentrantLock lock = new ReentrantLock(); //not a monitor, so a virtual thread waiting on fsync does not pin its carrier
+    private final ReentrantLock saveLock = new ReentrantLock(); //one index save at a time, taken before lock
+    private int compactionThreshold = 1024; //minimum number of tombstones before compacting
+    private boolean forceOnWrite = true;
+    private boolean compactionScheduled;
+
+    public TextPersonStore(Path filePath) throws IOException {
+        this.filePath = filePath;
+        this.index = new PersonIndex(filePath);
+        index.open(); //from the saved index when there is one
+
+        //copies left behind by an update that was interrupted before its tombstone was written
+        if (!index.staleOffsets().isEmpty()) {
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (long offset : index.staleOffsets()) {
+                    writeTombstone(channel, offset);
+                }
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Sets how many tombstones must pile up (and outnumber live records) before the file is compacted.
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        lock.lock();
+        try {
+            this.compactionThreshold = compactionThreshold;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Turns the fsync after every append off, for when a write-ahead log already makes mutations
+     * durable and sync() is called at checkpoints instead.
+     */
+    public void setForceOnWrite(boolean forceOnWrite) {
+        lock.lock();
+        try {
+            this.forceOnWrite = forceOnWrite;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    //appends the record at the end of the file and forces it to disk, returns its offset
+    private long appendRecord(FileChannel channel, PersonRecord record) throws IOException {
+        long offset;
+        try (RecordWriter writer = RecordWriter.append(channel, 1024)) {
+            offset = writer.write(record);
+        }
+        if (forceOnWrite) channel.force(false);
+        return offset;
+    }
+
+    private void writeTombstone(FileChannel channel, long offset) throws IOException {
+        ByteBuffer marker = ByteBuffer.wrap(TOMBSTONE.getBytes(StandardCharsets.UTF_8));
+        PersonMetrics.countWritten(marker.remaining());
+        while (marker.hasRemaining()) channel.write(marker, offset + marker.position());
+        index.addTombstone();
+    }
+
+    @Override
+    public boolean contains(String personID) {
+        lock.lock();
+        try {
+            return index.contains(personID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PersonRecord find(String personID) throws IOException {
+        lock.lock();
+        try {
+            long offset = index.offsetOf(personID);
+            if (offset < 0) return null;
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                RecordReader reader = new RecordReader(channel, offset, 4096);
+                if (!reader.next()) return null; //record is cut short
+                return reader.record().copy();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(PersonRecord record) throws IOException {
+        lock.lock();
+        try {
+            if (index.contains(record.personID)) return false;
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                index.put(record.personID, appendRecord(channel, record)); //new record goes at the end of the file
+            }
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends all new records through one buffered channel and forces the file once at the end.
+     */
+    @Override
+    public int insertAll(Iterator<PersonRecord> records) throws IOException {
+        lock.lock();
+        try {
+            int added = 0;
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 RecordWriter writer = RecordWriter.append(channel)) {
+                while (records.hasNext()) {
+                    PersonRecord record = records.next();
+                    if (index.contains(record.personID)) continue;
+
+                    index.put(record.personID, writer.write(record));
+                    added++;
+                }
+
+                writer.flush();
+                channel.force(false);
+            }
+
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean update(String personID, PersonRecord record) throws IOException {
+        lock.lock();
+        try {
+            long offset = index.offsetOf(personID);
+            if (offset < 0) return false;
+
+            if (!personID.equals(record.personID) && index.contains(record.personID)) return false;
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long newOffset = appendRecord(channel, record); //new copy is durable before the old one goes
+                writeTombstone(channel, offset);
+                if (forceOnWrite) channel.force(false);
+
+                index.remove(personID);
+                index.put(record.personID, newOffset);
+            }
+
+            scheduleCompaction();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends every new copy through one buffer and forces them once, then tombstones all the old
+     * copies and forces again, so a batch costs two syncs whatever its size.
+     */
+    @Override
+    public Set<String> updateAll(Map<String, PersonRecord> records) throws IOException {
+        lock.lock();
+        try {
+            ArrayList<String> keys = new ArrayList<>();
+            ArrayList<PersonRecord> written = new ArrayList<>();
+            ArrayList<Long> newOffsets = new ArrayList<>();
+            Set<String> newIDs = new HashSet<>(); //IDs taken by renames earlier in the batch
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                try (RecordWriter writer = RecordWriter.append(channel)) {
+                    for (Map.Entry<String, PersonRecord> entry : records.entrySet()) {
+                        String personID = entry.getKey();
+                        PersonRecord record = entry.getValue();
+                        if (!index.contains(personID)) continue;
+                        if (!personID.equals(record.personID) && (index.contains(record.personID) || !newIDs.add(record.personID))) continue;
+
+                        keys.add(personID);
+                        written.add(record);
+                        newOffsets.add(writer.write(record));
+                    }
+                }
+                if (forceOnWrite) channel.force(false); //new copies are durable before the old ones go
+
+                for (int i = 0; i < keys.size(); i++) {
+                    writeTombstone(channel, index.offsetOf(keys.get(i)));
+                    index.remove(keys.get(i));
+                }
+                for (int i = 0; i < keys.size(); i++) {
+                    index.put(written.get(i).personID, newOffsets.get(i));
+                }
+                if (forceOnWrite) channel.force(false);
+            }
+
+            scheduleCompaction();
+            return new HashSet<>(keys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Turns the record into a tombstone, which compaction drops later.
+     */
+    @Override
+    public boolean delete(String personID) throws IOException {
+        lock.lock();
+        try {
+            long offset = index.offsetOf(personID);
+            if (offset < 0) return false;
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+                writeTombstone(channel, offset);
+                if (forceOnWrite) channel.force(false);
+            }
+            index.remove(personID);
+
+            scheduleCompaction();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //the counts may be off after an unclean shutdown (see PersonIndex), which only makes this later
+    private void scheduleCompaction() {
+        if (compactionScheduled) return;
+        if (index.tombstones() < compactionThreshold || index.tombstones() < index.size()) return;
+
+        compactionScheduled = true;
+        COMPACTOR.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rewrites the file without tombstones. The live records are copied into a temporary file,
+     * which is forced to disk and then renamed over person.txt, so the old file stays intact
+     * until the new one is complete. The index is then rebuilt from the new file, which also makes
+     * its record and tombstone counts exact again after an open from a snapshot.
+     */
+    public void compact() throws IOException {
+        saveLock.lock(); //a save copied before the rewrite must not land after it
+        lock.lock();
+        try {
+            compactionScheduled = false;
+            if (!Files.exists(filePath)) return;
+
+            try (RecordReader reader = RecordReader.open(filePath);
+                 RecordWriter writer = RecordWriter.replace(filePath)) {
+                while (reader.next()) {
+                    writer.write(reader.record()); //written straight away, so the reused record is fine
+                }
+                index.discardSnapshot(); //its offsets are about to change
+                writer.commit();
+            }
+
+            index.build();
+            index.save();
+        } finally {
+            lock.unlock();
+            saveLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<PersonRecord> action) throws IOException {
+        lock.lock();
+        try {
+            if (!Files.exists(filePath)) return;
+
+            try (RecordReader reader = RecordReader.open(filePath)) {
+                while (reader.next()) {
+                    action.accept(reader.record().copy()); //the action may keep it
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            if (!Files.exists(filePath)) return;
+
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+                channel.force(true); //only the file, saving the index costs seconds on a large file
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saves the index for the next open, as a checkpoint while the store is in use. Writers wait
+     * only while the index is copied, not while the copy is written.
+     */
+    @Override
+    public void saveIndex() throws IOException {
+        saveLock.lock();
+        try {
+            PersonIndex.Checkpoint checkpoint;
+            lock.lock();
+            try {
+                checkpoint = index.checkpoint();
+            } finally {
+                lock.unlock();
+            }
+            if (checkpoint != null) checkpoint.write();
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Every write goes straight to the file, so closing only forces it and saves the index for the
+     * next open.
+     */
+    @Override
+    public void close() {
+        saveLock.lock();
+        lock.lock();
+        try {
+            sync();
+            index.save();
+            index.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            lock.unlock();
+            saveLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Puts a write-ahead log in front of another store. Every insert and update is logged as one
+ * compact entry (the key it was stored under plus the full new record) and applied to the store
+ * without forcing it to disk, once the group commit holding the entry is durable. The store itself
+ * is only synced at checkpoints, after which the log is emptied.
+ *
+ * Entries are upserts or deletes, so replaying a log over a store that already has some of them
+ * applied gives the same result. The log is replayed when the store is opened.
+ *
+ * A mutation claims the IDs it touches while it is checked and logged, and keeps them until it is
+ * applied, so mutations of the same person reach the store in log order while mutations of
+ * different persons share group commits. If the log fails, the store is left unchanged.
+ */
+public class WalPersonStore implements PersonStore {
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+
+    private final PersonStore store;
+    private final WriteAheadLog log;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition applied = lock.newCondition();
+    private final Set<String> claimed = new HashSet<>(); //IDs with a mutation between its check and its apply
+    private boolean draining; //a checkpoint or bulk load is waiting for the claimed mutations
+    private long checkpointBytes = 64L * 1024 * 1024; //checkpoint once the log grows past this
+
+    private WalPersonStore(PersonStore store, WriteAheadLog log) {
+        this.store = store;
+        this.log = log;
+    }
+
+    /**
+     * Opens a logged store over person.txt at textFile, with the log next to it in textFile + ".wal".
+     */
+    public static WalPersonStore open(Path textFile, long flushIntervalMillis, int maxBatchBytes) throws IOException {
+        TextPersonStore text = new TextPersonStore(textFile);
+        text.setForceOnWrite(false); //the log makes mutations durable
+        return open(text, Paths.get(textFile + ".wal"), flushIntervalMillis, maxBatchBytes);
+    }
+
+    public static WalPersonStore open(PersonStore store, Path logFile, long flushIntervalMillis, int maxBatchBytes) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(logFile, flushIntervalMillis, maxBatchBytes);
+        WalPersonStore walStore = new WalPersonStore(store, log);
+
+        try {
+            log.replay(entry -> {
+                try {
+                    walStore.apply(entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        walStore.checkpoint(); //replayed entries are in the store now
+        return walStore;
+    }
+
+    public void setCheckpointBytes(long checkpointBytes) {
+        lock.lock();
+        try {
+            this.checkpointBytes = checkpointBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //every field as a length and its UTF-8 bytes, writeUTF stops at 65535 bytes
+    private static void writeField(DataOutputStream out, String field) throws IOException {
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readField(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(String key, PersonRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(UPSERT);
+        writeField(out, key);
+        writeField(out, record.personID);
+        writeField(out, record.firstName);
+        writeField(out, record.lastName);
+        writeField(out, record.address);
+        writeField(out, record.birthDate);
+        writeField(out, record.demeritHistory);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DELETE);
+        writeField(out, key);
+        return bytes.toByteArray();
+    }
+
+    private void apply(byte[] entry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        byte type = in.readByte();
+        String key = readField(in);
+        if (type == DELETE) {
+            store.delete(key); //may already be gone
+            return;
+        }
+        if (type != UPSERT) throw new IOException("Unknown log entry type " + type);
+        PersonRecord record = new PersonRecord(readField(in), readField(in), readField(in), readField(in), readField(in), readField(in));
+
+        //upsert: the store may already hold this entry, or only part of it
+        if (store.contains(key)) {
+            store.update(key, record);
+        } else if (store.contains(record.personID)) {
+            store.update(record.personID, record);
+        } else {
+            store.insert(record);
+        }
+    }
+
+    //waits until no other mutation holds any of the IDs, then claims them all at once; called with the lock held
+    private void claim(List<String> personIDs) {
+        while (draining || personIDs.stream().anyMatch(claimed::contains)) {
+            applied.awaitUninterruptibly();
+        }
+        claimed.addAll(personIDs);
+    }
+
+    //called with the lock held
+    private void unclaim(List<String> personIDs) {
+        claimed.removeAll(personIDs);
+        applied.signalAll();
+    }
+
+    private void release(List<String> personIDs) {
+        lock.lock();
+        try {
+            unclaim(personIDs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //waits until every claimed mutation is applied, holding new ones back meanwhile; called with the lock held
+    private void drain() {
+        draining = true;
+        try {
+            while (!claimed.isEmpty()) {
+                applied.awaitUninterruptibly();
+            }
+        } finally {
+            draining = false;
+            applied.signalAll();
+        }
+    }
+
+    @Override
+    public boolean contains(String personID) {
+        return store.contains(personID);
+    }
+
+    @Override
+    public PersonRecord find(String personID) throws IOException {
+        return store.find(personID);
+    }
+
+    @Override
+    public boolean insert(PersonRecord record) throws IOException {
+        List<String> ids = List.of(record.personID);
+        byte[] entry = encode(record.personID, record);
+        long batch;
+        lock.lock();
+        try {
+            claim(ids);
+            if (store.contains(record.personID)) {
+                unclaim(ids);
+                return false;
+            }
+            batch = log.enqueue(entry);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            log.awaitDurable(batch); //the store only changes once the entry is on disk
+            store.insert(record);
+        } finally {
+            release(ids);
+        }
+        checkpointIfNeeded();
+        return true;
+    }
+
+    /**
+     * Bulk loads bypass the log: the records go straight to the store, which is synced before returning.
+     */
+    @Override
+    public int insertAll(Iterator<PersonRecord> records) throws IOException {
+        lock.lock();
+        try {
+            drain(); //logged mutations go first
+            int added = store.insertAll(records);
+            store.sync();
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean update(String personID, PersonRecord record) throws IOException {
+        List<String> ids = personID.equals(record.personID) ? List.of(personID) : List.of(personID, record.personID);
+        byte[] entry = encode(personID, record);
+        long batch;
+        lock.lock();
+        try {
+            claim(ids);
+            if (!store.contains(personID) || (!personID.equals(record.personID) && store.contains(record.personID))) {
+                unclaim(ids);
+                return false;
+            }
+            batch = log.enqueue(entry);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            log.awaitDurable(batch);
+            store.update(personID, record);
+        } finally {
+            release(ids);
+        }
+        checkpointIfNeeded();
+        return true;
+    }
+
+    /**
+     * Logs the whole batch, waits for the log once and applies the batch to the store in one call.
+     */
+    @Override
+    public Set<String> updateAll(Map<String, PersonRecord> records) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, PersonRecord> entry : records.entrySet()) {
+            ids.add(entry.getKey());
+            if (!entry.getKey().equals(entry.getValue().personID)) ids.add(entry.getValue().personID);
+        }
+
+        long batch = -1;
+        Map<String, PersonRecord> accepted = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            claim(ids);
+            Set<String> newIDs = new HashSet<>(); //IDs taken by renames earlier in the batch
+            for (Map.Entry<String, PersonRecord> entry : records.entrySet()) {
+                String personID = entry.getKey();
+                PersonRecord record = entry.getValue();
+                if (!store.contains(personID)) continue;
+                if (!personID.equals(record.personID) && (store.contains(record.personID) || !newIDs.add(record.personID))) continue;
+                batch = log.enqueue(encode(personID, record));
+                accepted.put(personID, record);
+            }
+        } catch (IOException | RuntimeException e) {
+            unclaim(ids);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+
+        Set<String> updated;
+        try {
+            if (batch >= 0) log.awaitDurable(batch); //batches become durable in order
+            updated = accepted.isEmpty() ? new HashSet<>() : store.updateAll(accepted);
+        } finally {
+            release(ids);
+        }
+        checkpointIfNeeded();
+        return updated;
+    }
+
+    @Override
+    public boolean delete(String personID) throws IOException {
+        List<String> ids = List.of(personID);
+        byte[] entry = encodeDelete(personID);
+        long batch;
+        lock.lock();
+        try {
+            claim(ids);
+            if (!store.contains(personID)) {
+                unclaim(ids);
+                return false;
+            }
+            batch = log.enqueue(entry);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            log.awaitDurable(batch);
+            store.delete(personID);
+        } finally {
+            release(ids);
+        }
+        checkpointIfNeeded();
+        return true;
+    }
+
+    private void checkpointIfNeeded() throws IOException {
+        if (log.size() >= checkpointBytes) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Syncs the store and empties the log, once every logged mutation has reached the store, then
+     * saves the store's index with writers let through again.
+     */
+    public void checkpoint() throws IOException {
+        lock.lock();
+        try {
+            drain(); //an entry may be durable but not applied yet
+            store.sync();
+            log.truncate();
+        } finally {
+            lock.unlock();
+        }
+        store.saveIndex();
+    }
+
+    @Override
+    public void saveIndex() throws IOException {
+        store.saveIndex();
+    }
+
+    @Override
+    public void forEach(Consumer<PersonRecord> action) throws IOException {
+        store.forEach(action);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        checkpoint();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            checkpoint();
+            log.close();
+            store.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
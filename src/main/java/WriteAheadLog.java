@@ -0,0 +1,240 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log with group commit. Entries handed to enqueue() are collected into a batch; a
+ * flusher thread writes the whole batch with one write and one fsync once the flush interval
+ * has passed or the batch is full, then wakes every writer waiting on that batch. The cost of
+ * an fsync is shared by everyone in the batch instead of being paid once per mutation.
+ *
+ * Each entry is framed as length, CRC32, payload. On replay a torn or corrupt entry at the end
+ * marks where the log stops, and anything after it is cut off.
+ */
+public class WriteAheadLog {
+    private final Path filePath;
+    private final FileChannel channel;
+    private final long flushIntervalNanos;
+    private final int maxBatchBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private ArrayList<ByteBuffer> pending = new ArrayList<>();
+    private int pendingBytes;
+    private long batchSequence = 1; //batch the next entry goes into
+    private long durableSequence; //last batch that is on disk
+    private IOException failure;
+    private boolean running = true;
+    private final Thread flusher;
+
+    /**
+     * @param flushIntervalMillis how long a batch may wait for more entries, 0 to flush as soon as the previous fsync is done
+     * @param maxBatchBytes       a batch this big is flushed without waiting for the interval
+     */
+    public WriteAheadLog(Path filePath, long flushIntervalMillis, int maxBatchBytes) throws IOException {
+        this.filePath = filePath;
+        this.channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxBatchBytes = maxBatchBytes;
+
+        flusher = new Thread(this::flushLoop, "wal-flusher-" + filePath.getFileName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Reads back every intact entry in log order and cuts off a torn entry at the end, if any.
+     * Must be called before the first enqueue().
+     */
+    public int replay(Consumer<byte[]> action) throws IOException {
+        long goodLength = 0;
+        int count = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filePath), 64 * 1024))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break; //clean end of the log
+                }
+
+                byte[] payload;
+                long checksum;
+                try {
+                    checksum = in.readInt() & 0xFFFFFFFFL;
+                    if (length < 0 || length > channel.size()) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break; //torn write
+                }
+
+                crc.reset();
+                crc.update(payload);
+                if (crc.getValue() != checksum) break;
+
+                action.accept(payload);
+                goodLength += 8 + length;
+                count++;
+            }
+        }
+
+        channel.truncate(goodLength);
+        channel.position(goodLength);
+        return count;
+    }
+
+    /**
+     * Queues an entry for the next group commit and returns the batch it belongs to. The entry is
+     * only durable once awaitDurable() returns for that batch.
+     */
+    public long enqueue(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        PersonMetrics.countWritten(frame.remaining()); //on the caller's thread, the flush thread has no trace
+
+        lock.lock();
+        try {
+            pending.add(frame);
+            pendingBytes += frame.remaining();
+            if (pending.size() == 1 || pendingBytes >= maxBatchBytes) {
+                batchReady.signal();
+            }
+            return batchSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void awaitDurable(long batch) throws IOException {
+        lock.lock();
+        try {
+            while (durableSequence < batch && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) throw new IOException("Write-ahead log failed", failure);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void append(byte[] payload) throws IOException {
+        awaitDurable(enqueue(payload));
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long sequence;
+
+            lock.lock();
+            try {
+                while (pending.isEmpty() && running) {
+                    batchReady.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) return; //closed and drained
+
+                //give the batch time to fill up, unless it is already full
+                long remaining = flushIntervalNanos;
+                while (running && pendingBytes < maxBatchBytes && remaining > 0) {
+                    try {
+                        remaining = batchReady.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+
+                batch = pending;
+                sequence = batchSequence++;
+                pending = new ArrayList<>();
+                pendingBytes = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long total = 0;
+                for (ByteBuffer buffer : buffers) total += buffer.remaining();
+                while (total > 0) total -= channel.write(buffers);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = sequence;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry. Only safe once the store they were applied to has been synced, and while
+     * nobody enqueues; batches already queued are written out first.
+     */
+    public void truncate() throws IOException {
+        lock.lock();
+        try {
+            while ((!pending.isEmpty() || durableSequence < batchSequence - 1) && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) throw new IOException("Write-ahead log failed", failure);
+
+            channel.truncate(0);
+            channel.position(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Flushes whatever is still queued and stops the flusher thread.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            running = false;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,160 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryPersonStoreTest {
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("binary-store");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static PersonRecord john() {
+        return new PersonRecord("56@#df&*AB", "John", "Doe",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000", "");
+    }
+
+    @Test
+    public void testInsertAndFind_ShouldRoundTrip() throws IOException {
+        try (BinaryPersonStore store = BinaryPersonStore.open(dir.resolve("person.bin"))) {
+            assertTrue(store.insert(john()));
+            assertFalse(store.insert(john()));
+
+            PersonRecord found = store.find("56@#df&*AB");
+            assertEquals(john().toText(), found.toText());
+        }
+    }
+
+    @Test
+    public void testUpdate_ShouldPersistAcrossReopen() throws IOException {
+        Path path = dir.resolve("person.bin");
+        try (BinaryPersonStore store = BinaryPersonStore.open(path)) {
+            store.insert(john());
+
+            PersonRecord changed = john();
+            changed.personID = "57@#df&*AB";
+            changed.demeritHistory = "3 on 2024-05-01, 2 on 2024-06-01";
+            assertTrue(store.update("56@#df&*AB", changed));
+        }
+
+        try (BinaryPersonStore store = BinaryPersonStore.open(path)) {
+            assertFalse(store.contains("56@#df&*AB"));
+            assertEquals("3 on 2024-05-01, 2 on 2024-06-01", store.find("57@#df&*AB").demeritHistory);
+        }
+    }
+
+    @Test
+    public void testUpdate_AddedOffences_ShouldAppendOnlyTheNewEntries() throws IOException {
+        Path path = dir.resolve("person.bin");
+        PersonRecord record = john();
+        StringBuilder history = new StringBuilder();
+        try (BinaryPersonStore store = BinaryPersonStore.open(path)) {
+            store.setForceOnWrite(false);
+            store.insert(record);
+            for (int day = 1; day <= 100; day++) {
+                if (history.length() > 0) history.append(", ");
+                history.append("1 on ").append(LocalDate.ofEpochDay(day));
+                record.demeritHistory = history.toString();
+                assertTrue(store.update(record.personID, record));
+                assertEquals(record.demeritHistory, store.find(record.personID).demeritHistory);
+            }
+
+            //rewriting all of it every time would be 100 * 101 / 2 entries of 5 bytes
+            assertTrue(store.overflowSize() < 100 * 101 / 2 * 5 / 4);
+        }
+
+        try (BinaryPersonStore store = BinaryPersonStore.open(path)) {
+            assertEquals(history.toString(), store.find(record.personID).demeritHistory);
+        }
+    }
+
+    @Test
+    public void testUpdate_EarlierOffence_ShouldRewriteTheHistory() throws IOException {
+        try (BinaryPersonStore store = BinaryPersonStore.open(dir.resolve("person.bin"))) {
+            PersonRecord record = john();
+            record.demeritHistory = "3 on 2024-05-01";
+            store.insert(record);
+
+            record.demeritHistory = "2 on 2024-01-01, 3 on 2024-05-01";
+            assertTrue(store.update(record.personID, record));
+            assertEquals("2 on 2024-01-01, 3 on 2024-05-01", store.find(record.personID).demeritHistory);
+        }
+    }
+
+    @Test
+    public void testUpdate_IdTaken_ShouldLeaveBothRecords() throws IOException {
+        try (BinaryPersonStore store = BinaryPersonStore.open(dir.resolve("person.bin"))) {
+            PersonRecord other = john();
+            other.personID = "57@#df&*AB";
+            other.firstName = "Jane";
+            store.insert(john());
+            store.insert(other);
+
+            PersonRecord renamed = john();
+            renamed.personID = "57@#df&*AB";
+            assertFalse(store.update("56@#df&*AB", renamed));
+
+            assertEquals(2, store.size());
+            assertEquals("John", store.find("56@#df&*AB").firstName);
+            assertEquals("Jane", store.find("57@#df&*AB").firstName);
+            List<String> ids = new ArrayList<>();
+            store.forEach(record -> ids.add(record.personID));
+            assertEquals(List.of("56@#df&*AB", "57@#df&*AB"), ids);
+        }
+    }
+
+    @Test
+    public void testInsert_ManyRecords_ShouldGrowMapping() throws IOException {
+        try (BinaryPersonStore store = BinaryPersonStore.open(dir.resolve("person.bin"))) {
+            for (int i = 0; i < 500; i++) {
+                PersonRecord record = john();
+                record.personID = String.format("56@#%04dAB", i);
+                assertTrue(store.insert(record));
+            }
+
+            assertEquals(500, store.size());
+            assertEquals("Doe", store.find("56@#0499AB").lastName);
+        }
+    }
+
+    @Test
+    public void testInsert_FieldTooWide_ShouldReturnFalse() throws IOException {
+        try (BinaryPersonStore store = BinaryPersonStore.open(dir.resolve("person.bin"))) {
+            PersonRecord record = john();
+            record.firstName = "J".repeat(100);
+            assertFalse(store.insert(record));
+        }
+    }
+
+    @Test
+    public void testConvert_TextToBinaryAndBack_ShouldKeepContent() throws IOException {
+        Path text = dir.resolve("person.txt");
+        PersonRecord jane = new PersonRecord("77!!xy$%CD", "Jane", "Smith",
+                "1 | Main Road | Geelong | Victoria | Australia", "01-02-1990", "3 on 2024-05-01");
+        Files.writeString(text, john().toText() + jane.toText());
+
+        BinaryPersonStore.convertFromText(text, dir.resolve("person.bin"));
+        BinaryPersonStore.convertToText(dir.resolve("person.bin"), dir.resolve("copy.txt"));
+
+        assertEquals(Files.readString(text), Files.readString(dir.resolve("copy.txt")));
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkImporterTest {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path dir;
+    private TextPersonStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("bulk-import");
+        store = new TextPersonStore(dir.resolve("person.txt"));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testImportCsv_ShouldWriteValidRowsAndReportRejects() throws IOException {
+        store.insert(new PersonRecord("88@#df&*AB", "Old", "Timer", ADDRESS, "01-01-1970", ""));
+        Path csv = dir.resolve("people.csv");
+        Files.writeString(csv, String.join("\n",
+                "personID,firstName,lastName,address,birthDate",
+                "56@#df&*AB,John,Doe," + ADDRESS + ",15-11-2000",
+                "57@#df&*AB,\"Mary,Jane\",Smith," + ADDRESS + ",01-02-1990",
+                "12badidAB,Bad,Id," + ADDRESS + ",15-11-2000",
+                "58@#df&*AB,Bad,State,32 | Highland Street | Sydney | New South Wales | Australia,15-11-2000",
+                "59@#df&*AB,Bad,Date," + ADDRESS + ",15/11/2000",
+                "56@#df&*AB,John,Again," + ADDRESS + ",15-11-2000",
+                "88@#df&*AB,Old,Timer," + ADDRESS + ",01-01-1970",
+                "too,few,fields"));
+
+        BulkImporter.Result result = new BulkImporter(store).importCsv(csv);
+
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(
+                "line 4: invalid ID",
+                "line 5: invalid address",
+                "line 6: invalid birth date",
+                "line 7: duplicate ID",
+                "line 8: duplicate ID",
+                "line 9: wrong number of fields"), result.getRejects());
+        assertEquals("Mary,Jane", store.find("57@#df&*AB").getFirstName());
+        assertEquals("Doe", store.find("56@#df&*AB").getLastName());
+    }
+
+    @Test
+    public void testImportText_ShouldCopyRecordsWithHistory() throws IOException {
+        Path text = dir.resolve("region.txt");
+        PersonRecord dead = new PersonRecord("56@#df&*AB", "John", "Doe", ADDRESS, "15-11-2000", "");
+        PersonRecord live = new PersonRecord("56@#df&*AB", "Jake", "Doe", ADDRESS, "15-11-2000", "3 on 2024-05-01");
+        Files.writeString(text, dead.toText().replaceFirst("Name: ", TextPersonStore.TOMBSTONE) + live.toText());
+
+        BulkImporter.Result result = new BulkImporter(store).importText(text);
+
+        assertEquals(1, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals(live.toText(), Files.readString(dir.resolve("person.txt")));
+    }
+
+    @Test
+    public void testImportText_WithDemeritLog_ShouldWriteLoggedOffencesIntoHistory() throws IOException {
+        Path text = dir.resolve("region.txt");
+        Files.writeString(text, new PersonRecord("56@#df&*AB", "John", "Doe", ADDRESS, "15-11-2000", "3 on 2024-05-01").toText());
+
+        try (DemeritEventLog log = new DemeritEventLog(dir.resolve("demerits"))) {
+            log.append("56@#df&*AB", LocalDate.of(2025, 1, 10), 2);
+            assertEquals(1, new BulkImporter(store).importText(text, log).getImported());
+        }
+
+        assertEquals("3 on 2024-05-01, 2 on 2025-01-10", store.find("56@#df&*AB").getDemeritHistory());
+    }
+}
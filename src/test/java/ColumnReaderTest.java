@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnReaderTest {
+    private Path dir;
+    private Path export;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("column-reader");
+        export = dir.resolve("export");
+        Path file = dir.resolve("person.txt");
+        try (TextPersonStore store = new TextPersonStore(file)) {
+            store.insert(new PersonRecord("56@#df&*AB", "John", "Doe",
+                    "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000", ""));
+        }
+        ColumnarExporter.export(file, export);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testOpen_OneColumn_ShouldReadOnlyItsFile() throws IOException {
+        Files.delete(export.resolve("firstName.col"));
+
+        try (ColumnReader reader = ColumnReader.open(export, "lastName")) {
+            assertTrue(reader.isText());
+            assertEquals(1, reader.size());
+            assertTrue(reader.next());
+            assertEquals("Doe", reader.text());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void testValue_OfWrongType_ShouldThrow() throws IOException {
+        try (ColumnReader reader = ColumnReader.open(export, "birthDay")) {
+            assertTrue(reader.next());
+            assertThrows(IllegalStateException.class, reader::text);
+        }
+    }
+
+    @Test
+    public void testOpen_UnknownColumnOrIncompleteExport_ShouldThrow() throws IOException {
+        assertThrows(IOException.class, () -> ColumnReader.open(export, "nickname"));
+
+        Files.delete(export.resolve("columns.properties"));
+        assertThrows(IOException.class, () -> ColumnReader.open(export, "lastName"));
+    }
+}
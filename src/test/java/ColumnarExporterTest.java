@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarExporterTest {
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("columnar");
+        file = dir.resolve("person.txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static PersonRecord person(String id, String firstName, String address, String birthDate, String history) {
+        return new PersonRecord(id, firstName, "Doe", address, birthDate, history);
+    }
+
+    private static List<String> texts(Path export, String column) throws IOException {
+        List<String> values = new ArrayList<>();
+        try (ColumnReader reader = ColumnReader.open(export, column)) {
+            while (reader.next()) values.add(reader.text());
+        }
+        return values;
+    }
+
+    private static List<Long> numbers(Path export, String column) throws IOException {
+        List<Long> values = new ArrayList<>();
+        try (ColumnReader reader = ColumnReader.open(export, column)) {
+            while (reader.next()) values.add(reader.number());
+        }
+        return values;
+    }
+
+    @Test
+    public void testExport_ShouldSplitEveryFieldIntoColumns() throws IOException {
+        try (TextPersonStore store = new TextPersonStore(file)) {
+            store.insert(person("56@#df&*AB", "John", "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000",
+                    "3 on 2024-05-01, 2 on 2025-01-10"));
+            store.insert(person("77!!xy$%CD", "Ren\u00E9e", "1 | Main Road | Geelong | Victoria | Australia", "01-02-1990", ""));
+            store.insert(person("88!!xy$%EF", "John", "somewhere else", "not a date", "4 on 2023-03-03"));
+            store.delete("88!!xy$%EF");
+            store.insert(person("99!!xy$%GH", "John", "somewhere else", "not a date", "4 on 2023-03-03"));
+        }
+
+        Path export = dir.resolve("export");
+        ColumnarExporter.Result result = ColumnarExporter.export(file, export);
+        assertEquals(3, result.getRows());
+        assertEquals(3, result.getEvents());
+
+        assertEquals(List.of("56@#df&*AB", "77!!xy$%CD", "99!!xy$%GH"), texts(export, "id"));
+        assertEquals(List.of("John", "Ren\u00E9e", "John"), texts(export, "firstName"));
+        assertEquals(List.of("32", "1", ""), texts(export, "streetNumber"));
+        assertEquals(List.of("Highland Street", "Main Road", "somewhere else"), texts(export, "street"));
+        assertEquals(List.of("Victoria", "Victoria", ""), texts(export, "state"));
+        assertEquals(List.of(LocalDate.of(2000, 11, 15).toEpochDay(), LocalDate.of(1990, 2, 1).toEpochDay(), ColumnarExporter.NO_DATE),
+                numbers(export, "birthDay"));
+
+        assertEquals(List.of(0L, 0L, 2L), numbers(export, "eventRow"));
+        assertEquals(List.of(LocalDate.of(2024, 5, 1).toEpochDay(), LocalDate.of(2025, 1, 10).toEpochDay(), LocalDate.of(2023, 3, 3).toEpochDay()),
+                numbers(export, "eventDay"));
+        assertEquals(List.of(3L, 2L, 4L), numbers(export, "eventPoints"));
+    }
+
+    @Test
+    public void testExport_WithDemeritLog_ShouldIncludeLoggedOffences() throws IOException {
+        try (TextPersonStore store = new TextPersonStore(file)) {
+            store.insert(person("56@#df&*AB", "John", "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000", "3 on 2024-05-01"));
+        }
+
+        Path export = dir.resolve("export");
+        try (DemeritEventLog log = new DemeritEventLog(dir.resolve("demerits"))) {
+            log.append("56@#df&*AB", LocalDate.of(2023, 1, 1), 1);
+            assertEquals(2, ColumnarExporter.export(file, log, export).getEvents());
+        }
+
+        //in date order, as the ledger keeps them
+        assertEquals(List.of(1L, 3L), numbers(export, "eventPoints"));
+    }
+
+    @Test
+    public void testExport_ShouldBeSmallerThanTheText() throws IOException {
+        try (TextPersonStore store = new TextPersonStore(file)) {
+            List<PersonRecord> records = new ArrayList<>();
+            for (int n = 0; n < 5000; n++) {
+                records.add(person(String.format("5%d@#%04dAB", 2 + n % 8, n), "First" + n % 300,
+                        n % 90 + " | Highland Street | Melbourne | Victoria | Australia",
+                        String.format("%02d-%02d-%d", 1 + n % 28, 1 + n % 12, 1950 + n % 55), "3 on 2024-05-01, 2 on 2025-01-10"));
+            }
+            store.insertAll(records.iterator());
+        }
+
+        ColumnarExporter.Result result = ColumnarExporter.export(file, dir.resolve("export"));
+        assertTrue(result.getBytes() * 4 < Files.size(file), result.getBytes() + " bytes of columns");
+    }
+}
@@ -0,0 +1,247 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DemeritEventLogTest {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("demerits");
+        file = directory.resolve("person.txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Person.useDemeritLog(null);
+        Person.useStore(null);
+        try (var files = Files.list(directory)) {
+            for (Path path : files.toList()) Files.delete(path);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testReopen_ShouldReplayInDateOrder() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory);
+        log.append("57@#df&*AB", LocalDate.of(2025, 3, 1), 2);
+        log.append("57@#df&*AB", LocalDate.of(2024, 1, 1), 3);
+        log.append("77@#df&*AB", LocalDate.of(2025, 1, 1), 4);
+        log.append("57@#df&*AB", LocalDate.of(2024, 6, 1), 1);
+
+        //copy the log aside, so the reopen below has to replay it instead of reading the snapshot written by close()
+        Files.copy(directory.resolve("demerits.log"), directory.resolve("kept.log"));
+        log.close();
+        Files.delete(directory.resolve("demerits.snapshot"));
+        Files.move(directory.resolve("kept.log"), directory.resolve("demerits.log"), StandardCopyOption.REPLACE_EXISTING);
+
+        DemeritEventLog reopened = new DemeritEventLog(directory);
+        assertEquals(4, reopened.getReplayed());
+        DemeritLedger ledger = reopened.ledgerOf("57@#df&*AB");
+        assertEquals(3, ledger.size());
+        assertEquals(LocalDate.of(2024, 1, 1), ledger.dateAt(0));
+        assertEquals(LocalDate.of(2024, 6, 1), ledger.dateAt(1));
+        assertEquals(LocalDate.of(2025, 3, 1), ledger.dateAt(2));
+        assertEquals(4, reopened.ledgerOf("77@#df&*AB").total());
+        reopened.close();
+    }
+
+    @Test
+    public void testSnapshots_ShouldBoundReplay() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory, 100);
+        for (int i = 0; i < 250; i++) {
+            log.append("57@#df&*AB", LocalDate.of(2024, 1, 1).plusDays(i), 1 + i % 6);
+        }
+        log.awaitSnapshot(); //the one started by the 200th event
+        assertEquals(50, log.getEventsSinceSnapshot());
+        assertFalse(Files.exists(directory.resolve("demerits.log.old")));
+        long logBytes = Files.size(directory.resolve("demerits.log"));
+        assertEquals(50L * DemeritEventLog.offenceBytes("57@#df&*AB"), logBytes);
+
+        //a crash before close() leaves 50 events in the log after the last snapshot
+        Files.copy(directory.resolve("demerits.log"), directory.resolve("kept.log"));
+        Files.copy(directory.resolve("demerits.snapshot"), directory.resolve("kept.snapshot"));
+        log.close();
+        Files.move(directory.resolve("kept.log"), directory.resolve("demerits.log"), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(directory.resolve("kept.snapshot"), directory.resolve("demerits.snapshot"), StandardCopyOption.REPLACE_EXISTING);
+
+        DemeritEventLog reopened = new DemeritEventLog(directory, 100);
+        assertEquals(50, reopened.getReplayed());
+        assertEquals(250, reopened.ledgerOf("57@#df&*AB").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testEventsAlreadyInSnapshot_ShouldNotCountTwice() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory);
+        log.append("57@#df&*AB", LocalDate.of(2025, 1, 1), 2);
+        log.append("57@#df&*AB", LocalDate.of(2025, 2, 1), 3);
+
+        //as if the process died after writing the snapshot but before the log was emptied
+        Files.copy(directory.resolve("demerits.log"), directory.resolve("kept.log"));
+        log.close();
+        Files.move(directory.resolve("kept.log"), directory.resolve("demerits.log"), StandardCopyOption.REPLACE_EXISTING);
+
+        DemeritEventLog reopened = new DemeritEventLog(directory);
+        assertEquals(2, reopened.ledgerOf("57@#df&*AB").size());
+        assertEquals(5, reopened.ledgerOf("57@#df&*AB").total());
+
+        reopened.append("57@#df&*AB", LocalDate.of(2025, 3, 1), 1); //numbered after the snapshot, so it is replayed
+        Files.copy(directory.resolve("demerits.log"), directory.resolve("kept.log"));
+        Files.copy(directory.resolve("demerits.snapshot"), directory.resolve("kept.snapshot"));
+        reopened.close();
+        Files.move(directory.resolve("kept.log"), directory.resolve("demerits.log"), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(directory.resolve("kept.snapshot"), directory.resolve("demerits.snapshot"), StandardCopyOption.REPLACE_EXISTING);
+
+        DemeritEventLog again = new DemeritEventLog(directory);
+        assertEquals(6, again.ledgerOf("57@#df&*AB").total());
+        again.close();
+    }
+
+    @Test
+    public void testUnfinishedSnapshot_ShouldReplayTheRetiredLog() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory);
+        log.append("57@#df&*AB", LocalDate.of(2025, 1, 1), 2);
+        log.append("57@#df&*AB", LocalDate.of(2025, 2, 1), 3);
+
+        //as if the process died after moving the log aside but before the snapshot was written
+        Files.copy(directory.resolve("demerits.log"), directory.resolve("kept.log"));
+        log.close();
+        Files.delete(directory.resolve("demerits.snapshot"));
+        Files.move(directory.resolve("kept.log"), directory.resolve("demerits.log.old"));
+
+        DemeritEventLog reopened = new DemeritEventLog(directory);
+        assertEquals(2, reopened.getReplayed());
+        assertEquals(5, reopened.ledgerOf("57@#df&*AB").total());
+        assertFalse(Files.exists(directory.resolve("demerits.log.old")));
+        assertEquals(0, reopened.getEventsSinceSnapshot());
+        reopened.close();
+    }
+
+    @Test
+    public void testAppendsDuringSnapshots_ShouldAllBeKept() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory, 3);
+        for (int i = 0; i < 40; i++) {
+            log.append(i < 20 && i % 2 == 1 ? "77@#df&*AB" : "57@#df&*AB", LocalDate.of(2024, 1, 1).plusDays(i), 1);
+            if (i == 20) log.rename("77@#df&*AB", "57@#df&*AB");
+        }
+        assertEquals(40, log.ledgerOf("57@#df&*AB").size());
+
+        //kill the process: whatever snapshot and logs are on disk must hold every event exactly once
+        log.awaitSnapshot();
+        Files.copy(directory.resolve("demerits.log"), directory.resolve("kept.log"));
+        Files.copy(directory.resolve("demerits.snapshot"), directory.resolve("kept.snapshot"));
+        log.close();
+        Files.move(directory.resolve("kept.log"), directory.resolve("demerits.log"), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(directory.resolve("kept.snapshot"), directory.resolve("demerits.snapshot"), StandardCopyOption.REPLACE_EXISTING);
+
+        DemeritEventLog reopened = new DemeritEventLog(directory, 3);
+        assertEquals(40, reopened.ledgerOf("57@#df&*AB").size());
+        assertEquals(0, reopened.ledgerOf("77@#df&*AB").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testRename_ShouldMoveOffences() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory);
+        log.append("57@#df&*AB", LocalDate.of(2025, 1, 1), 2);
+        log.rename("57@#df&*AB", "77@#df&*AB");
+        log.close();
+
+        DemeritEventLog reopened = new DemeritEventLog(directory);
+        assertEquals(0, reopened.ledgerOf("57@#df&*AB").size());
+        assertEquals(2, reopened.ledgerOf("77@#df&*AB").total());
+        reopened.close();
+    }
+
+    @Test
+    public void testCorruptSnapshot_ShouldFailToOpen() throws IOException {
+        DemeritEventLog log = new DemeritEventLog(directory);
+        log.append("57@#df&*AB", LocalDate.of(2025, 1, 1), 2);
+        log.close();
+
+        byte[] snapshot = Files.readAllBytes(directory.resolve("demerits.snapshot"));
+        snapshot[snapshot.length - 12] ^= 1;
+        Files.write(directory.resolve("demerits.snapshot"), snapshot);
+
+        assertThrows(IOException.class, () -> new DemeritEventLog(directory));
+    }
+
+    @Test
+    public void testVersion1Snapshot_ShouldStillLoad() throws IOException {
+        //the first layout also had the day it was taken and a window total per person
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x444D5253);
+        out.writeInt(1);
+        out.writeLong(2); //last sequence
+        out.writeInt((int) LocalDate.of(2025, 6, 1).toEpochDay());
+        out.writeInt(1);
+        out.writeUTF("57@#df&*AB");
+        out.writeInt(5);
+        out.writeInt(2);
+        out.writeInt((int) LocalDate.of(2025, 1, 1).toEpochDay());
+        out.writeByte(2);
+        out.writeInt((int) LocalDate.of(2025, 3, 1).toEpochDay());
+        out.writeByte(3);
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+        Files.write(directory.resolve("demerits.snapshot"), bytes.toByteArray());
+
+        DemeritEventLog log = new DemeritEventLog(directory);
+        assertEquals(5, log.ledgerOf("57@#df&*AB").total());
+        assertEquals(2, log.ledgerOf("57@#df&*AB").size());
+        log.close();
+    }
+
+    @Test
+    public void testPerson_ShouldAppendInsteadOfRewritingHistory() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.setForceOnWrite(false);
+        Person.useStore(store);
+        store.insert(new PersonRecord("57@#df&*AB", "Jane", "Smith", ADDRESS, "15-11-2006", "3 on 2025-10-01"));
+        DemeritEventLog log = new DemeritEventLog(directory);
+        Person.useDemeritLog(log);
+
+        Person person = Person.findById("57@#df&*AB");
+        assertEquals("Success", person.addDemeritPoints(2, "01-11-2025"));
+        assertFalse(person.isSuspended());
+        assertEquals("Success", person.addDemeritPoints(2, "02-11-2025"));
+        assertTrue(person.isSuspended());
+        assertEquals("3 on 2025-10-01", store.find("57@#df&*AB").getDemeritHistory()); //the record is not rewritten
+
+        assertEquals(List.of("Success", "Failed"), Person.addDemeritPointsBatch(List.of(
+                new Person.DemeritEntry("57@#df&*AB", 1, "03-11-2025"),
+                new Person.DemeritEntry("99@#df&*AB", 1, "03-11-2025"))));
+        assertEquals(3, log.ledgerOf("57@#df&*AB").size());
+
+        assertTrue(person.updatePersonalDetails("77@#df&*AB", null, null, null, null));
+        log.close();
+
+        //a fresh start sees the line and the logged offences together, under the new ID
+        DemeritEventLog reopened = new DemeritEventLog(directory);
+        Person.useDemeritLog(reopened);
+        Person loaded = Person.findById("77@#df&*AB");
+        assertTrue(loaded.isSuspended());
+        assertEquals(8, loaded.getDemeritLedger().total());
+        reopened.close();
+    }
+}
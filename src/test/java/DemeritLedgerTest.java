@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DemeritLedgerTest {
+    @Test
+    public void testAdd_SameDay_ShouldKeepBothOffences() {
+        DemeritLedger ledger = new DemeritLedger();
+        ledger.add(LocalDate.of(2024, 5, 1), 3);
+        ledger.add(LocalDate.of(2024, 5, 1), 2);
+
+        assertEquals(2, ledger.size());
+        assertEquals(5, ledger.total());
+        assertEquals(3, ledger.pointsAt(0));
+        assertEquals(2, ledger.pointsAt(1));
+    }
+
+    @Test
+    public void testAdd_OutOfOrder_ShouldKeepDaysSorted() {
+        DemeritLedger ledger = new DemeritLedger();
+        ledger.add(LocalDate.of(2024, 5, 1), 1);
+        ledger.add(LocalDate.of(2023, 1, 1), 2);
+        ledger.add(LocalDate.of(2025, 2, 1), 3);
+        ledger.add(LocalDate.of(2024, 1, 1), 4);
+
+        assertEquals(LocalDate.of(2023, 1, 1), ledger.dateAt(0));
+        assertEquals(LocalDate.of(2024, 1, 1), ledger.dateAt(1));
+        assertEquals(LocalDate.of(2024, 5, 1), ledger.dateAt(2));
+        assertEquals(LocalDate.of(2025, 2, 1), ledger.dateAt(3));
+        assertEquals(8, ledger.sumSince((int) LocalDate.of(2024, 1, 1).toEpochDay()));
+    }
+
+    @Test
+    public void testSumBetween_ShouldIncludeBothEnds() {
+        DemeritLedger ledger = new DemeritLedger();
+        for (int day = 0; day < 1000; day++) {
+            ledger.add(day, day % 6 + 1);
+        }
+
+        int expected = 0;
+        for (int day = 100; day <= 400; day++) expected += day % 6 + 1;
+
+        assertEquals(expected, ledger.sumBetween(100, 400));
+        assertEquals(0, ledger.sumBetween(400, 100));
+        assertEquals(0, ledger.sumSince(1000));
+        assertEquals(ledger.total(), ledger.sumSince(-5));
+    }
+}
@@ -0,0 +1,176 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FieldValidatorTest {
+    //pieces the random inputs are built from, biased towards the interesting corners
+    private static final String[] PIECES = {
+            "0", "1", "2", "5", "9", "12", "31", "32", "2025", "2026", "-", "--", "+", " ", "|", " | ", " |", "| ",
+            "Victoria", "victoria", "Melbourne", "A", "Z", "a", "@", "#", "_", "\u0663", "\uFF15", "\u00C9", "\u00E9",
+            "2147483647", "2147483648", "-2147483648", "00", ""
+    };
+
+    private static final String[] NUMBER_PIECES = {"0", "1", "2", "5", "9", "12", "31", "32", "2025", "2026", "+", "-", "\u0663", "00", ""};
+
+    private static final int ROUNDS = 200_000;
+
+    private static String randomInput(Random random) {
+        StringBuilder input = new StringBuilder();
+        int pieces = random.nextInt(12);
+        for (int i = 0; i < pieces; i++) {
+            input.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return input.toString();
+    }
+
+    private static String randomNumber(Random random) {
+        StringBuilder number = new StringBuilder();
+        int pieces = 1 + random.nextInt(2);
+        for (int i = 0; i < pieces; i++) {
+            number.append(NUMBER_PIECES[random.nextInt(NUMBER_PIECES.length)]);
+        }
+        return number.toString();
+    }
+
+    private static String randomDate(Random random) {
+        return randomNumber(random) + "-" + randomNumber(random) + "-" + randomNumber(random) + (random.nextBoolean() ? "" : randomInput(random));
+    }
+
+    private static String randomAddress(Random random) {
+        StringBuilder address = new StringBuilder(random.nextBoolean() ? randomNumber(random) : randomInput(random));
+        int parts = random.nextInt(7);
+        for (int i = 0; i < parts; i++) {
+            address.append(" | ").append(random.nextInt(3) == 0 ? "Victoria" : randomInput(random));
+        }
+        return address.toString();
+    }
+
+    @Test
+    public void testCheckDate_ShouldMatchOriginal() {
+        Random random = new Random(1);
+        for (int i = 0; i < ROUNDS; i++) {
+            String date = i % 2 == 0 ? randomInput(random) : randomDate(random);
+            assertEquals(legacyCheckDate(date), FieldValidator.checkDate(date), "checkDate(\"" + date + "\")");
+        }
+    }
+
+    @Test
+    public void testCheckAddress_ShouldMatchOriginal() {
+        Random random = new Random(2);
+        for (int i = 0; i < ROUNDS; i++) {
+            String address = i % 2 == 0 ? randomInput(random) : randomAddress(random);
+            assertEquals(legacyCheckAddress(address), FieldValidator.checkAddress(address), "checkAddress(\"" + address + "\")");
+        }
+    }
+
+    @Test
+    public void testCheckID_ShouldMatchOriginal() {
+        Random random = new Random(3);
+        for (int i = 0; i < ROUNDS; i++) {
+            String id = randomInput(random);
+            if (i % 2 == 0 && id.length() > 10) id = id.substring(0, 10);
+            assertEquals(legacyCheckID(id), FieldValidator.checkID(id), "checkID(\"" + id + "\")");
+        }
+    }
+
+    @Test
+    public void testByteSlice_ShouldMatchStringForAscii() {
+        Random random = new Random(4);
+        FieldValidator.ByteSlice slice = new FieldValidator.ByteSlice();
+        for (int i = 0; i < ROUNDS / 10; i++) {
+            String value = randomAddress(random).replaceAll("[^\\x00-\\x7F]", "?");
+            byte[] bytes = ("xx" + value + "yy").getBytes(StandardCharsets.US_ASCII);
+            slice.set(ByteBuffer.wrap(bytes), 2, bytes.length - 4);
+
+            assertEquals(FieldValidator.checkAddress(value), FieldValidator.checkAddress(slice));
+            assertEquals(FieldValidator.checkDate(value), FieldValidator.checkDate(slice));
+            assertEquals(FieldValidator.checkID(value), FieldValidator.checkID(slice));
+        }
+    }
+
+    @Test
+    public void testKnownValues() {
+        assertTrue(FieldValidator.checkID("56@#df&*AB"));
+        assertFalse(FieldValidator.checkID("12badidAB"));
+        assertTrue(FieldValidator.checkAddress("32 | Highland Street | Melbourne | Victoria | Australia"));
+        assertFalse(FieldValidator.checkAddress("32 | Highland Street | Sydney | New South Wales | Australia"));
+        assertTrue(FieldValidator.checkDate("15-11-1990"));
+        assertTrue(FieldValidator.checkDate("15-11-1990-")); //split drops the trailing empty part
+        assertFalse(FieldValidator.checkDate("15/11/1990"));
+    }
+
+    //the checks as they were written before FieldValidator, kept as the reference implementation
+    private static boolean legacyCheckDate(String date) {
+        String[] dateParts = date.split("-");
+        if (dateParts.length != 3) return false; //make sure format is correct
+
+        try {
+            int day = Integer.parseInt(dateParts[0]);
+            int month = Integer.parseInt(dateParts[1]);
+            int year = Integer.parseInt(dateParts[2]);
+
+            if (month < 1 || month > 12) {
+                return false; //make sure it's a valid month
+            }
+
+            if (day < 1 || day > 31) {
+                return false; //make sure it's a valid day
+            }
+
+            if (year < 1 || year > 2025) {
+                return false; //make sure it's a valid year
+            }
+        } catch (NumberFormatException e) {
+            return false; //make sure it's a number
+        }
+
+        return true;
+    }
+
+    private static boolean legacyCheckID(String id) {
+        int len = id.length();
+        if (len != 10) {
+            return false; //10 chars long
+        }
+
+        //first two char is a number between 2-9
+        char firstChar = id.charAt(0);
+        char secondChar = id.charAt(1);
+
+        if (!Character.isDigit(firstChar) || firstChar < '2' || firstChar > '9') return false;
+        if (!Character.isDigit(secondChar)|| secondChar < '2' || secondChar > '9') return false;
+
+        int specialChars = 0;
+        for (int i = 1; i < 9; i++) {
+            if (!Character.isLetterOrDigit(id.charAt(i))) {
+                specialChars++;
+            }
+        }
+
+        if (specialChars < 2) { //at least 2 special chars between 2-9
+            return false;
+        }
+
+        if (!Character.isUpperCase(id.charAt(len - 2)) || !Character.isUpperCase(id.charAt(len - 1)))
+            return false; //last two chars are uppercase
+
+        return true;
+    }
+
+    private static boolean legacyCheckAddress(String addressToCheck) {
+        String[] parts = addressToCheck.split(" \\| ");
+        if (parts.length != 5) return false; //make sure format is correct
+        if (!parts[3].equals("Victoria")) return false; //make sure state is Victoria
+        try {
+            Integer.parseInt(parts[0]);
+        } catch (NumberFormatException e) {
+            return false;
+        } //make sure street number is a number
+
+        return true;
+    }
+}
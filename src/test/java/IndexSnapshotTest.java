@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexSnapshotTest {
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt.idx");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private void writeIDs(int count) throws IOException {
+        byte[][] keys = new byte[count][];
+        int[] hashes = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.format("5%d@#%04dAB", 2 + i % 8, i).getBytes(StandardCharsets.UTF_8);
+            hashes[i] = IndexSnapshot.hash(keys[i]);
+        }
+        int[] order = IndexSnapshot.hashOrder(hashes);
+
+        IndexSnapshot.write(file, 1234, 99, "(dev=1,ino=2)", 7, visitor -> {
+            for (int i : order) visitor.visit(keys[i], hashes[i], i * 100L);
+        });
+    }
+
+    @Test
+    public void testWriteAndOpen_ShouldFindEveryID() throws IOException {
+        writeIDs(1000);
+
+        IndexSnapshot snapshot = IndexSnapshot.open(file);
+        assertEquals(1000, snapshot.size());
+        assertEquals(1234, snapshot.getCoveredLength());
+        assertEquals(99, snapshot.getTailChecksum());
+        assertEquals("(dev=1,ino=2)", snapshot.getFileKey());
+        assertEquals(7, snapshot.getTombstones());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 100L, snapshot.offsetOf(String.format("5%d@#%04dAB", 2 + i % 8, i)));
+        }
+        assertEquals(-1, snapshot.offsetOf("99@@zz##XY"));
+    }
+
+    @Test
+    public void testOpen_DamagedFile_ShouldThrow() throws IOException {
+        writeIDs(10);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[40] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> IndexSnapshot.open(file));
+    }
+}
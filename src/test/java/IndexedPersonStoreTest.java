@@ -0,0 +1,231 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedPersonStoreTest {
+    private Path file;
+    private IndexedPersonStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        TextPersonStore text = new TextPersonStore(file);
+        text.setForceOnWrite(false);
+        store = new IndexedPersonStore(text);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Person.useStore(null);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    private static String id(int number) {
+        return String.format("5%d@#%04dAB", number % 8 + 2, number);
+    }
+
+    private static PersonRecord record(int number, String lastName, String city, String birthDate) {
+        return new PersonRecord(id(number), "John", lastName, number + " | High Street | " + city + " | Victoria | Australia", birthDate, "");
+    }
+
+    private static void assertIDs(List<String> actual, int... numbers) {
+        String[] expected = new String[numbers.length];
+        for (int i = 0; i < numbers.length; i++) expected[i] = id(numbers[i]);
+        String[] sorted = actual.toArray(new String[0]);
+        Arrays.sort(sorted);
+        Arrays.sort(expected);
+        assertArrayEquals(expected, sorted);
+    }
+
+    @Test
+    public void testQueries_ShouldIndexExistingRecords() throws IOException {
+        store.insert(record(1, "Doe", "Melbourne", "15-11-1990"));
+        store.insert(record(2, "Smith", "Geelong", "01-01-2001"));
+        store.insert(record(3, "Doe", "Geelong", "31-12-1989"));
+
+        assertIDs(store.findByLastName("Doe"), 1, 3);
+        assertIDs(store.findByCity("Geelong"), 2, 3);
+        assertIDs(store.findByCity("Sydney"));
+        assertEquals(List.of(id(3), id(1)), store.findByBirthYear(1980, 1999)); //oldest first
+        assertIDs(store.findByBirthYear(2001, 2001), 2);
+        assertIDs(store.findByBirthYear(2001, 2000));
+    }
+
+    @Test
+    public void testWrites_ShouldUpdateBuiltIndexes() throws IOException {
+        store.insert(record(1, "Doe", "Melbourne", "15-11-1990"));
+        assertIDs(store.findByLastName("Doe"), 1); //builds the indexes
+
+        store.insert(record(2, "Doe", "Ballarat", "01-01-2001"));
+        store.update(id(1), record(9, "Brown", "Ballarat", "15-11-1990")); //new ID, name and city
+
+        assertIDs(store.findByLastName("Doe"), 2);
+        assertIDs(store.findByLastName("Brown"), 9);
+        assertIDs(store.findByCity("Melbourne"));
+        assertIDs(store.findByCity("Ballarat"), 2, 9);
+        assertIDs(store.findByBirthYear(1990, 1990), 9);
+    }
+
+    @Test
+    public void testInsertAll_ShouldIndexNewRecordsOnly() throws IOException {
+        store.insert(record(1, "Doe", "Melbourne", "15-11-1990"));
+        assertIDs(store.findByCity("Melbourne"), 1);
+
+        int added = store.insertAll(List.of(
+                record(1, "Other", "Geelong", "15-11-1990"), //already stored, skipped
+                record(2, "Smith", "Geelong", "01-01-2001")).iterator());
+
+        assertEquals(1, added);
+        assertIDs(store.findByCity("Geelong"), 2);
+        assertIDs(store.findByLastName("Other"));
+        assertIDs(store.findByCity("Melbourne"), 1);
+    }
+
+    @Test
+    public void testPersonQueries_ShouldFollowAddAndUpdate() {
+        Person.useStore(store);
+        Person first = new Person(id(1), "John", "Doe", "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-1990");
+        Person second = new Person(id(2), "Jane", "Doe", "7 | Swanston Street | Melbourne | Victoria | Australia", "01-02-2000");
+        assertTrue(first.addPerson());
+        assertEquals(1, Person.findByCity("Melbourne").size()); //builds the indexes, the rest is incremental
+        assertTrue(second.addPerson());
+
+        assertTrue(second.updatePersonalDetails(null, null, null, "7 | Moorabool Street | Geelong | Victoria | Australia", null));
+
+        assertEquals(1, Person.findByCity("Melbourne").size());
+        List<Person> geelong = Person.findByCity("Geelong");
+        assertEquals(1, geelong.size());
+        assertEquals("Jane", geelong.get(0).getFirstName());
+        assertEquals(2, Person.findByLastName("Doe").size());
+        assertEquals(id(2), Person.findByBirthYear(1995, 2005).get(0).getPersonID());
+    }
+
+    @Test
+    public void testPersonQueries_WithoutIndexedStore_ShouldThrowAndNotReplaceTheStore() throws IOException {
+        TextPersonStore text = new TextPersonStore(file);
+        Person.useStore(text);
+        assertTrue(new Person(id(1), "John", "Doe", "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-1990").addPerson());
+
+        assertThrows(IllegalStateException.class, () -> Person.findByCity("Melbourne"));
+        assertThrows(IllegalStateException.class, () -> Person.findByLastName("Doe"));
+        assertNotNull(Person.findById(id(1))); //still served by the text store that was installed
+    }
+
+    //a text store whose next update writes the record and then waits for release before returning
+    private static class SlowUpdateStore implements PersonStore {
+        private final TextPersonStore text;
+        private final CountDownLatch written = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean slow = true;
+
+        SlowUpdateStore(TextPersonStore text) {
+            this.text = text;
+        }
+
+        public boolean contains(String personID) {
+            return text.contains(personID);
+        }
+
+        public PersonRecord find(String personID) throws IOException {
+            return text.find(personID);
+        }
+
+        public boolean insert(PersonRecord record) throws IOException {
+            return text.insert(record);
+        }
+
+        public boolean update(String personID, PersonRecord record) throws IOException {
+            boolean updated = text.update(personID, record);
+            if (slow) {
+                slow = false;
+                written.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return updated;
+        }
+
+        public boolean delete(String personID) throws IOException {
+            return text.delete(personID);
+        }
+
+        public void forEach(Consumer<PersonRecord> action) throws IOException {
+            text.forEach(action);
+        }
+
+        public void sync() throws IOException {
+            text.sync();
+        }
+
+        public void close() {
+            text.close();
+        }
+    }
+
+    @Test
+    public void testSearch_DuringSlowWrite_ShouldNotWait() throws Exception {
+        SlowUpdateStore slowStore = new SlowUpdateStore((TextPersonStore) store.getStore());
+        IndexedPersonStore indexed = new IndexedPersonStore(slowStore);
+        indexed.insert(record(1, "Doe", "Melbourne", "15-11-1990"));
+        assertIDs(indexed.findByLastName("Doe"), 1);
+
+        Thread writer = new Thread(() -> {
+            try {
+                indexed.update(id(1), record(1, "Brown", "Melbourne", "15-11-1990"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        assertTrue(slowStore.written.await(5, TimeUnit.SECONDS));
+
+        assertIDs(indexed.findByLastName("Doe"), 1); //the write has not returned yet
+        slowStore.release.countDown();
+        writer.join();
+        assertIDs(indexed.findByLastName("Doe"));
+        assertIDs(indexed.findByLastName("Brown"), 1);
+    }
+
+    @Test
+    public void testUpdate_OverlappingOnOneID_ShouldIndexWhatTheStoreKept() throws Exception {
+        SlowUpdateStore slowStore = new SlowUpdateStore((TextPersonStore) store.getStore());
+        IndexedPersonStore indexed = new IndexedPersonStore(slowStore);
+        indexed.insert(record(1, "Doe", "Melbourne", "15-11-1990"));
+        assertIDs(indexed.findByLastName("Doe"), 1);
+
+        Thread first = new Thread(() -> {
+            try {
+                indexed.update(id(1), record(1, "Brown", "Melbourne", "15-11-1990"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        first.start();
+        assertTrue(slowStore.written.await(5, TimeUnit.SECONDS));
+
+        //written after the first update, but returns before it
+        assertTrue(indexed.update(id(1), record(1, "Smith", "Melbourne", "15-11-1990")));
+        slowStore.release.countDown();
+        first.join();
+
+        assertEquals("Smith", store.find(id(1)).lastName);
+        assertIDs(indexed.findByLastName("Smith"), 1);
+        assertIDs(indexed.findByLastName("Brown"));
+    }
+}
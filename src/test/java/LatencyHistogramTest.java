@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBuckets_ShouldCoverEveryValueWithinThreePercent() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (24 + random.nextInt(40)); //spread over the powers of two
+            int index = LatencyHistogram.indexOf(value);
+            long upper = LatencyHistogram.upperBoundOf(index);
+            long lower = index == 0 ? 0 : LatencyHistogram.upperBoundOf(index - 1) + 1;
+
+            assertTrue(lower <= value && value <= upper, "value " + value);
+            assertTrue(upper - lower <= Math.max(0, value / 32), "bucket of " + value);
+        }
+    }
+
+    @Test
+    public void testPercentile_ShouldMatchSortedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 0.01);
+        assertEquals(5_000_000, histogram.percentile(50), 5_000_000 / 32.0);
+        assertEquals(9_900_000, histogram.percentile(99), 9_900_000 / 32.0);
+        assertEquals(10_000_000, histogram.percentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    public void testRecord_ShouldClampOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.percentile(50));
+        assertEquals((1L << 40) - 1, histogram.percentile(100));
+    }
+}
@@ -0,0 +1,160 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonBatchTest {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path file;
+    private TextPersonStore text;
+    private int updates; //single-record updates that reached the store
+    private int batches;
+    private boolean rejectUpdates; //update and updateAll write nothing and say so
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        text = new TextPersonStore(file);
+        text.setForceOnWrite(false);
+
+        //counts how the batch reaches the store
+        Person.useStore(new PersonStore() {
+            public boolean contains(String personID) {
+                return text.contains(personID);
+            }
+
+            public PersonRecord find(String personID) throws IOException {
+                return text.find(personID);
+            }
+
+            public boolean insert(PersonRecord record) throws IOException {
+                return text.insert(record);
+            }
+
+            public int insertAll(Iterator<PersonRecord> records) throws IOException {
+                return text.insertAll(records);
+            }
+
+            public boolean update(String personID, PersonRecord record) throws IOException {
+                updates++;
+                if (rejectUpdates) return false;
+                return text.update(personID, record);
+            }
+
+            public Set<String> updateAll(Map<String, PersonRecord> records) throws IOException {
+                batches++;
+                if (rejectUpdates) return new HashSet<>();
+                return text.updateAll(records);
+            }
+
+            public boolean delete(String personID) throws IOException {
+                return text.delete(personID);
+            }
+
+            public void forEach(Consumer<PersonRecord> action) throws IOException {
+                text.forEach(action);
+            }
+
+            public void sync() throws IOException {
+                text.sync();
+            }
+
+            public void close() {
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Person.useStore(null);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    private static String id(int number) {
+        return String.format("5%d@#%04dAB", number % 8 + 2, number);
+    }
+
+    @Test
+    public void testBatch_ShouldReportEveryEntryAndWriteOnce() throws IOException {
+        text.insert(new PersonRecord(id(1), "John", "Doe", ADDRESS, "15-11-1990", "2 on 2025-01-10"));
+        text.insert(new PersonRecord(id(2), "Jane", "Doe", ADDRESS, "15-11-1990", ""));
+
+        List<String> results = Person.addDemeritPointsBatch(List.of(
+                new Person.DemeritEntry(id(1), 3, "01-03-2025"),
+                new Person.DemeritEntry(id(2), 7, "01-03-2025"), //too many points
+                new Person.DemeritEntry(id(2), 1, "2025-03-01"), //wrong date format
+                new Person.DemeritEntry(id(3), 1, "01-03-2025"), //not in the file
+                new Person.DemeritEntry(id(2), 4, "02-03-2025"),
+                new Person.DemeritEntry(id(1), 1, "01-02-2025")));
+
+        assertEquals(List.of("Success", "Failed", "Failed", "Failed", "Success", "Success"), results);
+        assertEquals(1, batches);
+        assertEquals(0, updates);
+        assertEquals("2 on 2025-01-10, 1 on 2025-02-01, 3 on 2025-03-01", text.find(id(1)).getDemeritHistory());
+        assertEquals("4 on 2025-03-02", text.find(id(2)).getDemeritHistory());
+    }
+
+    @Test
+    public void testBatch_ShouldSuspendOnPersistedAndNewPoints() throws IOException {
+        text.insert(new PersonRecord(id(1), "John", "Doe", ADDRESS, "15-11-1990", "6 on 2025-01-10"));
+
+        List<String> results = Person.addDemeritPointsBatch(List.of(
+                new Person.DemeritEntry(id(1), 4, "01-03-2025"),
+                new Person.DemeritEntry(id(1), 3, "01-04-2025"))); //13 in total, over 12
+
+        assertEquals(List.of("Success", "Success"), results);
+        assertTrue(Person.findById(id(1)).isSuspended());
+    }
+
+    @Test
+    public void testBatch_FailedWrite_ShouldLeaveLoadedPersonUnchanged() throws IOException {
+        text.insert(new PersonRecord(id(1), "John", "Doe", ADDRESS, "15-11-1990", "6 on 2025-01-10"));
+        Person loaded = Person.findById(id(1));
+        rejectUpdates = true;
+
+        List<String> results = Person.addDemeritPointsBatch(List.of(
+                new Person.DemeritEntry(id(1), 4, "01-03-2025"),
+                new Person.DemeritEntry(id(1), 3, "01-04-2025")));
+
+        assertEquals(List.of("Failed", "Failed"), results);
+        assertSame(loaded, Person.findById(id(1)));
+        assertEquals(1, loaded.getDemeritLedger().size());
+        assertFalse(loaded.isSuspended());
+    }
+
+    @Test
+    public void testSingle_FailedWrite_ShouldLeaveLoadedPersonUnchanged() throws IOException {
+        text.insert(new PersonRecord(id(1), "John", "Doe", ADDRESS, "15-11-1990", "6 on 2025-01-10"));
+        Person loaded = Person.findById(id(1));
+        rejectUpdates = true;
+
+        assertEquals("Failed", loaded.addDemeritPoints(6, "01-03-2025"));
+        assertEquals(1, updates);
+        assertSame(loaded, Person.findById(id(1)));
+        assertEquals(1, loaded.getDemeritLedger().size());
+        assertFalse(loaded.isSuspended());
+        assertEquals("6 on 2025-01-10", text.find(id(1)).demeritHistory);
+    }
+
+    @Test
+    public void testBatch_WithNothingValid_ShouldNotWrite() {
+        List<String> results = Person.addDemeritPointsBatch(List.of(new Person.DemeritEntry(id(1), 0, "01-03-2025")));
+
+        assertEquals(List.of("Failed"), results);
+        assertEquals(0, batches);
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonCacheTest {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path file;
+    private TextPersonStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        store = new TextPersonStore(file);
+        store.setForceOnWrite(false);
+        Person.useStore(store);
+        Person.getCache().resetStats();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Person.useStore(null);
+        Person.getCache().setCapacity(PersonCache.DEFAULT_CAPACITY);
+        Person.getCache().resetStats();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    private static String id(int number) {
+        return String.format("5%d@#%04dAB", number % 8 + 2, number);
+    }
+
+    private void insert(int number, String history) throws IOException {
+        assertTrue(store.insert(new PersonRecord(id(number), "John", "Doe", ADDRESS, "15-11-1990", history)));
+    }
+
+    @Test
+    public void testFindById_ShouldLoadPersistedHistory() throws IOException {
+        //13 points this year, over the limit of 12 for someone over 21
+        insert(1, "6 on 2025-01-10, 4 on 2025-03-02, 3 on 2025-05-20");
+        insert(2, "6 on 2019-01-10, 6 on 2019-03-02, 6 on 2019-05-20"); //long expired
+
+        Person recent = Person.findById(id(1));
+        assertNotNull(recent);
+        assertEquals("John", recent.getFirstName());
+        assertEquals(ADDRESS, recent.getAddress());
+        assertTrue(recent.isSuspended());
+
+        Person expired = Person.findById(id(2));
+        assertNotNull(expired);
+        assertFalse(expired.isSuspended());
+    }
+
+    @Test
+    public void testFindById_ShouldServeRepeatLookupsFromCache() throws IOException {
+        insert(1, "");
+
+        Person first = Person.findById(id(1));
+        Person second = Person.findById(id(1));
+        assertSame(first, second);
+        assertNull(Person.findById(id(2)));
+
+        PersonCache cache = Person.getCache();
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCache_ShouldEvictLeastRecentlyUsed() throws IOException {
+        Person.getCache().setCapacity(2);
+        insert(1, "");
+        insert(2, "");
+        insert(3, "");
+
+        Person first = Person.findById(id(1));
+        Person.findById(id(2));
+        Person.findById(id(1)); //1 is now more recent than 2
+        Person.findById(id(3)); //evicts 2
+
+        assertEquals(2, Person.getCache().size());
+        assertEquals(1, Person.getCache().getEvictions());
+        assertSame(first, Person.findById(id(1)));
+
+        long misses = Person.getCache().getMisses();
+        Person.findById(id(2));
+        assertEquals(misses + 1, Person.getCache().getMisses());
+    }
+
+    @Test
+    public void testWriteFromOtherObject_ShouldInvalidateCachedCopy() throws IOException {
+        insert(1, "");
+        Person cached = Person.findById(id(1));
+
+        Person other = new Person(id(1), "John", "Doe", ADDRESS, "15-11-1990");
+        assertTrue(other.updatePersonalDetails(null, "Jack", null, null, null));
+
+        Person reloaded = Person.findById(id(1));
+        assertNotSame(cached, reloaded);
+        assertEquals("Jack", reloaded.getFirstName());
+    }
+
+    @Test
+    public void testWriteFromCachedObject_ShouldKeepItCachedUnderNewID() throws IOException {
+        insert(1, "");
+        Person cached = Person.findById(id(1));
+
+        assertTrue(cached.updatePersonalDetails(id(9), null, null, null, null));
+
+        assertSame(cached, Person.findById(id(9)));
+        assertNull(Person.findById(id(1)));
+    }
+
+    @Test
+    public void testAddDemeritPoints_ShouldCountPersistedHistory() throws IOException {
+        insert(1, "6 on 2025-01-10, 5 on 2025-03-02");
+        Person person = Person.findById(id(1));
+        assertFalse(person.isSuspended());
+
+        assertEquals("Success", person.addDemeritPoints(2, "20-05-2025")); //13 in total
+        assertTrue(person.isSuspended());
+        assertEquals("6 on 2025-01-10, 5 on 2025-03-02, 2 on 2025-05-20", store.find(id(1)).getDemeritHistory());
+    }
+
+    @Test
+    public void testParseDemeritHistory_ShouldSkipMalformedEntries() {
+        DemeritLedger ledger = Person.parseDemeritHistory("3 on 2025-03-02, junk, x on 2025-01-01, 2 on 2025-01-10");
+        assertEquals(2, ledger.size());
+        assertEquals(5, ledger.total());
+        assertEquals("2025-01-10", ledger.dateAt(0).toString()); //sorted by day
+    }
+}
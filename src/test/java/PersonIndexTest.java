@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonIndexTest {
+    private static final String FIRST =
+            "Name: John Doe\nID: 56@#df&*AB\nAddress: 32 | Highland Street | Melbourne | Victoria | Australia\n" +
+                    "Birth Date: 15-11-2000\nDemerit History: \n\n";
+    private static final String SECOND =
+            "Name: Jane Smith\nID: 77!!xy$%CD\nAddress: 1 | Main Road | Geelong | Victoria | Australia\n" +
+                    "Birth Date: 01-02-1990\nDemerit History: 3 on 2024-05-01\n\n";
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.writeString(file, FIRST + SECOND);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    @Test
+    public void testBuild_IndexesEveryRecordOffset() throws IOException {
+        PersonIndex index = new PersonIndex(file);
+        index.build();
+
+        assertEquals(2, index.size());
+        assertEquals(0, index.offsetOf("56@#df&*AB"));
+        assertEquals(FIRST.length(), index.offsetOf("77!!xy$%CD"));
+        assertEquals(-1, index.offsetOf("99@@zz##XY"));
+    }
+
+    @Test
+    public void testBuild_MissingFile_ShouldBeEmpty() throws IOException {
+        PersonIndex index = new PersonIndex(file.resolveSibling("missing-person.txt"));
+        index.build();
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testBuild_TombstonedAndDuplicateRecords() throws IOException {
+        String updated = FIRST.replace("John", "Jake");
+        Files.writeString(file, FIRST.replaceFirst("Name", "Void") + SECOND + updated + updated);
+
+        PersonIndex index = new PersonIndex(file);
+        index.build();
+
+        assertEquals(1, index.tombstones());
+        assertEquals(FIRST.length() + SECOND.length() + updated.length(), index.offsetOf("56@#df&*AB"));
+        assertEquals(List.of((long) (FIRST.length() + SECOND.length())), index.staleOffsets());
+    }
+
+    @Test
+    public void testOpen_ShouldUseSnapshotAndScanOnlyTheTail() throws IOException {
+        PersonIndex saved = new PersonIndex(file);
+        saved.build();
+        saved.save();
+
+        String third = SECOND.replace("Jane", "Jill").replace("77!!xy$%CD", "88!!xy$%EF");
+        Files.writeString(file, third, StandardOpenOption.APPEND);
+
+        PersonIndex index = new PersonIndex(file);
+        index.open();
+        assertEquals(FIRST.length() + SECOND.length(), index.scanStart());
+        assertEquals(3, index.size());
+        assertEquals(0, index.offsetOf("56@#df&*AB"));
+        assertEquals(FIRST.length(), index.offsetOf("77!!xy$%CD"));
+        assertEquals(FIRST.length() + SECOND.length(), index.offsetOf("88!!xy$%EF"));
+        assertEquals(-1, index.offsetOf("99@@zz##XY"));
+        index.close();
+    }
+
+    @Test
+    public void testOpen_RecordTombstonedAfterSnapshot_ShouldBeGone() throws IOException {
+        PersonIndex saved = new PersonIndex(file);
+        saved.build();
+        saved.save();
+
+        //a delete that was made after the snapshot and never saved
+        Files.writeString(file, FIRST.replaceFirst("Name", "Void") + SECOND);
+
+        PersonIndex index = new PersonIndex(file);
+        index.open();
+        assertFalse(index.contains("56@#df&*AB"));
+        assertTrue(index.contains("77!!xy$%CD"));
+        assertEquals(1, index.size());
+        index.close();
+    }
+
+    @Test
+    public void testOpen_TombstoneAfterSnapshot_ShouldBeCountedByBuild() throws IOException {
+        //enough records after FIRST that its tombstone is outside the checksummed end of the file
+        StringBuilder rest = new StringBuilder(SECOND);
+        for (int i = 0; i < 40; i++) {
+            rest.append(SECOND.replace("77!!xy$%CD", String.format("77!!%02d$%%CD", i)));
+        }
+        Files.writeString(file, FIRST + rest);
+        PersonIndex saved = new PersonIndex(file);
+        saved.build();
+        saved.save();
+        Files.writeString(file, FIRST.replaceFirst("Name", "Void") + rest);
+
+        //the tombstone is inside the part the snapshot covers, so open() cannot count it
+        PersonIndex index = new PersonIndex(file);
+        index.open();
+        assertEquals(0, index.tombstones());
+        assertEquals(42, index.size());
+
+        index.build();
+        assertEquals(1, index.tombstones());
+        assertEquals(41, index.size());
+        index.close();
+    }
+
+    @Test
+    public void testOpen_CorruptOrStaleSnapshot_ShouldRebuild() throws IOException {
+        Path snapshot = file.resolveSibling(file.getFileName() + ".idx");
+        PersonIndex saved = new PersonIndex(file);
+        saved.build();
+        saved.save();
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+        PersonIndex index = new PersonIndex(file);
+        index.open();
+        assertEquals(0, index.scanStart());
+        assertEquals(2, index.size());
+
+        //a shorter file than the snapshot covered
+        index.save();
+        Files.writeString(file, SECOND);
+        PersonIndex rebuilt = new PersonIndex(file);
+        rebuilt.open();
+        assertEquals(0, rebuilt.scanStart());
+        assertEquals(0, rebuilt.offsetOf("77!!xy$%CD"));
+        assertFalse(rebuilt.contains("56@#df&*AB"));
+    }
+}
@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonMetricsTest {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path file;
+    private PersonMetrics metrics;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        TextPersonStore store = new TextPersonStore(file);
+        store.setForceOnWrite(false);
+        Person.useStore(store);
+        metrics = Person.getMetrics();
+        metrics.reset();
+        metrics.setEnabled(true);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        metrics.setEnabled(false);
+        metrics.reset();
+        Person.useStore(null);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    @Test
+    public void testOperations_ShouldCountOutcomesPhasesAndBytes() throws IOException {
+        Person person = new Person("57@#df&*AB", "John", "Doe", ADDRESS, "15-11-1990");
+        assertTrue(person.addPerson());
+        long added = Files.size(file);
+        assertFalse(new Person("12abcdefgh", "John", "Doe", ADDRESS, "15-11-1990").addPerson());
+        assertEquals("Success", person.addDemeritPoints(3, "01-02-2025"));
+        long appended = Files.size(file) - added;
+        assertEquals("Failed", person.addDemeritPoints(9, "01-02-2025"));
+        assertTrue(person.updatePersonalDetails(null, "Jake", null, null, null));
+
+        assertEquals(2, metrics.getCounter(PersonMetrics.Operation.ADD_PERSON, "calls"));
+        assertEquals(1, metrics.getCounter(PersonMetrics.Operation.ADD_PERSON, "success"));
+        assertEquals(1, metrics.getCounter(PersonMetrics.Operation.ADD_PERSON, "failed"));
+        assertEquals(1, metrics.getRejects(PersonMetrics.Rule.ID_FORMAT));
+        assertEquals(1, metrics.getRejects(PersonMetrics.Rule.POINT_RANGE));
+
+        //what the text store wrote and read, in the phase it happened in
+        assertEquals(added, metrics.getCounter(PersonMetrics.Operation.ADD_PERSON, "bytesWritten"));
+        assertEquals(added, metrics.getBytes(PersonMetrics.Operation.ADD_PERSON, PersonMetrics.Phase.WRITE, true));
+        assertEquals(added, metrics.getBytes(PersonMetrics.Operation.ADD_DEMERIT_POINTS, PersonMetrics.Phase.READ, false)); //the record up to the end of the file
+        assertEquals(0, metrics.getBytes(PersonMetrics.Operation.ADD_DEMERIT_POINTS, PersonMetrics.Phase.WRITE, false));
+        assertEquals(appended + TextPersonStore.TOMBSTONE.length(), metrics.getBytes(PersonMetrics.Operation.ADD_DEMERIT_POINTS, PersonMetrics.Phase.WRITE, true));
+        assertEquals(added + appended + TextPersonStore.TOMBSTONE.length(), metrics.getCounter(PersonMetrics.Operation.ADD_DEMERIT_POINTS, "bytesRead")
+                + metrics.getCounter(PersonMetrics.Operation.ADD_DEMERIT_POINTS, "bytesWritten"));
+
+        assertEquals(2, metrics.getLatency(PersonMetrics.Operation.ADD_PERSON, null).getCount());
+        assertEquals(1, metrics.getLatency(PersonMetrics.Operation.ADD_PERSON, PersonMetrics.Phase.WRITE).getCount());
+        assertEquals(2, metrics.getLatency(PersonMetrics.Operation.ADD_DEMERIT_POINTS, PersonMetrics.Phase.VALIDATE).getCount());
+        assertEquals(1, metrics.getLatency(PersonMetrics.Operation.ADD_DEMERIT_POINTS, PersonMetrics.Phase.WRITE).getCount());
+        assertEquals(1, metrics.getLatency(PersonMetrics.Operation.UPDATE_PERSONAL_DETAILS, PersonMetrics.Phase.READ).getCount());
+        assertEquals(0, metrics.getLatency(PersonMetrics.Operation.UPDATE_PERSONAL_DETAILS, PersonMetrics.Phase.VALIDATE).getCount());
+    }
+
+    @Test
+    public void testDemeritLog_ShouldCountTheLogFrame() throws IOException {
+        assertTrue(new Person("57@#df&*AB", "John", "Doe", ADDRESS, "15-11-1990").addPerson());
+        Path directory = Files.createTempDirectory("demerits");
+        DemeritEventLog log = new DemeritEventLog(directory);
+        Person.useDemeritLog(log);
+        try {
+            assertEquals("Success", Person.findById("57@#df&*AB").addDemeritPoints(3, "01-02-2025"));
+
+            assertEquals(DemeritEventLog.offenceBytes("57@#df&*AB"), metrics.getBytes(PersonMetrics.Operation.ADD_DEMERIT_POINTS, PersonMetrics.Phase.WRITE, true));
+            assertEquals(0, metrics.getCounter(PersonMetrics.Operation.ADD_DEMERIT_POINTS, "bytesRead")); //only the index is asked
+        } finally {
+            Person.useDemeritLog(null);
+            log.close();
+            try (var files = Files.list(directory)) {
+                for (Path path : files.toList()) Files.delete(path);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testUpdateRules_ShouldBeCountedByRule() {
+        Person person = new Person("57@#df&*AB", "John", "Doe", ADDRESS, "15-11-2010");
+        assertTrue(person.addPerson());
+        assertTrue(new Person("77@#df&*AB", "John", "Doe", ADDRESS, "15-11-1990").addPerson());
+
+        assertFalse(person.updatePersonalDetails("77@#df&*AB", null, null, null, "01-01-2000"));
+        assertTrue(person.updatePersonalDetails("77@#df&*AB", null, null, null, null));
+        assertFalse(person.updatePersonalDetails(null, null, null, ADDRESS, null));
+        assertFalse(new Person("99@#df&*AB", "John", "Doe", ADDRESS, "15-11-1990").updatePersonalDetails(null, "Jake", null, null, null));
+
+        assertEquals(1, metrics.getRejects(PersonMetrics.Rule.BIRTH_DATE_WITH_OTHER_CHANGES));
+        assertEquals(1, metrics.getRejects(PersonMetrics.Rule.ID_TAKEN));
+        assertEquals(1, metrics.getRejects(PersonMetrics.Rule.UNDER_18_ADDRESS_CHANGE));
+        assertEquals(1, metrics.getRejects(PersonMetrics.Rule.NOT_IN_FILE));
+        assertEquals(4, metrics.getCounter(PersonMetrics.Operation.UPDATE_PERSONAL_DETAILS, "calls"));
+        assertEquals(3, metrics.getCounter(PersonMetrics.Operation.UPDATE_PERSONAL_DETAILS, "failed"));
+    }
+
+    @Test
+    public void testDisabled_ShouldRecordNothing() {
+        metrics.setEnabled(false);
+        Person person = new Person("57@#df&*AB", "John", "Doe", ADDRESS, "15-11-1990");
+        assertTrue(person.addPerson());
+        assertEquals("Failed", person.addDemeritPoints(9, "01-02-2025"));
+        Person.addDemeritPointsBatch(List.of(new Person.DemeritEntry("57@#df&*AB", 2, "01-02-2025")));
+
+        assertTrue(metrics.getCounters().values().stream().allMatch(count -> count == 0));
+        assertEquals(0, metrics.getLatency(PersonMetrics.Operation.ADD_PERSON, null).getCount());
+    }
+
+    @Test
+    public void testExposure_ShouldServeJmxAndTextDump() throws Exception {
+        Person person = new Person("57@#df&*AB", "John", "Doe", ADDRESS, "15-11-1990");
+        assertTrue(person.addPerson());
+        metrics.register();
+        metrics.register(); //a second time is fine
+
+        ObjectName name = new ObjectName("seforit:type=PersonMetrics");
+        assertEquals(true, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Enabled"));
+        assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Counters"));
+        assertEquals(1, (long) metrics.getCounters().get("ADD_PERSON.success"));
+        assertTrue(metrics.getLatencies().containsKey("ADD_PERSON.WRITE.p99"));
+
+        String dump = metrics.dump();
+        assertTrue(dump.contains("ADD_PERSON"));
+        assertTrue(dump.contains("write"));
+        assertTrue(dump.contains("bytes written"));
+        assertTrue(dump.contains("ID_FORMAT"));
+    }
+}
@@ -0,0 +1,184 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonRegistryTest {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private Path file;
+    private TextPersonStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        store = new TextPersonStore(file);
+        store.setForceOnWrite(false);
+        Person.useStore(store);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Person.useStore(null);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    private static Person person(int number) {
+        return new Person(String.format("5%d@#%04dAB", number % 8 + 2, number), "John", "Doe",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-1990");
+    }
+
+    @Test
+    public void testConcurrentDemerits_ShouldNotLoseUpdates() throws Exception {
+        PersonRegistry registry = new PersonRegistry();
+        int persons = 16;
+        int threads = 8;
+        int perThread = 20;
+        for (int p = 0; p < persons; p++) {
+            assertTrue(registry.addPerson(person(p)));
+        }
+
+        //every thread adds demerits for every person, each on a different day
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String day = start.plusDays(thread * perThread + i).format(FORMAT);
+                    for (int p = 0; p < persons; p++) {
+                        assertEquals("Success", registry.addDemeritPoints(person(p).getPersonID(), 1, day));
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) result.get();
+        pool.shutdown();
+
+        for (int p = 0; p < persons; p++) {
+            String history = store.find(person(p).getPersonID()).getDemeritHistory();
+            assertEquals(threads * perThread, history.split(", ").length);
+        }
+    }
+
+    @Test
+    public void testAddPerson_Duplicate_ShouldKeepStoredPerson() {
+        PersonRegistry registry = new PersonRegistry();
+        Person stored = person(1);
+        assertTrue(stored.addPerson()); //in the store, not kept by the registry yet
+        Person duplicate = new Person(stored.getPersonID(), "Jake", "Doe", stored.getAddress(), stored.getBirthDate());
+
+        assertTrue(registry.contains(stored.getPersonID()));
+        assertFalse(registry.addPerson(duplicate));
+        assertEquals("John", registry.load(stored.getPersonID()).getFirstName());
+    }
+
+    @Test
+    public void testAddDemeritPointsBatch_ShouldUpdateKeptPersonAndSuspension() throws IOException {
+        PersonRegistry registry = new PersonRegistry();
+        Person person = person(1);
+        assertTrue(registry.addPerson(person));
+
+        List<String> results = registry.addDemeritPointsBatch(List.of(
+                new Person.DemeritEntry(person.getPersonID(), 6, "01-03-2025"),
+                new Person.DemeritEntry(person.getPersonID(), 6, "02-03-2025"),
+                new Person.DemeritEntry(person.getPersonID(), 1, "03-03-2025"))); //13 in total, over 12
+
+        assertEquals(List.of("Success", "Success", "Success"), results);
+        assertSame(person, registry.get(person.getPersonID()));
+        assertEquals(3, person.getDemeritLedger().size());
+        assertTrue(registry.isSuspended(person.getPersonID()));
+        assertEquals(3, store.find(person.getPersonID()).getDemeritHistory().split(", ").length);
+    }
+
+    @Test
+    public void testUpdatePersonalDetails_IdChange_ShouldRekeyPerson() {
+        PersonRegistry registry = new PersonRegistry(4);
+        Person person = new Person("57@#df&*AB", "John", "Doe",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-1990");
+        registry.addPerson(person);
+
+        assertTrue(registry.updatePersonalDetails("57@#df&*AB", "77@#df&*AB", null, null, null, null));
+
+        assertNull(registry.get("57@#df&*AB"));
+        assertSame(person, registry.get("77@#df&*AB"));
+        assertEquals("Success", registry.addDemeritPoints("77@#df&*AB", 2, "01-03-2024"));
+    }
+
+    @Test
+    public void testUnknownPerson_ShouldFail() {
+        PersonRegistry registry = new PersonRegistry();
+
+        assertEquals("Failed", registry.addDemeritPoints("57@#df&*AB", 2, "01-03-2024"));
+        assertFalse(registry.updatePersonalDetails("57@#df&*AB", null, "Jake", null, null, null));
+    }
+
+    @Test
+    public void testAdvanceTo_ExpiredPoints_ShouldClearSuspension() {
+        PersonRegistry registry = new PersonRegistry();
+        Person young = new Person("57@#df&*AB", "Jane", "Smith",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2006");
+        registry.addPerson(young);
+
+        registry.addDemeritPoints("57@#df&*AB", 4, "01-11-2025");
+        registry.addDemeritPoints("57@#df&*AB", 4, "02-11-2025");
+        assertTrue(young.isSuspended());
+        assertTrue(registry.isSuspended("57@#df&*AB"));
+
+        registry.advanceTo(LocalDate.of(2027, 11, 2)); //first offence has left the window
+        assertFalse(young.isSuspended());
+    }
+
+    @Test
+    public void testLoad_StoredPerson_ShouldCountExistingOffences() throws IOException {
+        store.insert(new PersonRecord("57@#df&*AB", "Jane", "Smith",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2006", "4 on 2025-11-01, 4 on 2025-11-02"));
+        PersonRegistry registry = new PersonRegistry();
+
+        Person person = registry.load("57@#df&*AB");
+
+        assertNotNull(person);
+        assertSame(person, registry.get("57@#df&*AB"));
+        assertSame(person, registry.load("57@#df&*AB"));
+        assertTrue(registry.isSuspended("57@#df&*AB"));
+        assertNull(registry.load("77@#df&*AB"));
+    }
+
+    @Test
+    public void testCapacity_DroppedPerson_ShouldBeLoadedAgainWithoutRecountingOffences() {
+        PersonRegistry registry = new PersonRegistry(4, 2);
+        Person adult = person(0);
+        assertTrue(registry.addPerson(adult));
+        assertEquals("Success", registry.addDemeritPoints(adult.getPersonID(), 6, "01-03-2025"));
+        assertEquals("Success", registry.addDemeritPoints(adult.getPersonID(), 5, "02-03-2025")); //11, the limit is 12
+
+        for (int p = 1; p < 50 && registry.get(adult.getPersonID()) != null; p++) {
+            assertTrue(registry.addPerson(person(p)));
+        }
+        assertNull(registry.get(adult.getPersonID()));
+        assertTrue(registry.size() <= 2);
+        assertTrue(registry.getEvictions() > 0);
+
+        //operations load the person from the store again, and the engine still has the 11 points
+        assertEquals("Success", registry.addDemeritPoints(adult.getPersonID(), 1, "03-03-2025"));
+        assertFalse(registry.isSuspended(adult.getPersonID()));
+        assertEquals(3, registry.get(adult.getPersonID()).getDemeritLedger().size());
+        assertEquals("Success", registry.addDemeritPoints(adult.getPersonID(), 1, "04-03-2025"));
+        assertTrue(registry.isSuspended(adult.getPersonID()));
+    }
+}
@@ -0,0 +1,227 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonServerTest {
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path file;
+    private TextPersonStore store;
+    private PersonServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        store = new TextPersonStore(file);
+        store.setForceOnWrite(false);
+        Person.useStore(store);
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (server != null) server.stop(0);
+        Person.useStore(null);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    private void start(int maxRunning, int maxWaiting) throws IOException {
+        server = new PersonServer(new PersonRegistry(), 0, maxRunning, maxWaiting);
+        server.start();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    private static String path(String personID) {
+        return "/persons/" + URLEncoder.encode(personID, StandardCharsets.UTF_8);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        return client.send(HttpRequest.newBuilder(uri(path)).method(method, publisher).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testOperations_ShouldGoThroughRegistry() throws Exception {
+        start(4, 16);
+
+        HttpResponse<String> added = send("POST", "/persons", "{\"personID\": \"57@#df&*AB\", \"firstName\": \"Jane\", \"lastName\": \"Smith\", "
+                + "\"address\": \"" + ADDRESS + "\", \"birthDate\": \"15-11-2006\"}");
+        assertEquals(201, added.statusCode());
+        assertEquals("{\"result\": \"Success\"}", added.body());
+
+        assertEquals(200, send("POST", path("57@#df&*AB") + "/demerits", "{\"point\": 4, \"offenseDate\": \"01-11-2025\"}").statusCode());
+        assertEquals(200, send("POST", path("57@#df&*AB") + "/demerits", "{\"point\": 4, \"offenseDate\": \"02-11-2025\"}").statusCode());
+        assertEquals(200, send("PUT", path("57@#df&*AB"), "{\"firstName\": \"Jake\"}").statusCode());
+
+        HttpResponse<String> found = send("GET", path("57@#df&*AB"), null);
+        assertEquals(200, found.statusCode());
+        Map<String, String> person = PersonServer.parseObject(found.body());
+        assertEquals("Jake", person.get("firstName"));
+        assertEquals(ADDRESS, person.get("address"));
+        assertEquals("true", person.get("suspended"));
+        assertEquals("Jake", store.find("57@#df&*AB").getFirstName());
+    }
+
+    @Test
+    public void testFailures_ShouldMapToStatusCodes() throws Exception {
+        start(4, 16);
+
+        assertEquals(404, send("GET", path("57@#df&*AB"), null).statusCode());
+        assertEquals(400, send("POST", "/persons", "{\"personID\": \"57@#df&*AB\"}").statusCode());
+        assertEquals(400, send("POST", "/persons", "{\"personID\": ").statusCode());
+        assertEquals(405, send("DELETE", path("57@#df&*AB"), null).statusCode());
+
+        //fails the rules of addPerson
+        HttpResponse<String> invalid = send("POST", "/persons", "{\"personID\": \"12abcdefgh\", \"firstName\": \"Jane\", \"lastName\": \"Smith\", "
+                + "\"address\": \"" + ADDRESS + "\", \"birthDate\": \"15-11-2006\"}");
+        assertEquals(400, invalid.statusCode());
+        assertEquals("{\"result\": \"Failed\"}", invalid.body());
+    }
+
+    @Test
+    public void testDuplicateAdd_ShouldReturn409AndKeepStoredPerson() throws Exception {
+        start(4, 16);
+        String body = "{\"personID\": \"57@#df&*AB\", \"firstName\": \"%s\", \"lastName\": \"Smith\", "
+                + "\"address\": \"" + ADDRESS + "\", \"birthDate\": \"15-11-2006\"}";
+
+        assertEquals(201, send("POST", "/persons", String.format(body, "Jane")).statusCode());
+        assertEquals(409, send("POST", "/persons", String.format(body, "Jake")).statusCode());
+
+        Map<String, String> person = PersonServer.parseObject(send("GET", path("57@#df&*AB"), null).body());
+        assertEquals("Jane", person.get("firstName"));
+        assertEquals("Jane", store.find("57@#df&*AB").getFirstName());
+    }
+
+    @Test
+    public void testFullQueue_ShouldRejectWith503() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Person.useStore(new BlockingStore(store, entered, release));
+        start(1, 0);
+
+        //the lookup blocks in the store while holding the only slot
+        CompletableFuture<HttpResponse<String>> blocked = client.sendAsync(
+                HttpRequest.newBuilder(uri(path("57@#df&*AB"))).GET().build(), HttpResponse.BodyHandlers.ofString());
+        entered.await();
+
+        HttpResponse<String> rejected = send("GET", path("77@#df&*AB"), null);
+        assertEquals(503, rejected.statusCode());
+        assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+
+        release.countDown();
+        assertEquals(404, blocked.get().statusCode());
+        assertEquals(1, server.getRejected());
+    }
+
+    @Test
+    public void testLoadTestClient_ShouldAccountForEveryRequest() throws Exception {
+        start(64, 4096);
+
+        LoadTestClient.Result result = LoadTestClient.run(uri("/"), 2000, 200, 50);
+
+        assertEquals(2000, result.getOk() + result.getRejected() + result.getFailed());
+        assertEquals(0, result.getFailed());
+        assertTrue(result.getOk() > 0);
+    }
+
+    @Test
+    public void testParseObject_ShouldReadFlatObjects() {
+        Map<String, String> fields = PersonServer.parseObject(" {\"a\": \"x\\\"y\\u00EB\", \"b\" : -12, \"c\": null, \"d\": true} ");
+
+        assertEquals("x\"y\u00EB", fields.get("a"));
+        assertEquals("-12", fields.get("b"));
+        assertTrue(fields.containsKey("c"));
+        assertNull(fields.get("c"));
+        assertEquals("true", fields.get("d"));
+        assertEquals("\"x\\\"y\u00EB\"", PersonServer.quote("x\"y\u00EB"));
+        assertThrows(IllegalArgumentException.class, () -> PersonServer.parseObject("{\"a\": [1]}"));
+        assertThrows(IllegalArgumentException.class, () -> PersonServer.parseObject("{\"a\": 1} x"));
+    }
+
+    //holds every lookup until released
+    private static class BlockingStore implements PersonStore {
+        private final PersonStore store;
+        private final CountDownLatch entered;
+        private final CountDownLatch release;
+
+        BlockingStore(PersonStore store, CountDownLatch entered, CountDownLatch release) {
+            this.store = store;
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public boolean contains(String personID) {
+            return store.contains(personID);
+        }
+
+        @Override
+        public PersonRecord find(String personID) throws IOException {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return store.find(personID);
+        }
+
+        @Override
+        public boolean insert(PersonRecord record) throws IOException {
+            return store.insert(record);
+        }
+
+        @Override
+        public int insertAll(Iterator<PersonRecord> records) throws IOException {
+            return store.insertAll(records);
+        }
+
+        @Override
+        public boolean update(String personID, PersonRecord record) throws IOException {
+            return store.update(personID, record);
+        }
+
+        @Override
+        public boolean delete(String personID) throws IOException {
+            return store.delete(personID);
+        }
+
+        @Override
+        public void forEach(Consumer<PersonRecord> action) throws IOException {
+            store.forEach(action);
+        }
+
+        @Override
+        public void sync() throws IOException {
+            store.sync();
+        }
+
+        @Override
+        public void close() throws IOException {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordReaderTest {
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static PersonRecord record(String id, String firstName) {
+        return new PersonRecord(id, firstName, "Doe", "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-1990", "3 on 2025-01-10");
+    }
+
+    private List<String> readAll(RecordReader reader) throws IOException {
+        List<String> texts = new ArrayList<>();
+        while (reader.next()) {
+            texts.add(reader.record().toText());
+        }
+        return texts;
+    }
+
+    @Test
+    public void testNext_ShouldReadRecordsAcrossBufferEdges() throws IOException {
+        PersonRecord john = record("56@#df&*AB", "John");
+        PersonRecord zoe = record("57@#df&*AB", "Zo\u00EB"); //two bytes in UTF-8
+        Files.writeString(file, john.toText() + zoe.toText());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RecordReader reader = new RecordReader(channel, 0, 7); //every line spans several reads
+            assertEquals(List.of(john.toText(), zoe.toText()), readAll(reader));
+        }
+    }
+
+    @Test
+    public void testNext_ShouldSkipTombstonesAndReuseRecord() throws IOException {
+        PersonRecord dead = record("56@#df&*AB", "Old");
+        PersonRecord live = record("56@#df&*AB", "New");
+        Files.writeString(file, "stray line\n" + dead.toText().replaceFirst("Name: ", TextPersonStore.TOMBSTONE) + live.toText());
+
+        try (RecordReader reader = RecordReader.open(file)) {
+            assertTrue(reader.next());
+            PersonRecord first = reader.record();
+            assertEquals("New", first.getFirstName());
+            assertEquals(12, reader.lineNumber()); //stray line, 6 tombstoned lines, 5 lines of the live one
+            assertFalse(reader.next());
+            assertSame(first, reader.record());
+        }
+    }
+
+    @Test
+    public void testNext_ShouldAcceptWindowsLineBreaksAndMissingLastBreak() throws IOException {
+        PersonRecord john = record("56@#df&*AB", "John");
+        Files.writeString(file, john.toText().trim().replace("\n", "\r\n"));
+
+        try (RecordReader reader = RecordReader.open(file)) {
+            assertEquals(List.of(john.toText()), readAll(reader));
+        }
+    }
+
+    @Test
+    public void testNext_ShouldStartAtOffset() throws IOException {
+        PersonRecord john = record("56@#df&*AB", "John");
+        PersonRecord jane = record("57@#df&*AB", "Jane");
+        Files.writeString(file, john.toText() + jane.toText());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RecordReader reader = new RecordReader(channel, john.toText().length(), 4096);
+            assertEquals(List.of(jane.toText()), readAll(reader));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordWriterTest {
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Paths.get(file + ".tmp"));
+    }
+
+    private static PersonRecord record(String id, String firstName) {
+        return new PersonRecord(id, firstName, "Doe", "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-1990", "");
+    }
+
+    @Test
+    public void testAppend_ShouldMatchTextLayoutAndReturnOffsets() throws IOException {
+        PersonRecord john = record("56@#df&*AB", "John");
+        PersonRecord zoe = record("57@#df&*AB", "Zo\u00EB");
+        Files.writeString(file, "existing\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+             RecordWriter writer = RecordWriter.append(channel, 16)) { //smaller than one record
+            assertEquals(9, writer.write(john));
+            assertEquals(9 + john.toText().length(), writer.write(zoe));
+        }
+
+        assertEquals("existing\n" + john.toText() + zoe.toText(), Files.readString(file));
+    }
+
+    @Test
+    public void testReplace_ShouldOnlyChangeFileOnCommit() throws IOException {
+        Files.writeString(file, "old contents\n");
+        PersonRecord john = record("56@#df&*AB", "John");
+
+        try (RecordWriter writer = RecordWriter.replace(file)) {
+            writer.write(john);
+        } //closed without commit
+        assertEquals("old contents\n", Files.readString(file));
+        assertFalse(Files.exists(Paths.get(file + ".tmp")));
+
+        try (RecordWriter writer = RecordWriter.replace(file)) {
+            writer.write(john);
+            writer.commit();
+        }
+        assertEquals(john.toText(), Files.readString(file));
+        assertFalse(Files.exists(Paths.get(file + ".tmp")));
+    }
+}
@@ -0,0 +1,182 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedPersonStoreTest {
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("sharded-store");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static PersonRecord person(String id) {
+        return new PersonRecord(id, "John", "Doe",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000", "");
+    }
+
+    private static String id(int n) {
+        return String.format("%02d@#%04dAB", 20 + n % 80, n);
+    }
+
+    //a second ID that hashes to a different shard than the first
+    private static String idInOtherShard(String personID, int shards) {
+        for (int n = 0; ; n++) {
+            String other = String.format("99!!%04dCD", n);
+            if (ShardedPersonStore.shardOf(other, shards) != ShardedPersonStore.shardOf(personID, shards)) return other;
+        }
+    }
+
+    @Test
+    public void testInsertAndFind_ShouldSpreadOverShards() throws IOException {
+        Path store = dir.resolve("store");
+        try (ShardedPersonStore sharded = ShardedPersonStore.open(store, 4)) {
+            List<PersonRecord> records = new ArrayList<>();
+            for (int n = 0; n < 200; n++) records.add(person(id(n)));
+            assertEquals(200, sharded.insertAll(records.iterator()));
+            assertFalse(sharded.insert(person(id(7))));
+            assertEquals(id(7), sharded.find(id(7)).personID);
+        }
+
+        for (int shard = 0; shard < 4; shard++) {
+            assertTrue(Files.size(ShardedPersonStore.shardFile(store, shard)) > 0);
+        }
+        try (ShardedPersonStore reopened = ShardedPersonStore.open(store)) {
+            assertEquals(4, reopened.getShardCount());
+            List<String> ids = new ArrayList<>();
+            reopened.forEach(record -> ids.add(record.personID));
+            assertEquals(200, ids.size());
+        }
+    }
+
+    @Test
+    public void testOpen_WithOtherShardCount_ShouldFail() throws IOException {
+        Path store = dir.resolve("store");
+        ShardedPersonStore.open(store, 4).close();
+        assertThrows(IOException.class, () -> ShardedPersonStore.open(store, 8));
+    }
+
+    @Test
+    public void testUpdate_IDInOtherShard_ShouldMoveRecord() throws IOException {
+        try (ShardedPersonStore sharded = ShardedPersonStore.open(dir.resolve("store"), 4)) {
+            String oldID = id(1);
+            String newID = idInOtherShard(oldID, 4);
+            sharded.insert(person(oldID));
+
+            PersonRecord moved = person(newID);
+            moved.firstName = "Jake";
+            assertTrue(sharded.update(oldID, moved));
+            assertFalse(sharded.contains(oldID));
+            assertEquals("Jake", sharded.find(newID).firstName);
+
+            //moving onto an ID that is taken leaves both records alone
+            sharded.insert(person(oldID));
+            assertFalse(sharded.update(oldID, person(newID)));
+            assertTrue(sharded.contains(oldID));
+            assertEquals("Jake", sharded.find(newID).firstName);
+        }
+    }
+
+    @Test
+    public void testUpdateAll_ShouldApplySameShardAndCrossShardUpdates() throws IOException {
+        try (ShardedPersonStore sharded = ShardedPersonStore.open(dir.resolve("store"), 4)) {
+            String kept = id(1);
+            String moving = id(2);
+            String target = idInOtherShard(moving, 4);
+            sharded.insert(person(kept));
+            sharded.insert(person(moving));
+
+            PersonRecord renamed = person(kept);
+            renamed.lastName = "Smith";
+            Map<String, PersonRecord> updates = new LinkedHashMap<>();
+            updates.put(kept, renamed);
+            updates.put(moving, person(target));
+            updates.put(id(3), person(id(3))); //not in the store
+
+            assertEquals(Set.of(kept, moving), sharded.updateAll(updates));
+            assertEquals("Smith", sharded.find(kept).lastName);
+            assertFalse(sharded.contains(moving));
+            assertTrue(sharded.contains(target));
+        }
+    }
+
+    @Test
+    public void testReshard_ShouldKeepEveryRecord() throws IOException {
+        Path from = dir.resolve("from");
+        Path to = dir.resolve("to");
+        try (ShardedPersonStore sharded = ShardedPersonStore.open(from, 3)) {
+            for (int n = 0; n < 100; n++) sharded.insert(person(id(n)));
+            sharded.delete(id(5));
+            sharded.update(id(6), person(idInOtherShard(id(6), 3)));
+        }
+
+        ShardedPersonStore.reshard(from, to, 5);
+        assertThrows(IOException.class, () -> ShardedPersonStore.reshard(from, to, 5));
+
+        Set<String> before = new HashSet<>();
+        try (ShardedPersonStore old = ShardedPersonStore.open(from)) {
+            old.forEach(record -> before.add(record.personID));
+        }
+        try (ShardedPersonStore resharded = ShardedPersonStore.open(to)) {
+            assertEquals(5, resharded.getShardCount());
+            Set<String> after = new HashSet<>();
+            resharded.forEach(record -> after.add(record.personID));
+            assertEquals(before, after);
+            assertEquals(99, after.size());
+            for (String personID : after) assertTrue(resharded.contains(personID));
+        }
+    }
+
+    @Test
+    public void testReshard_FromSingleFile_ShouldSplitIt() throws IOException {
+        Path file = dir.resolve("person.txt");
+        try (TextPersonStore single = new TextPersonStore(file)) {
+            for (int n = 0; n < 50; n++) single.insert(person(id(n)));
+        }
+
+        ShardedPersonStore.reshard(file, dir.resolve("to"), 2);
+        try (ShardedPersonStore resharded = ShardedPersonStore.open(dir.resolve("to"))) {
+            for (int n = 0; n < 50; n++) assertTrue(resharded.contains(id(n)));
+        }
+    }
+
+    @Test
+    public void testReshard_WithDemeritLog_ShouldWriteLoggedOffencesIntoHistory() throws IOException {
+        Path file = dir.resolve("person.txt");
+        try (TextPersonStore single = new TextPersonStore(file)) {
+            single.insert(person(id(1)));
+            single.insert(person(id(2)));
+        }
+
+        try (DemeritEventLog log = new DemeritEventLog(dir.resolve("demerits"))) {
+            log.append(id(1), LocalDate.of(2025, 1, 10), 2);
+            ShardedPersonStore.reshard(file, log, dir.resolve("to"), 2);
+        }
+        try (ShardedPersonStore resharded = ShardedPersonStore.open(dir.resolve("to"))) {
+            assertEquals("2 on 2025-01-10", resharded.find(id(1)).getDemeritHistory());
+            assertEquals("", resharded.find(id(2)).getDemeritHistory());
+        }
+    }
+}
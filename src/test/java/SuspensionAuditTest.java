@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuspensionAuditTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 12, 31);
+    private static final String ADDRESS = "32 | Highland Street | Melbourne | Victoria | Australia";
+
+    private Path file;
+    private TextPersonStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+        store = new TextPersonStore(file);
+        store.setForceOnWrite(false);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static String id(int number) {
+        return String.format("5%d@#%04dAB", number % 8 + 2, number);
+    }
+
+    private static String history(Random random) {
+        StringBuilder history = new StringBuilder();
+        int offences = random.nextInt(6);
+        for (int i = 0; i < offences; i++) {
+            if (i > 0) history.append(", ");
+            LocalDate day = TODAY.minusDays(random.nextInt(4 * 365)); //about half inside the window
+            history.append(1 + random.nextInt(6)).append(" on ").append(day);
+        }
+        return history.toString();
+    }
+
+    //the same rules applied one record at a time through Person's own history parser
+    private static String expectedLine(PersonRecord record) {
+        int age = TODAY.getYear() - Integer.parseInt(record.getBirthDate().split("-")[2]);
+        int max = age < 21 ? 6 : 12;
+        int points = Person.parseDemeritHistory(record.getDemeritHistory()).sumSince((int) TODAY.minusYears(2).toEpochDay());
+        if (points > max) return "SUSPENDED," + record.getPersonID() + "," + age + "," + points + "," + max + "\n";
+        if (points >= max - 2) return "NEAR," + record.getPersonID() + "," + age + "," + points + "," + max + "\n";
+        return "";
+    }
+
+    @Test
+    public void testAudit_ShouldMatchSequentialRulesForAnyChunking() throws IOException {
+        Random random = new Random(7);
+        int persons = 500;
+        for (int p = 0; p < persons; p++) {
+            String birthDate = "15-06-" + (random.nextBoolean() ? 2006 : 1980);
+            store.insert(new PersonRecord(id(p), "John", "Doe", ADDRESS, birthDate, history(random)));
+        }
+        for (int p = 0; p < persons; p += 10) { //rewritten records leave tombstoned copies behind
+            PersonRecord record = store.find(id(p));
+            record.demeritHistory = "6 on 2025-01-01, 6 on 2025-02-01, 6 on 2025-03-01";
+            store.update(id(p), record);
+        }
+
+        StringBuilder expected = new StringBuilder("status,personID,age,points,limit\n");
+        store.forEach(record -> expected.append(expectedLine(record)));
+
+        for (long chunkBytes : new long[]{1, 37, 1000, 1 << 20}) {
+            SuspensionAudit audit = new SuspensionAudit(file, TODAY);
+            audit.setChunkBytes(chunkBytes);
+            audit.setParallelism(4);
+            StringWriter out = new StringWriter();
+            SuspensionAudit.Summary summary = audit.run(out);
+
+            assertEquals(expected.toString(), out.toString(), "chunk size " + chunkBytes);
+            assertEquals(persons, summary.getAudited());
+            assertEquals(0, summary.getUnreadable());
+            assertTrue(summary.getSuspended() >= persons / 10);
+        }
+    }
+
+    @Test
+    public void testAudit_ShouldApplyAgeThresholds() throws IOException {
+        store.insert(new PersonRecord(id(1), "Young", "Driver", ADDRESS, "01-01-2006", "4 on 2025-01-01, 3 on 2025-02-01")); //19, 7 points
+        store.insert(new PersonRecord(id(2), "Old", "Driver", ADDRESS, "01-01-1980", "4 on 2025-01-01, 3 on 2025-02-01")); //45, 7 points
+        store.insert(new PersonRecord(id(3), "Old", "Driver", ADDRESS, "01-01-1980", "6 on 2025-01-01, 5 on 2025-02-01")); //45, 11 points
+        store.insert(new PersonRecord(id(4), "Old", "Driver", ADDRESS, "01-01-1980", "6 on 2020-01-01, 6 on 2021-02-01, 6 on 2023-12-30")); //expired
+
+        StringWriter out = new StringWriter();
+        SuspensionAudit.Summary summary = new SuspensionAudit(file, TODAY).run(out);
+
+        assertEquals("status,personID,age,points,limit\n" +
+                "SUSPENDED," + id(1) + ",19,7,6\n" +
+                "NEAR," + id(3) + ",45,11,12\n", out.toString());
+        assertEquals(4, summary.getAudited());
+        assertEquals(1, summary.getSuspended());
+        assertEquals(1, summary.getNear());
+    }
+
+    @Test
+    public void testAudit_WithDemeritLog_ShouldCountLoggedOffences() throws IOException {
+        store.insert(new PersonRecord(id(1), "Young", "Driver", ADDRESS, "01-01-2006", "4 on 2025-01-01")); //19, 4 points in the file
+
+        Path logDirectory = Files.createTempDirectory("demerits");
+        try (DemeritEventLog log = new DemeritEventLog(logDirectory)) {
+            log.append(id(1), LocalDate.of(2025, 3, 1), 3);
+            log.append(id(1), LocalDate.of(2020, 3, 1), 6); //outside the window
+
+            StringWriter out = new StringWriter();
+            SuspensionAudit.Summary summary = new SuspensionAudit(file, log, TODAY).run(out);
+
+            assertEquals("status,personID,age,points,limit\n" +
+                    "SUSPENDED," + id(1) + ",19,7,6\n", out.toString());
+            assertEquals(1, summary.getSuspended());
+        } finally {
+            try (Stream<Path> files = Files.walk(logDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
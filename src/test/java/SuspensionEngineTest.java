@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuspensionEngineTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+
+    @Test
+    public void testRecord_Under21_ShouldSuspendAbove6() {
+        SuspensionEngine engine = new SuspensionEngine(TODAY);
+        List<String> events = new ArrayList<>();
+        engine.addListener((id, suspended) -> events.add(id + "=" + suspended));
+        engine.track("56@#df&*AB", "15-11-2006");
+
+        engine.record("56@#df&*AB", TODAY.minusMonths(1), 3);
+        engine.record("56@#df&*AB", TODAY.minusMonths(2), 3);
+        assertFalse(engine.isSuspended("56@#df&*AB"));
+
+        engine.record("56@#df&*AB", TODAY.minusMonths(3), 1);
+        assertTrue(engine.isSuspended("56@#df&*AB"));
+        assertEquals(List.of("56@#df&*AB=true"), events);
+    }
+
+    @Test
+    public void testAdvanceTo_ShouldUnsuspendWhenPointsExpire() {
+        SuspensionEngine engine = new SuspensionEngine(TODAY);
+        List<String> events = new ArrayList<>();
+        engine.addListener((id, suspended) -> events.add(id + "=" + suspended));
+        engine.track("56@#df&*AB", "15-11-1990");
+        engine.record("56@#df&*AB", LocalDate.of(2024, 1, 10), 6);
+        engine.record("56@#df&*AB", LocalDate.of(2025, 1, 10), 6);
+        engine.record("56@#df&*AB", LocalDate.of(2025, 2, 10), 1);
+        assertTrue(engine.isSuspended("56@#df&*AB"));
+
+        //still inside the window on the two-year anniversary, gone the day after
+        engine.advanceTo(LocalDate.of(2026, 1, 10));
+        assertTrue(engine.isSuspended("56@#df&*AB"));
+        engine.advanceTo(LocalDate.of(2026, 1, 11));
+        assertFalse(engine.isSuspended("56@#df&*AB"));
+        assertEquals(7, engine.windowTotal("56@#df&*AB"));
+        assertEquals(List.of("56@#df&*AB=true", "56@#df&*AB=false"), events);
+    }
+
+    @Test
+    public void testAdvanceTo_ShouldOnlyTouchPeopleWithExpiringPoints() {
+        SuspensionEngine engine = new SuspensionEngine(TODAY);
+        for (int i = 0; i < 100; i++) {
+            String id = "person" + i;
+            engine.track(id, "15-11-1980");
+            engine.record(id, TODAY.minusDays(i), 2);
+        }
+
+        //nothing expires for a long time, so a daily sweep touches nobody
+        assertEquals(0, engine.advanceTo(TODAY.plusDays(1)));
+        //the offence from TODAY - i leaves the window on TODAY - i + 2 years + 1 day
+        assertEquals(3, engine.advanceTo(TODAY.plusYears(2).plusDays(1).minusDays(97)));
+    }
+
+    @Test
+    public void testAdvanceTo_Turning21_ShouldRaiseThreshold() {
+        SuspensionEngine engine = new SuspensionEngine(LocalDate.of(2025, 12, 30));
+        engine.track("56@#df&*AB", "15-11-2005");
+        engine.record("56@#df&*AB", LocalDate.of(2025, 12, 1), 5);
+        engine.record("56@#df&*AB", LocalDate.of(2025, 12, 2), 5);
+        assertTrue(engine.isSuspended("56@#df&*AB"));
+
+        engine.advanceTo(LocalDate.of(2026, 1, 1));
+        assertFalse(engine.isSuspended("56@#df&*AB"));
+    }
+
+    @Test
+    public void testRecord_OffenceOutsideWindow_ShouldBeIgnored() {
+        SuspensionEngine engine = new SuspensionEngine(TODAY);
+        engine.track("56@#df&*AB", "15-11-1990");
+        engine.record("56@#df&*AB", TODAY.minusYears(2).minusDays(1), 6);
+
+        assertEquals(0, engine.windowTotal("56@#df&*AB"));
+    }
+}
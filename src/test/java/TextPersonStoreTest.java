@@ -0,0 +1,202 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextPersonStoreTest {
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("person", ".txt");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    private static PersonRecord john() {
+        return new PersonRecord("56@#df&*AB", "John", "Doe",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000", "");
+    }
+
+    @Test
+    public void testUpdate_ShouldAppendAndTombstoneOldCopy() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        long lengthAfterInsert = Files.size(file);
+
+        PersonRecord changed = john();
+        changed.firstName = "Jake";
+        assertTrue(store.update("56@#df&*AB", changed));
+
+        String content = Files.readString(file);
+        assertTrue(content.startsWith("Void: John Doe\n"));
+        assertEquals(lengthAfterInsert + changed.toText().length(), Files.size(file));
+        assertEquals("Jake", store.find("56@#df&*AB").firstName);
+
+        TextPersonStore reopened = new TextPersonStore(file);
+        assertEquals("Jake", reopened.find("56@#df&*AB").firstName);
+    }
+
+    @Test
+    public void testDelete_ShouldTombstoneRecordAndSurviveReopen() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+
+        assertTrue(store.delete("56@#df&*AB"));
+        assertFalse(store.contains("56@#df&*AB"));
+        assertNull(store.find("56@#df&*AB"));
+        assertFalse(store.delete("56@#df&*AB"));
+        assertTrue(Files.readString(file).startsWith("Void: John Doe\n"));
+
+        TextPersonStore reopened = new TextPersonStore(file);
+        assertFalse(reopened.contains("56@#df&*AB"));
+        assertTrue(reopened.insert(john()));
+    }
+
+    @Test
+    public void testReopen_AfterClose_ShouldLoadSavedIndex() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        PersonRecord jane = john();
+        jane.personID = "77!!xy$%CD";
+        store.insert(jane);
+        store.close();
+
+        TextPersonStore reopened = new TextPersonStore(file);
+        assertTrue(Files.exists(file.resolveSibling(file.getFileName() + ".idx")));
+        assertTrue(reopened.delete("56@#df&*AB"));
+        PersonRecord changed = john();
+        changed.personID = "88!!xy$%EF";
+        assertTrue(reopened.update("77!!xy$%CD", changed));
+        reopened.insert(john());
+
+        //not closed, so the next open has the old snapshot and the appended tail
+        TextPersonStore again = new TextPersonStore(file);
+        assertEquals("88!!xy$%EF", again.find("88!!xy$%EF").personID);
+        assertFalse(again.contains("77!!xy$%CD"));
+        assertEquals("John", again.find("56@#df&*AB").firstName);
+        again.close();
+    }
+
+    @Test
+    public void testSync_ShouldNotSaveIndex() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        store.sync();
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".idx")));
+
+        store.close();
+        assertTrue(Files.exists(file.resolveSibling(file.getFileName() + ".idx")));
+    }
+
+    @Test
+    public void testSaveIndex_WithoutClose_ShouldLetReopenSkipTheSavedPart() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        PersonRecord jane = john();
+        jane.personID = "77!!xy$%CD";
+        store.insert(jane);
+        store.saveIndex();
+        long savedLength = Files.size(file);
+
+        PersonRecord jake = john();
+        jake.personID = "88!!xy$%EF";
+        store.insert(jake); //after the checkpoint, so only this one is scanned on open
+
+        PersonIndex index = new PersonIndex(file);
+        index.open();
+        assertEquals(savedLength, index.scanStart());
+        assertTrue(index.contains("56@#df&*AB"));
+        assertTrue(index.contains("77!!xy$%CD"));
+        assertTrue(index.contains("88!!xy$%EF"));
+        index.close();
+        store.close();
+    }
+
+    @Test
+    public void testUpdate_ToExistingID_ShouldReturnFalse() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        PersonRecord jane = john();
+        jane.personID = "77!!xy$%CD";
+        store.insert(jane);
+
+        assertFalse(store.update("77!!xy$%CD", john()));
+    }
+
+    @Test
+    public void testUpdateAll_ShouldReplaceFoundRecordsInOnePass() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        PersonRecord jane = john();
+        jane.personID = "77!!xy$%CD";
+        jane.firstName = "Jane";
+        store.insert(jane);
+
+        PersonRecord johnChanged = john();
+        johnChanged.demeritHistory = "3 on 2024-05-01";
+        PersonRecord janeChanged = jane.copy();
+        janeChanged.demeritHistory = "4 on 2024-05-01";
+        Map<String, PersonRecord> changes = new LinkedHashMap<>();
+        changes.put("56@#df&*AB", johnChanged);
+        changes.put("77!!xy$%CD", janeChanged);
+        changes.put("99!!zz$%EF", john()); //not stored
+
+        assertEquals(Set.of("56@#df&*AB", "77!!xy$%CD"), store.updateAll(changes));
+
+        TextPersonStore reopened = new TextPersonStore(file);
+        assertEquals("3 on 2024-05-01", reopened.find("56@#df&*AB").demeritHistory);
+        assertEquals("4 on 2024-05-01", reopened.find("77!!xy$%CD").demeritHistory);
+        assertFalse(reopened.contains("99!!zz$%EF"));
+        List<PersonRecord> records = new ArrayList<>();
+        reopened.forEach(records::add);
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    public void testCompact_ShouldDropTombstones() throws IOException {
+        TextPersonStore store = new TextPersonStore(file);
+        store.insert(john());
+        for (int i = 0; i < 10; i++) {
+            PersonRecord changed = john();
+            changed.demeritHistory = i + 1 + " on 2024-05-01";
+            store.update("56@#df&*AB", changed);
+        }
+
+        store.compact();
+
+        PersonRecord expected = john();
+        expected.demeritHistory = "10 on 2024-05-01";
+        assertEquals(expected.toText(), Files.readString(file));
+        assertEquals("10 on 2024-05-01", store.find("56@#df&*AB").demeritHistory);
+    }
+
+    @Test
+    public void testOpen_InterruptedUpdate_ShouldTombstoneOlderCopy() throws IOException {
+        PersonRecord changed = john();
+        changed.firstName = "Jake";
+        Files.writeString(file, john().toText() + changed.toText()); //crashed before the tombstone
+
+        TextPersonStore store = new TextPersonStore(file);
+
+        List<PersonRecord> records = new ArrayList<>();
+        store.forEach(records::add);
+        assertEquals(1, records.size());
+        assertEquals("Jake", records.get(0).firstName);
+    }
+}
@@ -0,0 +1,187 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalPersonStoreTest {
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("wal-store");
+        file = dir.resolve("person.txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static PersonRecord person(String id) {
+        return new PersonRecord(id, "John", "Doe",
+                "32 | Highland Street | Melbourne | Victoria | Australia", "15-11-2000", "");
+    }
+
+    @Test
+    public void testReplay_ShouldRestoreMutationsMissingFromTheStore() throws IOException {
+        Path wal = Paths.get(file + ".wal");
+        Path savedWal = dir.resolve("saved.wal");
+
+        WalPersonStore store = WalPersonStore.open(file, 0, 64 * 1024);
+        store.setCheckpointBytes(Long.MAX_VALUE);
+        store.insert(person("56@#df&*AB"));
+        PersonRecord changed = person("57@#df&*AB");
+        changed.demeritHistory = "3 on 2024-05-01";
+        assertTrue(store.update("56@#df&*AB", changed));
+        Files.copy(wal, savedWal);
+        store.close();
+
+        //lose the store file but keep the log, as if the store writes never reached the disk
+        Files.delete(file);
+        Files.move(savedWal, wal, StandardCopyOption.REPLACE_EXISTING);
+
+        try (WalPersonStore reopened = WalPersonStore.open(file, 0, 64 * 1024)) {
+            assertFalse(reopened.contains("56@#df&*AB"));
+            assertEquals("3 on 2024-05-01", reopened.find("57@#df&*AB").demeritHistory);
+        }
+        assertEquals(0, Files.size(wal));
+    }
+
+    @Test
+    public void testReplay_FieldOver64KB_ShouldComeBackWhole() throws IOException {
+        Path wal = Paths.get(file + ".wal");
+        Path savedWal = dir.resolve("saved.wal");
+        StringBuilder history = new StringBuilder("1 on 2020-01-01");
+        while (history.length() <= 70_000) history.append(", 1 on 2020-01-01"); //too long for writeUTF
+
+        WalPersonStore store = WalPersonStore.open(file, 0, 64 * 1024);
+        store.setCheckpointBytes(Long.MAX_VALUE);
+        PersonRecord offender = person("56@#df&*AB");
+        offender.demeritHistory = history.toString();
+        assertTrue(store.insert(offender));
+        Files.copy(wal, savedWal);
+        store.close();
+
+        Files.delete(file);
+        Files.move(savedWal, wal, StandardCopyOption.REPLACE_EXISTING);
+
+        try (WalPersonStore reopened = WalPersonStore.open(file, 0, 64 * 1024)) {
+            assertEquals(history.toString(), reopened.find("56@#df&*AB").demeritHistory);
+        }
+    }
+
+    @Test
+    public void testReplay_Delete_ShouldRemoveTheRecordAgain() throws IOException {
+        Path wal = Paths.get(file + ".wal");
+        Path savedFile = dir.resolve("saved.txt");
+        Path savedWal = dir.resolve("saved.wal");
+
+        WalPersonStore store = WalPersonStore.open(file, 0, 64 * 1024);
+        store.setCheckpointBytes(Long.MAX_VALUE);
+        store.insert(person("56@#df&*AB"));
+        store.sync();
+        Files.copy(file, savedFile);
+        assertTrue(store.delete("56@#df&*AB"));
+        assertFalse(store.delete("56@#df&*AB"));
+        Files.copy(wal, savedWal);
+        store.close();
+
+        //bring back the store file from before the delete, the log still holds the delete
+        Files.move(savedFile, file, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(savedWal, wal, StandardCopyOption.REPLACE_EXISTING);
+        try (WalPersonStore reopened = WalPersonStore.open(file, 0, 64 * 1024)) {
+            assertFalse(reopened.contains("56@#df&*AB"));
+        }
+    }
+
+    @Test
+    public void testUpdateAll_ShouldBeReplayedFromTheLog() throws IOException {
+        Path wal = Paths.get(file + ".wal");
+        Path savedWal = dir.resolve("saved.wal");
+
+        WalPersonStore store = WalPersonStore.open(file, 0, 64 * 1024);
+        store.setCheckpointBytes(Long.MAX_VALUE);
+        store.insert(person("56@#df&*AB"));
+        store.insert(person("57@#df&*AB"));
+
+        Map<String, PersonRecord> changes = new LinkedHashMap<>();
+        for (String id : new String[]{"56@#df&*AB", "57@#df&*AB", "58@#df&*AB"}) {
+            PersonRecord changed = person(id);
+            changed.demeritHistory = "2 on 2024-05-01";
+            changes.put(id, changed);
+        }
+        assertEquals(Set.of("56@#df&*AB", "57@#df&*AB"), store.updateAll(changes));
+        Files.copy(wal, savedWal);
+        store.close();
+
+        Files.delete(file);
+        Files.move(savedWal, wal, StandardCopyOption.REPLACE_EXISTING);
+
+        try (WalPersonStore reopened = WalPersonStore.open(file, 0, 64 * 1024)) {
+            assertEquals("2 on 2024-05-01", reopened.find("56@#df&*AB").demeritHistory);
+            assertEquals("2 on 2024-05-01", reopened.find("57@#df&*AB").demeritHistory);
+            assertFalse(reopened.contains("58@#df&*AB"));
+        }
+    }
+
+    @Test
+    public void testReplay_TornEntry_ShouldBeCutOff() throws IOException {
+        Path wal = Paths.get(file + ".wal");
+        WriteAheadLog log = new WriteAheadLog(wal, 0, 1024);
+        log.append("first".getBytes());
+        log.append("second".getBytes());
+        log.close();
+        Files.write(wal, new byte[]{0, 0, 0, 50, 1, 2}, StandardOpenOption.APPEND);
+
+        WriteAheadLog reopened = new WriteAheadLog(wal, 0, 1024);
+        List<String> entries = new ArrayList<>();
+        assertEquals(2, reopened.replay(entry -> entries.add(new String(entry))));
+        reopened.close();
+
+        assertEquals(List.of("first", "second"), entries);
+        assertEquals(2 * 8 + "first".length() + "second".length(), Files.size(wal));
+    }
+
+    @Test
+    public void testConcurrentInserts_ShouldAllBeDurable() throws Exception {
+        WalPersonStore store = WalPersonStore.open(file, 2, 64 * 1024);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    try {
+                        assertTrue(store.insert(person(String.format("5%d@#%04dAB", thread, i))));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        store.close();
+
+        List<PersonRecord> records = new ArrayList<>();
+        new TextPersonStore(file).forEach(records::add);
+        assertEquals(400, records.size());
+    }
+}